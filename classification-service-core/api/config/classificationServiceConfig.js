@@ -18,9 +18,29 @@ var logger = require('../logging/logging.js');
 
 //environment variables that config will be pulled from
 var classificationServicePort = "CAF_CLASSIFICATION_SERVICE_PORT";
+var classificationServiceCacheDuration = "CAF_CLASSIFICATION_SERVICE_CACHE_DURATION";
+var classificationServiceCacheMaxKeys = "CAF_CLASSIFICATION_SERVICE_CACHE_MAX_KEYS";
+var classificationServiceSlowRequestThreshold = "CAF_CLASSIFICATION_SERVICE_SLOW_REQUEST_THRESHOLD";
+var classificationServiceWorkers = "CAF_CLASSIFICATION_SERVICE_WORKERS";
+var classificationServiceShutdownTimeout = "CAF_CLASSIFICATION_SERVICE_SHUTDOWN_TIMEOUT";
+var classificationServiceExportPageSize = "CAF_CLASSIFICATION_SERVICE_EXPORT_PAGE_SIZE";
+var classificationServiceImportChunkSize = "CAF_CLASSIFICATION_SERVICE_IMPORT_CHUNK_SIZE";
+var classificationServiceImportMaxInFlightChunks = "CAF_CLASSIFICATION_SERVICE_IMPORT_MAX_IN_FLIGHT_CHUNKS";
+var classificationServiceJobRetention = "CAF_CLASSIFICATION_SERVICE_JOB_RETENTION";
+var classificationServiceBulkConcurrency = "CAF_CLASSIFICATION_SERVICE_BULK_CONCURRENCY";
 
 var classificationServiceConfig = {
-  port: 8080
+  bulkConcurrency: 10,
+  cacheDuration: 60,
+  cacheMaxKeys: 10000,
+  exportPageSize: 1000,
+  importChunkSize: 1000,
+  importMaxInFlightChunks: 4,
+  jobRetention: 3600,
+  port: 8080,
+  shutdownTimeout: 8000,
+  slowRequestThreshold: 5000,
+  workers: 1
 };
 
 //Get API Port
@@ -28,5 +48,55 @@ var portEnv = process.env[classificationServicePort];
 if(portEnv!==null && portEnv!==undefined){
   classificationServiceConfig.port = portEnv;
 }
+//Get time in seconds that items retrieved from Policy API are cached for
+var cacheDurationEnv = process.env[classificationServiceCacheDuration];
+if(cacheDurationEnv!==null && cacheDurationEnv!==undefined){
+  classificationServiceConfig.cacheDuration = parseInt(cacheDurationEnv);
+}
+//Get maximum number of items that will be held in the cache
+var cacheMaxKeysEnv = process.env[classificationServiceCacheMaxKeys];
+if(cacheMaxKeysEnv!==null && cacheMaxKeysEnv!==undefined){
+  classificationServiceConfig.cacheMaxKeys = parseInt(cacheMaxKeysEnv);
+}
+//Get time in milliseconds a request may take before it is logged as slow along with the Policy API calls it made
+var slowRequestThresholdEnv = process.env[classificationServiceSlowRequestThreshold];
+if(slowRequestThresholdEnv!==null && slowRequestThresholdEnv!==undefined){
+  classificationServiceConfig.slowRequestThreshold = parseInt(slowRequestThresholdEnv);
+}
+//Get number of worker processes to start, 0 starts one per CPU
+var workersEnv = process.env[classificationServiceWorkers];
+if(workersEnv!==null && workersEnv!==undefined){
+  classificationServiceConfig.workers = parseInt(workersEnv);
+}
+//Get time in milliseconds to wait for requests in progress to complete when shutting down
+var shutdownTimeoutEnv = process.env[classificationServiceShutdownTimeout];
+if(shutdownTimeoutEnv!==null && shutdownTimeoutEnv!==undefined){
+  classificationServiceConfig.shutdownTimeout = parseInt(shutdownTimeoutEnv);
+}
+//Get maximum number of items being created at one time for each bulk create request
+var bulkConcurrencyEnv = process.env[classificationServiceBulkConcurrency];
+if(bulkConcurrencyEnv!==null && bulkConcurrencyEnv!==undefined){
+  classificationServiceConfig.bulkConcurrency = parseInt(bulkConcurrencyEnv);
+}
+//Get number of Terms retrieved from Policy API in each request when exporting Terms
+var exportPageSizeEnv = process.env[classificationServiceExportPageSize];
+if(exportPageSizeEnv!==null && exportPageSizeEnv!==undefined){
+  classificationServiceConfig.exportPageSize = parseInt(exportPageSizeEnv);
+}
+//Get number of Terms added to a Term List in each request to Policy API when importing Terms
+var importChunkSizeEnv = process.env[classificationServiceImportChunkSize];
+if(importChunkSizeEnv!==null && importChunkSizeEnv!==undefined){
+  classificationServiceConfig.importChunkSize = parseInt(importChunkSizeEnv);
+}
+//Get maximum number of chunks of Terms being added to a Term List at one time for each import
+var importMaxInFlightChunksEnv = process.env[classificationServiceImportMaxInFlightChunks];
+if(importMaxInFlightChunksEnv!==null && importMaxInFlightChunksEnv!==undefined){
+  classificationServiceConfig.importMaxInFlightChunks = parseInt(importMaxInFlightChunksEnv);
+}
+//Get time in seconds that finished jobs are kept for
+var jobRetentionEnv = process.env[classificationServiceJobRetention];
+if(jobRetentionEnv!==null && jobRetentionEnv!==undefined){
+  classificationServiceConfig.jobRetention = parseInt(jobRetentionEnv);
+}
 module.exports = classificationServiceConfig;
 logger.debug(function(){return "Service config is: "+JSON.stringify(classificationServiceConfig);});
\ No newline at end of file
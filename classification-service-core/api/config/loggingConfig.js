@@ -25,6 +25,8 @@ var logLevelSet = process.env[logLevelEnvName];
 function getLogLevel(){
   return logLevelSet;
 }
+//sets the log level and returns the new level
 function setLogLevel(newLogLevel){
   logLevelSet = newLogLevel;
+  return logLevelSet;
 }
\ No newline at end of file
@@ -19,11 +19,43 @@ var logger = require('../logging/logging.js');
 var policyAPIHost = "CAF_CLASSIFICATION_SERVICE_POLICY_API_HOST";
 var policyAPIPort = "CAF_CLASSIFICATION_SERVICE_POLICY_API_PORT";
 var policyAPIEntryPath = "CAF_CLASSIFICATION_SERVICE_POLICY_API_ENTRY_PATH";
+var policyAPIMaxSockets = "CAF_CLASSIFICATION_SERVICE_POLICY_API_MAX_SOCKETS";
+var policyAPIMaxFreeSockets = "CAF_CLASSIFICATION_SERVICE_POLICY_API_MAX_FREE_SOCKETS";
+var policyAPISocketIdleTimeout = "CAF_CLASSIFICATION_SERVICE_POLICY_API_SOCKET_IDLE_TIMEOUT";
+var policyAPIMaxBatchSize = "CAF_CLASSIFICATION_SERVICE_POLICY_API_MAX_BATCH_SIZE";
+var policyAPIMaxResponseSize = "CAF_CLASSIFICATION_SERVICE_POLICY_API_MAX_RESPONSE_SIZE";
+var policyAPIMaxInFlight = "CAF_CLASSIFICATION_SERVICE_POLICY_API_MAX_IN_FLIGHT";
+var policyAPIMaxInFlightWrites = "CAF_CLASSIFICATION_SERVICE_POLICY_API_MAX_IN_FLIGHT_WRITES";
+var policyAPIMaxWriteWait = "CAF_CLASSIFICATION_SERVICE_POLICY_API_MAX_WRITE_WAIT";
+var policyAPIConnectTimeout = "CAF_CLASSIFICATION_SERVICE_POLICY_API_CONNECT_TIMEOUT";
+var policyAPIResponseTimeout = "CAF_CLASSIFICATION_SERVICE_POLICY_API_RESPONSE_TIMEOUT";
+var policyAPIMaxRetries = "CAF_CLASSIFICATION_SERVICE_POLICY_API_MAX_RETRIES";
+var policyAPIRetryDelay = "CAF_CLASSIFICATION_SERVICE_POLICY_API_RETRY_DELAY";
+var policyAPICircuitBreakerErrorThreshold = "CAF_CLASSIFICATION_SERVICE_POLICY_API_CIRCUIT_BREAKER_ERROR_THRESHOLD";
+var policyAPICircuitBreakerMinimumRequests = "CAF_CLASSIFICATION_SERVICE_POLICY_API_CIRCUIT_BREAKER_MINIMUM_REQUESTS";
+var policyAPICircuitBreakerWindow = "CAF_CLASSIFICATION_SERVICE_POLICY_API_CIRCUIT_BREAKER_WINDOW";
+var policyAPICircuitBreakerResetTimeout = "CAF_CLASSIFICATION_SERVICE_POLICY_API_CIRCUIT_BREAKER_RESET_TIMEOUT";
 
 var policyConfig = {
   policyAPIHost: "localhost",
   policyAPIPort: "9000",
-  policyAPIEntryPath: "/corepolicy/"
+  policyAPIEntryPath: "/corepolicy/",
+  maxSockets: 50,
+  maxFreeSockets: 10,
+  socketIdleTimeout: 30000,
+  maxBatchSize: 50,
+  maxResponseSize: 52428800,
+  maxInFlight: 40,
+  maxInFlightWrites: 20,
+  maxWriteWait: 1000,
+  connectTimeout: 5000,
+  responseTimeout: 60000,
+  maxRetries: 2,
+  retryDelay: 200,
+  circuitBreakerErrorThreshold: 50,
+  circuitBreakerMinimumRequests: 20,
+  circuitBreakerWindow: 10000,
+  circuitBreakerResetTimeout: 30000
 };
 //update config with policygateway environment options if any were passed
 //Get API Host
@@ -41,5 +73,85 @@ var policyEntryPathEnv = process.env[policyAPIEntryPath];
 if(policyEntryPathEnv!==null && policyEntryPathEnv!==undefined){
   policyConfig.policyAPIEntryPath = policyEntryPathEnv;
 }
+//GET maximum number of sockets that may be open to Policy API at one time
+var maxSocketsEnv = process.env[policyAPIMaxSockets];
+if(maxSocketsEnv!==null && maxSocketsEnv!==undefined){
+  policyConfig.maxSockets = parseInt(maxSocketsEnv);
+}
+//GET maximum number of idle sockets to keep open to Policy API for reuse
+var maxFreeSocketsEnv = process.env[policyAPIMaxFreeSockets];
+if(maxFreeSocketsEnv!==null && maxFreeSocketsEnv!==undefined){
+  policyConfig.maxFreeSockets = parseInt(maxFreeSocketsEnv);
+}
+//GET time in milliseconds that an idle socket will be kept open before it is closed
+var socketIdleTimeoutEnv = process.env[policyAPISocketIdleTimeout];
+if(socketIdleTimeoutEnv!==null && socketIdleTimeoutEnv!==undefined){
+  policyConfig.socketIdleTimeout = parseInt(socketIdleTimeoutEnv);
+}
+//GET maximum number of IDs that will be combined into a single retrieve request
+var maxBatchSizeEnv = process.env[policyAPIMaxBatchSize];
+if(maxBatchSizeEnv!==null && maxBatchSizeEnv!==undefined){
+  policyConfig.maxBatchSize = parseInt(maxBatchSizeEnv);
+}
+//GET maximum size in bytes of a response body that will be read from Policy API
+var maxResponseSizeEnv = process.env[policyAPIMaxResponseSize];
+if(maxResponseSizeEnv!==null && maxResponseSizeEnv!==undefined){
+  policyConfig.maxResponseSize = parseInt(maxResponseSizeEnv);
+}
+//GET maximum number of requests that may be in progress to Policy API at one time
+var maxInFlightEnv = process.env[policyAPIMaxInFlight];
+if(maxInFlightEnv!==null && maxInFlightEnv!==undefined){
+  policyConfig.maxInFlight = parseInt(maxInFlightEnv);
+}
+//GET maximum number of create, update and delete requests that may be in progress to Policy API at one time
+var maxInFlightWritesEnv = process.env[policyAPIMaxInFlightWrites];
+if(maxInFlightWritesEnv!==null && maxInFlightWritesEnv!==undefined){
+  policyConfig.maxInFlightWrites = parseInt(maxInFlightWritesEnv);
+}
+//GET time in milliseconds a queued create, update or delete request may wait before it is sent ahead of queued retrieve requests
+var maxWriteWaitEnv = process.env[policyAPIMaxWriteWait];
+if(maxWriteWaitEnv!==null && maxWriteWaitEnv!==undefined){
+  policyConfig.maxWriteWait = parseInt(maxWriteWaitEnv);
+}
+//GET time in milliseconds to wait for a connection to Policy API to be established
+var connectTimeoutEnv = process.env[policyAPIConnectTimeout];
+if(connectTimeoutEnv!==null && connectTimeoutEnv!==undefined){
+  policyConfig.connectTimeout = parseInt(connectTimeoutEnv);
+}
+//GET time in milliseconds to wait for a complete response from Policy API once a request has been sent
+var responseTimeoutEnv = process.env[policyAPIResponseTimeout];
+if(responseTimeoutEnv!==null && responseTimeoutEnv!==undefined){
+  policyConfig.responseTimeout = parseInt(responseTimeoutEnv);
+}
+//GET maximum number of times a failed retrieve request will be retried
+var maxRetriesEnv = process.env[policyAPIMaxRetries];
+if(maxRetriesEnv!==null && maxRetriesEnv!==undefined){
+  policyConfig.maxRetries = parseInt(maxRetriesEnv);
+}
+//GET base delay in milliseconds before a failed retrieve request is retried
+var retryDelayEnv = process.env[policyAPIRetryDelay];
+if(retryDelayEnv!==null && retryDelayEnv!==undefined){
+  policyConfig.retryDelay = parseInt(retryDelayEnv);
+}
+//GET percentage of failed requests that will open the circuit breaker
+var errorThresholdEnv = process.env[policyAPICircuitBreakerErrorThreshold];
+if(errorThresholdEnv!==null && errorThresholdEnv!==undefined){
+  policyConfig.circuitBreakerErrorThreshold = parseInt(errorThresholdEnv);
+}
+//GET minimum number of requests in the rolling window before the circuit breaker may open
+var minimumRequestsEnv = process.env[policyAPICircuitBreakerMinimumRequests];
+if(minimumRequestsEnv!==null && minimumRequestsEnv!==undefined){
+  policyConfig.circuitBreakerMinimumRequests = parseInt(minimumRequestsEnv);
+}
+//GET length in milliseconds of the rolling window that the error percentage is calculated over
+var breakerWindowEnv = process.env[policyAPICircuitBreakerWindow];
+if(breakerWindowEnv!==null && breakerWindowEnv!==undefined){
+  policyConfig.circuitBreakerWindow = parseInt(breakerWindowEnv);
+}
+//GET time in milliseconds the circuit breaker stays open before allowing a trial request
+var resetTimeoutEnv = process.env[policyAPICircuitBreakerResetTimeout];
+if(resetTimeoutEnv!==null && resetTimeoutEnv!==undefined){
+  policyConfig.circuitBreakerResetTimeout = parseInt(resetTimeoutEnv);
+}
 exports.policyConfig = policyConfig;
 logger.debug(function(){return "Policy API config is: "+JSON.stringify(policyConfig);});
\ No newline at end of file
@@ -19,10 +19,30 @@ var errorResponseHelper = require('../models/errors/errorResponse.js');
 var httpHelper = require('../helpers/httpPromiseHelper.js');
 
 module.exports = {
+  getLogLevel: getLogLevel,
+  getMetrics: getMetrics,
+  getStatistics: getStatistics,
   getVersion: getVersion,
-  healthCheck: healthCheck
+  healthCheck: healthCheck,
+  setLogLevel: setLogLevel
 };
 
+function getMetrics(req, res, next){
+  adminLib.getMetrics()
+  .then(function(metricsText){
+    res.set('Content-Type', 'text/plain; version=0.0.4');
+    res.send(metricsText);
+  })
+  .fail(function(errorResponse){
+    errorResponseHelper.writeErrorToResponseJSON(errorResponse, res);
+  }).done();
+}
+
+function getStatistics(req, res, next){
+  var statisticsPromise = adminLib.getStatistics();
+  httpHelper.writePromiseJSONResultToResponse(statisticsPromise, res);
+}
+
 //TODO expose on contract
 function getVersion(req, res, next){
   var getVersionPromise = adminLib.getVersion();
@@ -34,8 +54,12 @@ function healthCheck(req, res, next){
   httpHelper.writePromiseJSONResultToResponse(healthPromise, res);
 }
 
-//TODO expose on contract
 function getLogLevel(req, res, next){
   var logLevelPromise = adminLib.getLogLevel();
   httpHelper.writePromiseJSONResultToResponse(logLevelPromise, res);
+}
+
+function setLogLevel(req, res, next){
+  var logLevelPromise = adminLib.setLogLevel(req.swagger.params.logLevel.value.level);
+  httpHelper.writePromiseJSONResultToResponse(logLevelPromise, res);
 }
\ No newline at end of file
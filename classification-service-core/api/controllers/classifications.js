@@ -20,9 +20,11 @@ var classificationsModel = require('../models/classifications.js');
 
 module.exports = {
   createClassification,
+  createClassifications,
   deleteClassification,
   getClassification,
   getClassifications,
+  getClassificationsByIds,
   updateClassification
 };
 
@@ -41,6 +43,25 @@ function createClassification(req, response, next){
   httpHelper.writeCreatePromiseJSONResultToResponse(createPromise, response);
 }
 
+function createClassifications(req, response, next){
+  var project_id = projectIdProvider.getProjectId(null, req);
+  var bulkParams = {
+    classifications: req.swagger.params.newClassifications.value.classifications.map(function(newClassification){
+      return {
+        additional: newClassification.additional,
+        classificationTarget: newClassification.classificationTarget,
+        description: newClassification.description,
+        name: newClassification.name,
+        type: newClassification.type
+      };
+    }),
+    project_id: project_id
+  };
+  logger.info(function(){return 'Creating '+bulkParams.classifications.length+' Classifications for project: '+ project_id;});
+  var createPromise = classificationsModel.createClassifications(bulkParams);
+  httpHelper.writePromiseJSONResultToResponse(createPromise, response);
+}
+
 function deleteClassification(req, response, next){
   var project_id = projectIdProvider.getProjectId(null, req);
   var deleteParams = {
@@ -75,6 +96,17 @@ function getClassifications(req, response, next){
   httpHelper.writePromiseJSONResultToResponse(getPromise, response);
 }
 
+function getClassificationsByIds(req, response, next){
+  var project_id = projectIdProvider.getProjectId(null, req);
+  var getParams = {
+    ids: req.swagger.params.ids.value,
+    project_id: project_id
+  };
+  logger.info(function(){return 'Retrieving Classifications using parameters: '+ JSON.stringify(getParams);});
+  var getPromise = classificationsModel.getClassifications(getParams);
+  httpHelper.writePromiseJSONResultToResponse(getPromise, response);
+}
+
 function updateClassification(req, response, next){
   var project_id = projectIdProvider.getProjectId(null, req);
   var updateParams = {
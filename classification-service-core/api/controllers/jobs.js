@@ -0,0 +1,31 @@
+/*
+ * Copyright 2015-2017 EntIT Software LLC, a Micro Focus company.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+var logger = require('../logging/logging.js');
+var httpHelper = require('../helpers/httpPromiseHelper.js');
+var jobs = require('../libs/jobs.js');
+var projectIdProvider = require('../libs/projectIdProvider.js');
+
+module.exports = {
+  getJob: getJob
+};
+
+function getJob(req, response, next){
+  var project_id = projectIdProvider.getProjectId(null, req);
+  var jobId = req.swagger.params.jobId.value;
+  logger.info(function(){return 'Retrieving Job with ID: '+ jobId;});
+  var getPromise = jobs.getWithValidate(project_id, jobId);
+  httpHelper.writePromiseJSONResultToResponse(getPromise, response);
+}
@@ -13,16 +13,23 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
+var util = require('util');
 var logger = require('../logging/logging.js');
+var errorResponseHelper = require('../models/errors/errorResponse.js');
 var httpHelper = require('../helpers/httpPromiseHelper.js');
 var projectIdProvider = require('../libs/projectIdProvider.js');
+var termExportModel = require('../models/termExport.js');
+var termImportHelper = require('../helpers/termImportHelper.js');
+var termImportModel = require('../models/termImport.js');
 var termsModel = require('../models/terms.js');
 
 module.exports = {
   deleteTerm: deleteTerm,
   deleteTerms: deleteTerms,
+  exportTerms: exportTerms,
   getTerm: getTerm,
   getTerms: getTerms,
+  importTerms: importTerms,
   updateTerm: updateTerm,
   updateTerms: updateTerms
 };
@@ -51,6 +58,30 @@ function deleteTerms(req, response, next){
   httpHelper.writeDeletePromiseJSONResultToResponse(deletePromise, response);
 }
 
+//streams all Terms on the Term List as newline delimited JSON. Once the response has started an error can no longer be reported
+//with a status code, so the connection is closed instead to show the client that the export is incomplete.
+function exportTerms(req, response, next){
+  var project_id = projectIdProvider.getProjectId(null, req);
+  var exportParams = {
+    project_id: project_id,
+    termListId: req.swagger.params.termListId.value
+  };
+  logger.info(function(){return 'Exporting Terms using parameters: '+ JSON.stringify(exportParams);});
+  termExportModel.exportTerms(exportParams)
+  .then(function(termStream){
+    response.status(200);
+    response.set('Content-Type', 'application/x-ndjson');
+    termStream.on('error', function(errorResponse){
+      logger.error("Error exporting Terms from Term List "+exportParams.termListId+", closing response: "+util.inspect(errorResponse));
+      response.destroy();
+    });
+    termStream.pipe(response);
+  })
+  .fail(function(errorResponse){
+    errorResponseHelper.writeErrorToResponseJSON(errorResponse, response);
+  }).done();
+}
+
 function getTerm(req, response, next){
   var project_id = projectIdProvider.getProjectId(null, req);
   var getTermParams = {
@@ -76,6 +107,19 @@ function getTerms(req, response, next){
   httpHelper.writePromiseJSONResultToResponse(getPromise, response);
 }
 
+//reads Terms from the request body as they arrive, responding once the import has started with a job that can be used to check its progress
+function importTerms(req, response, next){
+  var project_id = projectIdProvider.getProjectId(null, req);
+  var importParams = {
+    format: termImportHelper.getFormatFromContentType(req.get('Content-Type')),
+    project_id: project_id,
+    termListId: req.swagger.params.termListId.value
+  };
+  logger.info(function(){return 'Importing Terms using parameters: '+ JSON.stringify(importParams);});
+  var importPromise = termImportModel.importTerms(importParams, req);
+  httpHelper.writePromiseJSONResultToResponse(importPromise, response, 202);
+}
+
 function updateTerm(req, response, next){
   var project_id = projectIdProvider.getProjectId(null, req);
   var updateParams = {
@@ -13,16 +13,26 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
+var util = require('util');
 var logger = require('../logging/logging.js');
+var errorResponseHelper = require('../models/errors/errorResponse.js');
 var workflowModel = require('../models/workflow.js');
+var workflowDeleteModel = require('../models/workflowDelete.js');
+var workflowExpandedModel = require('../models/workflowExpanded.js');
+var workflowExportModel = require('../models/workflowExport.js');
+var workflowImportModel = require('../models/workflowImport.js');
 var httpHelper = require('../helpers/httpPromiseHelper.js');
 var projectIdProvider = require('../libs/projectIdProvider.js');
 
 module.exports = {
   createWorkflow: createWorkflow,
+  createWorkflowDeleteJob: createWorkflowDeleteJob,
   deleteWorkflow: deleteWorkflow,
+  exportWorkflow: exportWorkflow,
+  getExpandedWorkflow: getExpandedWorkflow,
   getWorkflow: getWorkflow,
   getWorkflows: getWorkflows,
+  importWorkflow: importWorkflow,
   updateWorkflow: updateWorkflow
 };
 
@@ -40,6 +50,19 @@ function createWorkflow(req, response, next){
   httpHelper.writeCreatePromiseJSONResultToResponse(createPromise, response);
 }
 
+//the Workflow and everything on it is deleted in the background, responds with the job tracking the deletion
+function createWorkflowDeleteJob(req, response, next){
+  var project_id = projectIdProvider.getProjectId(null, req);
+  
+  var deleteWorkflowParams = {
+    id: req.swagger.params.id.value,
+    project_id: project_id
+  };
+  logger.info(function(){return 'Starting delete of Workflow with its Classification Rules using parameters: '+ JSON.stringify(deleteWorkflowParams);});
+  var deleteJobPromise = workflowDeleteModel.deleteWorkflow(deleteWorkflowParams);
+  httpHelper.writePromiseJSONResultToResponse(deleteJobPromise, response, 202);
+}
+
 function deleteWorkflow(req, response, next){
   var project_id = projectIdProvider.getProjectId(null, req);
   
@@ -52,6 +75,41 @@ function deleteWorkflow(req, response, next){
   httpHelper.writeDeletePromiseJSONResultToResponse(deletePromise, response);
 }
 
+function exportWorkflow(req, response, next){
+  var project_id = projectIdProvider.getProjectId(null, req);
+  
+  var exportParams = {
+    id: req.swagger.params.id.value,
+    project_id: project_id
+  };
+  logger.info(function(){return 'Exporting Workflow using parameters: '+ JSON.stringify(exportParams);});
+  workflowExportModel.exportWorkflow(exportParams)
+  .then(function(exportStream){
+    response.status(200);
+    response.set('Content-Type', 'application/json');
+    exportStream.on('error', function(errorResponse){
+      logger.error("Error exporting Workflow "+exportParams.id+", closing response: "+util.inspect(errorResponse));
+      response.destroy();
+    });
+    exportStream.pipe(response);
+  })
+  .fail(function(errorResponse){
+    errorResponseHelper.writeErrorToResponseJSON(errorResponse, response);
+  }).done();
+}
+
+function getExpandedWorkflow(req, response, next){
+  var project_id = projectIdProvider.getProjectId(null, req);
+  
+  var getWorkflowParams = {
+    id: req.swagger.params.id.value,
+    project_id: project_id
+  };
+  logger.info(function(){return 'Retrieving expanded Workflow using parameters: '+ JSON.stringify(getWorkflowParams);});
+  var getPromise = workflowExpandedModel.get(getWorkflowParams);
+  httpHelper.writePromiseJSONResultToResponse(getPromise, response);
+}
+
 function getWorkflow(req, response, next){
   var project_id = projectIdProvider.getProjectId(null, req);
   
@@ -76,6 +134,18 @@ function getWorkflows(req, response, next){
   httpHelper.writePromiseJSONResultToResponse(getPromise, response);
 }
 
+function importWorkflow(req, response, next){
+  var project_id = projectIdProvider.getProjectId(null, req);
+  
+  var importParams = {
+    importDocument: req.swagger.params.workflowDefinition.value,
+    project_id: project_id
+  };
+  logger.info(function(){return 'Importing Workflow with name: '+ importParams.importDocument.workflow.name + ' for project: '+project_id;});
+  var importPromise = workflowImportModel.importWorkflow(importParams);
+  httpHelper.writeCreatePromiseJSONResultToResponse(importPromise, response);
+}
+
 function updateWorkflow(req, response, next){
   var project_id = projectIdProvider.getProjectId(null, req);
   
@@ -52,7 +52,49 @@ module.exports = function create(fittingDef, pipes) {
   };
 };
 
+//separators between items of array parameters for each swagger collectionFormat that is passed as a single value
+var collectionFormatSeparators = {
+  csv: ',',
+  ssv: ' ',
+  tsv: '\t',
+  pipes: '|'
+};
+
+var isInt64Schema = function(schema){
+  return schema!==undefined && schema!==null && schema.format === 'int64' && (schema.type === 'integer' || schema.type === 'number');
+};
+
+//replaces any items of an array parameter that lost precision when parsed with BigNumber representations of the original values
+function handleArrayParameter(requestParameter){
+  if(!Array.isArray(requestParameter.value) || requestParameter.originalValue===undefined || requestParameter.originalValue===null){
+    return;
+  }
+  var originalItems = requestParameter.originalValue;
+  if(!Array.isArray(originalItems)){
+    var separator = collectionFormatSeparators[requestParameter.schema.collectionFormat === undefined ? 'csv' : requestParameter.schema.collectionFormat];
+    if(separator===undefined){
+      return;
+    }
+    originalItems = String(originalItems).split(separator);
+  }
+  if(originalItems.length !== requestParameter.value.length){
+    return;
+  }
+  for(var itemIndex = 0; itemIndex < originalItems.length; itemIndex++){
+    var originalItem = String(originalItems[itemIndex]).trim();
+    var item = requestParameter.value[itemIndex];
+    if(item === undefined || item === null || item.toString() === originalItem){
+      continue;
+    }
+    requestParameter.value[itemIndex] = new BigNumber(originalItem);
+  }
+}
+
 function handleParameter(requestParameter){  
+  if(requestParameter.schema!==undefined && requestParameter.schema.type === 'array' && isInt64Schema(requestParameter.schema.items)){
+    handleArrayParameter(requestParameter);
+    return;
+  }
   //only perform this on params with schema set to format of int64 and type integer/number
   if(requestParameter.schema==undefined || requestParameter.schema.type == undefined || requestParameter.schema.format !== 'int64' || !(requestParameter.schema.type === 'integer' || requestParameter.schema.format === 'number')){
     return;
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2015-2017 EntIT Software LLC, a Micro Focus company.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+//circuit breaker that tracks the outcome of calls to a dependency over a rolling window and fails calls fast once the error rate passes a threshold.
+var logger = require('../logging/logging.js');
+
+const CLOSED = 'CLOSED';
+const OPEN = 'OPEN';
+const HALF_OPEN = 'HALF_OPEN';
+
+module.exports = {
+  CLOSED: CLOSED,
+  HALF_OPEN: HALF_OPEN,
+  OPEN: OPEN,
+  create: create
+};
+
+//number of buckets the rolling window is divided into
+var bucketCount = 10;
+
+//creates a circuit breaker. Options object should have the properties;
+//errorThreshold    - percentage of failed calls in the window at which the breaker opens
+//minimumRequests   - minimum number of calls in the window before the breaker may open
+//window            - length of the rolling window in milliseconds
+//resetTimeout      - time in milliseconds the breaker stays open before a trial call is allowed through
+function create(name, options){
+  var state = CLOSED;
+  var openedAt = null;
+  var trialInProgress = false;
+  var bucketLength = Math.max(Math.ceil(options.window / bucketCount), 1);
+  var buckets = [];
+  var timesOpened = 0;
+
+  var getCurrentBucket = function(now){
+    var bucketStart = now - (now % bucketLength);
+    var currentBucket = buckets.length > 0 ? buckets[buckets.length - 1] : null;
+    if(currentBucket === null || currentBucket.start !== bucketStart){
+      currentBucket = {
+        start: bucketStart,
+        successes: 0,
+        failures: 0
+      };
+      buckets.push(currentBucket);
+    }
+    //drop buckets that have moved outside the window
+    while(buckets.length > 0 && buckets[0].start <= now - options.window){
+      buckets.shift();
+    }
+    return currentBucket;
+  };
+
+  var getWindowTotals = function(now){
+    getCurrentBucket(now);
+    var totals = {
+      successes: 0,
+      failures: 0
+    };
+    for(var bucket of buckets){
+      totals.successes += bucket.successes;
+      totals.failures += bucket.failures;
+    }
+    return totals;
+  };
+
+  var changeState = function(newState){
+    if(state === newState){
+      return;
+    }
+    logger.info("Circuit breaker for "+name+" changing state from "+state+" to "+newState);
+    state = newState;
+    if(newState === OPEN){
+      openedAt = Date.now();
+      timesOpened++;
+    }
+    if(newState === CLOSED){
+      buckets = [];
+    }
+  };
+
+  return {
+    //returns true if a call should be made to the dependency. When half open only a single trial call is allowed through.
+    allowRequest: function(){
+      if(state === OPEN && Date.now() - openedAt >= options.resetTimeout){
+        changeState(HALF_OPEN);
+        trialInProgress = false;
+      }
+      if(state === CLOSED){
+        return true;
+      }
+      if(state === HALF_OPEN && !trialInProgress){
+        trialInProgress = true;
+        return true;
+      }
+      return false;
+    },
+    getState: function(){
+      //report that a trial call would now be allowed rather than waiting for the next call to move the state on
+      if(state === OPEN && Date.now() - openedAt >= options.resetTimeout){
+        return HALF_OPEN;
+      }
+      return state;
+    },
+    getStatistics: function(){
+      var totals = getWindowTotals(Date.now());
+      return {
+        state: this.getState(),
+        windowSuccesses: totals.successes,
+        windowFailures: totals.failures,
+        timesOpened: timesOpened
+      };
+    },
+    recordFailure: function(){
+      if(state === HALF_OPEN){
+        trialInProgress = false;
+        changeState(OPEN);
+        return;
+      }
+      var now = Date.now();
+      getCurrentBucket(now).failures++;
+      if(state !== CLOSED){
+        return;
+      }
+      var totals = getWindowTotals(now);
+      var totalRequests = totals.successes + totals.failures;
+      if(totalRequests >= options.minimumRequests &&
+        (totals.failures / totalRequests) * 100 >= options.errorThreshold){
+        changeState(OPEN);
+      }
+    },
+    recordSuccess: function(){
+      if(state === HALF_OPEN){
+        trialInProgress = false;
+        changeState(CLOSED);
+        return;
+      }
+      getCurrentBucket(Date.now()).successes++;
+    }
+  };
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2015-2017 EntIT Software LLC, a Micro Focus company.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+//helper to run asynchronous operations on a set of items in parallel while limiting how many are in progress at one time.
+var Q = require('q');
+
+module.exports = {
+  settleWithConcurrency: settleWithConcurrency
+};
+
+//calls 'taskFunction' for each item, passing the item and its index, with at most 'limit' of the returned promises unsettled at one time.
+//Returns a promise resolving once every task has settled with an array, in the same order as the items, of the outcome of each task
+//in the same form as Q.allSettled i.e. {state: 'fulfilled', value: result} or {state: 'rejected', reason: error}. A task throwing is treated as it rejecting.
+function settleWithConcurrency(items, limit, taskFunction){
+  var deferredSettle = Q.defer();
+  var outcomes = new Array(items.length);
+  var nextIndex = 0;
+  var inProgress = 0;
+  var settledCount = 0;
+  var maxInProgress = limit > 0 ? limit : 1;
+
+  if(items.length === 0){
+    deferredSettle.resolve(outcomes);
+    return deferredSettle.promise;
+  }
+
+  var startNext = function(){
+    while(inProgress < maxInProgress && nextIndex < items.length){
+      var itemIndex = nextIndex++;
+      inProgress++;
+      runTask(itemIndex);
+    }
+  };
+
+  var recordOutcome = function(itemIndex, outcome){
+    outcomes[itemIndex] = outcome;
+    inProgress--;
+    settledCount++;
+    if(settledCount === items.length){
+      deferredSettle.resolve(outcomes);
+      return;
+    }
+    startNext();
+  };
+
+  var runTask = function(itemIndex){
+    Q().then(function(){
+      return taskFunction(items[itemIndex], itemIndex);
+    })
+    .then(function(result){
+      recordOutcome(itemIndex, {
+        state: 'fulfilled',
+        value: result
+      });
+    }, function(errorResponse){
+      recordOutcome(itemIndex, {
+        state: 'rejected',
+        reason: errorResponse
+      });
+    }).done();
+  };
+
+  startNext();
+  return deferredSettle.promise;
+}
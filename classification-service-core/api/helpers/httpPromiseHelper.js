@@ -30,12 +30,26 @@ module.exports = {
 //generic success callback for deferred promises that return HTTP responses.
 //deferrred - the deferred object to call rseolve or reject on based on resultObject
 //extractFunction - Optional. A function to pass the JSON parsed from the result body to for further extraction before resolve is called
+//If the body cannot be parsed as JSON or the extract function throws then the deferred is rejected.
 function handlePotentialSuccess(deferred, extractFunction){
   return function(response, responseBody){
-    var resultObject = JSON.parse(responseBody);
+    var resultObject;
+    try{
+      resultObject = JSON.parse(responseBody);
+    }
+    catch(parseError){
+      deferred.reject(errorResponseHelper.create("Unable to parse response as JSON. Status code: "+response.statusCode+". "+parseError.message,
+        response.statusCode >= 200 && response.statusCode <=299 ? 500 : response.statusCode));
+      return;
+    }
     if(response.statusCode >= 200 && response.statusCode <=299){
       if(typeof(extractFunction)==='function'){
-        deferred.resolve(extractFunction(resultObject));
+        try{
+          deferred.resolve(extractFunction(resultObject));
+        }
+        catch(extractError){
+          deferred.reject(errorResponseHelper.create(extractError));
+        }
       }
       else{
         deferred.resolve(resultObject);
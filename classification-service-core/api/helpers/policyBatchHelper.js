@@ -0,0 +1,191 @@
+/*
+ * Copyright 2015-2017 EntIT Software LLC, a Micro Focus company.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+//combines retrieves of single items by ID made in the same turn of the event loop into a single Policy API retrieve for multiple IDs.
+var Q = require('q');
+var policyConfig = require('../config/policyConfig.js').policyConfig;
+var policyHttpHelper = require('./policyHttpHelper.js');
+var logger = require('../logging/logging.js');
+
+module.exports = {
+  getItem: getItem,
+  getStatistics: getStatistics
+};
+
+//batches waiting to be sent keyed on path, project, type and additional parameters
+var pendingBatches = {};
+var batchStats = {
+  batchedRequestsSent: 0,
+  failedBatchedRequests: 0,
+  individualRequestsSent: 0,
+  itemsRequested: 0
+};
+//reasons and messages Policy API responds with when an ID in a multiple ID retrieve does not exist, for the types retrieved through this helper
+var notFoundResponses = [
+  "Could not return conditions for all ids",
+  "Could not return items for all ids",
+  "Could not retrieve Policy"
+];
+
+//returns whether the error from a multiple ID retrieve indicates that one of the IDs was not found, rather than a failure of Policy API itself
+var isNotFoundResponse = function(errorResponse){
+  if(errorResponse===undefined || errorResponse===null || !errorResponse.response){
+    return false;
+  }
+  return notFoundResponses.indexOf(errorResponse.response.reason) !== -1 ||
+    notFoundResponses.indexOf(errorResponse.response.message) !== -1;
+};
+
+//requests each ID in the batch individually. Used when there is only one ID in the batch or when a multiple ID retrieve fails because an ID was not found so that each caller receives the error for their own ID
+var sendIndividualRequests = function(batch){
+  Object.keys(batch.waiters).forEach(function(idKey){
+    var waiters = batch.waiters[idKey];
+    batchStats.individualRequestsSent++;
+    var itemParams = buildItemParams(batch, waiters[0].id);
+    policyHttpHelper.genericPolicyAPIGetItemRequest(batch.path, itemParams)
+    .then(function(retrievedItem){
+      for(var waiter of waiters){
+        waiter.deferred.resolve(retrievedItem);
+      }
+    })
+    .fail(function(errorResponse){
+      for(var waiter of waiters){
+        waiter.deferred.reject(errorResponse);
+      }
+    }).done();
+  });
+};
+
+var buildItemParams = function(batch, id){
+  var itemParams = {
+    project_id: batch.projectId,
+    type: batch.type,
+    id: id
+  };
+  if(batch.additional!==undefined && batch.additional!==null){
+    itemParams.additional = batch.additional;
+  }
+  return itemParams;
+};
+
+var sendBatch = function(batch){
+  var idKeys = Object.keys(batch.waiters);
+  if(idKeys.length === 1){
+    //nothing to combine, retrieve as a single item
+    sendIndividualRequests(batch);
+    return;
+  }
+  var ids = idKeys.map(function(idKey){
+    return batch.waiters[idKey][0].id;
+  });
+  logger.debug(function(){return "Retrieving "+ids.length+" items of type '"+batch.type+"' in a single request. IDs: "+ids;});
+  batchStats.batchedRequestsSent++;
+  policyHttpHelper.genericPolicyAPIGetItemsRequest(batch.path, buildItemParams(batch, ids))
+  .then(function(retrieveResult){
+    var retrievedItems = {};
+    if(retrieveResult.results){
+      for(var retrievedItem of retrieveResult.results){
+        retrievedItems[String(retrievedItem.id)] = retrievedItem;
+      }
+    }
+    idKeys.forEach(function(idKey){
+      var waiters = batch.waiters[idKey];
+      var matchedItem = retrievedItems[idKey];
+      for(var waiterIndex = 0; waiterIndex < waiters.length; waiterIndex++){
+        if(matchedItem === undefined){
+          waiters[waiterIndex].deferred.resolve(null);
+        }
+        //each caller receives its own copy of the item so that it may be modified independently of the other callers
+        else {
+          waiters[waiterIndex].deferred.resolve(waiterIndex === 0 ? matchedItem : JSON.parse(JSON.stringify(matchedItem)));
+        }
+      }
+    });
+  })
+  .fail(function(errorResponse){
+    batchStats.failedBatchedRequests++;
+    //any other failure would fail the individual requests too, pass it to every caller rather than adding a request per ID to a struggling Policy API
+    if(!isNotFoundResponse(errorResponse)){
+      idKeys.forEach(function(idKey){
+        for(var waiter of batch.waiters[idKey]){
+          waiter.deferred.reject(errorResponse);
+        }
+      });
+      return;
+    }
+    //Policy API fails the whole request if any ID is not found, retry each ID on its own so the callers receive the correct result
+    logger.debug(function(){return "Retrieve of multiple items of type '"+batch.type+"' failed, retrieving each ID individually. "+JSON.stringify(errorResponse);});
+    sendIndividualRequests(batch);
+  }).done();
+};
+
+var flushBatch = function(batchKey){
+  var batch = pendingBatches[batchKey];
+  delete pendingBatches[batchKey];
+  if(batch!==undefined){
+    sendBatch(batch);
+  }
+};
+
+//retrieves a single item of the specified type by ID. The retrieve is combined with any others made for the same path, project, type and 'additional' parameters before the next turn of the event loop.
+//Resolves with the item retrieved, or null if no match was returned, in the same way as policyHttpHelper.genericPolicyAPIGetItemRequest. Returns a promise.
+function getItem(path, projectId, type, id, additional){
+  var deferredGet = Q.defer();
+  batchStats.itemsRequested++;
+  var batchKey = path + "?" + JSON.stringify({
+    project_id: projectId,
+    type: type,
+    additional: additional
+  });
+  var batch = pendingBatches[batchKey];
+  if(batch === undefined){
+    batch = {
+      additional: additional,
+      idCount: 0,
+      path: path,
+      projectId: projectId,
+      type: type,
+      waiters: {}
+    };
+    pendingBatches[batchKey] = batch;
+    setImmediate(function(){
+      if(pendingBatches[batchKey] === batch){
+        flushBatch(batchKey);
+      }
+    });
+  }
+  var idKey = String(id);
+  if(batch.waiters[idKey]===undefined){
+    batch.waiters[idKey] = [];
+    batch.idCount++;
+  }
+  batch.waiters[idKey].push({
+    deferred: deferredGet,
+    id: id
+  });
+  if(batch.idCount >= policyConfig.maxBatchSize){
+    flushBatch(batchKey);
+  }
+  return deferredGet.promise;
+}
+
+function getStatistics(){
+  return {
+    batchedRequestsSent: batchStats.batchedRequestsSent,
+    failedBatchedRequests: batchStats.failedBatchedRequests,
+    individualRequestsSent: batchStats.individualRequestsSent,
+    itemsRequested: batchStats.itemsRequested
+  };
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2015-2017 EntIT Software LLC, a Micro Focus company.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+//read-through cache for items retrieved from Policy API. Entries are keyed by project ID, Policy API type and item ID.
+//Each worker holds its own cache, invalidations are broadcast to the other workers so that writes handled by one worker are seen by all.
+var Q = require('q');
+var NodeCache = require('node-cache');
+var appConfig = require('../config/classificationServiceConfig.js');
+var clusterManager = require('../libs/clusterManager.js');
+var logger = require('../logging/logging.js');
+
+module.exports = {
+  delete: deleteItem,
+  flushType: flushType,
+  get: get,
+  getStatistics: getStatistics,
+  invalidateOnSettle: invalidateOnSettle,
+  readThrough: readThrough,
+  set: set
+};
+
+//name of the message broadcast to other workers when cached items are invalidated
+const CACHE_INVALIDATION = 'policyCacheInvalidation';
+
+var cachingEnabled = appConfig.cacheMaxKeys > 0;
+
+//entries are cloned on get and set so callers modifying a retrieved item do not change the cached version
+var policyCache = new NodeCache({
+  stdTTL: appConfig.cacheDuration,
+  checkperiod: appConfig.cacheDuration > 0 ? Math.max(Math.ceil(appConfig.cacheDuration / 2), 1) : 0,
+  useClones: true
+});
+
+//tracks the keys currently in the cache in insertion order so that the oldest entry can be evicted when the size limit is reached
+var cachedKeys = new Map();
+//incremented each time a project and type are invalidated, allows discarding results of retrieves that were in flight during a write
+var generations = {};
+
+var cacheStats = {
+  hits: 0,
+  misses: 0,
+  sets: 0,
+  evictions: 0,
+  invalidations: 0,
+  byType: {}
+};
+
+policyCache.on('expired', function(key){
+  cachedKeys.delete(key);
+});
+policyCache.on('del', function(key){
+  cachedKeys.delete(key);
+});
+
+var buildTypePrefix = function(projectId, type){
+  return encodeURIComponent(projectId) + ":" + type + ":";
+};
+
+var buildItemPrefix = function(projectId, type, id){
+  return buildTypePrefix(projectId, type) + String(id) + ":";
+};
+
+//variant distinguishes different forms of the same item e.g. a Condition retrieved with and without its children
+var buildCacheKey = function(projectId, type, id, variant){
+  return buildItemPrefix(projectId, type, id) + (variant === undefined || variant === null ? "" : variant);
+};
+
+var getGeneration = function(projectId, type){
+  var generation = generations[buildTypePrefix(projectId, type)];
+  return generation === undefined ? 0 : generation;
+};
+
+var incrementGeneration = function(projectId, type){
+  var typePrefix = buildTypePrefix(projectId, type);
+  generations[typePrefix] = getGeneration(projectId, type) + 1;
+};
+
+var getTypeStats = function(type){
+  var typeStats = cacheStats.byType[type];
+  if(typeStats === undefined){
+    typeStats = {
+      hits: 0,
+      misses: 0
+    };
+    cacheStats.byType[type] = typeStats;
+  }
+  return typeStats;
+};
+
+//removes all cached keys starting with the prefix provided
+var deleteKeysWithPrefix = function(keyPrefix){
+  var keysToDelete = [];
+  cachedKeys.forEach(function(value, key){
+    if(key.indexOf(keyPrefix) === 0){
+      keysToDelete.push(key);
+    }
+  });
+  if(keysToDelete.length > 0){
+    policyCache.del(keysToDelete);
+  }
+  return keysToDelete.length;
+};
+
+//returns the cached item for the parameters provided or undefined if there is no entry in the cache.
+function get(projectId, type, id, variant){
+  if(!cachingEnabled){
+    return undefined;
+  }
+  var cachedItem = policyCache.get(buildCacheKey(projectId, type, id, variant));
+  var typeStats = getTypeStats(type);
+  if(cachedItem === undefined){
+    cacheStats.misses++;
+    typeStats.misses++;
+  }
+  else {
+    cacheStats.hits++;
+    typeStats.hits++;
+  }
+  return cachedItem;
+}
+
+//adds an item to the cache. Null or undefined items are not cached. If the cache is at its size limit the oldest entry is evicted.
+function set(projectId, type, id, variant, item){
+  if(!cachingEnabled || item === null || item === undefined){
+    return;
+  }
+  var key = buildCacheKey(projectId, type, id, variant);
+  cachedKeys.delete(key);
+  cachedKeys.set(key, true);
+  policyCache.set(key, item);
+  cacheStats.sets++;
+  while(cachedKeys.size > appConfig.cacheMaxKeys){
+    var oldestKey = cachedKeys.keys().next().value;
+    cachedKeys.delete(oldestKey);
+    policyCache.del(oldestKey);
+    cacheStats.evictions++;
+  }
+}
+
+var deleteItemLocally = function(projectId, type, id){
+  incrementGeneration(projectId, type);
+  var ids = Array.isArray(id) ? id : [id];
+  for(var idToDelete of ids){
+    cacheStats.invalidations += deleteKeysWithPrefix(buildItemPrefix(projectId, type, idToDelete));
+  }
+};
+
+var flushTypeLocally = function(projectId, type){
+  incrementGeneration(projectId, type);
+  cacheStats.invalidations += deleteKeysWithPrefix(buildTypePrefix(projectId, type));
+};
+
+clusterManager.registerBroadcastHandler(CACHE_INVALIDATION, function(invalidation){
+  if(!cachingEnabled){
+    return;
+  }
+  if(invalidation.id === undefined || invalidation.id === null){
+    flushTypeLocally(invalidation.projectId, invalidation.type);
+  }
+  else {
+    deleteItemLocally(invalidation.projectId, invalidation.type, invalidation.id);
+  }
+});
+
+//removes all cached forms of the item with the specified ID, in this worker and all other workers.
+function deleteItem(projectId, type, id){
+  if(!cachingEnabled){
+    return;
+  }
+  deleteItemLocally(projectId, type, id);
+  clusterManager.broadcast(CACHE_INVALIDATION, {
+    id: id,
+    projectId: projectId,
+    type: type
+  });
+}
+
+//removes all cached items of the specified type for a project, in this worker and all other workers. Used where a write may affect other items of the same type e.g. updating a child Condition changes the children returned on its parent.
+function flushType(projectId, type){
+  if(!cachingEnabled){
+    return;
+  }
+  flushTypeLocally(projectId, type);
+  clusterManager.broadcast(CACHE_INVALIDATION, {
+    projectId: projectId,
+    type: type
+  });
+}
+
+//returns the cached item if present, otherwise calls the passed retrieve function (which should return a promise) and caches the result. Returns a promise.
+function readThrough(projectId, type, id, variant, retrieveFunction){
+  var cachedItem = get(projectId, type, id, variant);
+  if(cachedItem !== undefined){
+    logger.debug(function(){return "Returning cached "+type+" with ID: "+id;});
+    return Q(cachedItem);
+  }
+  var generationAtRetrieve = getGeneration(projectId, type);
+  var retrievePromise = retrieveFunction();
+  return retrievePromise.then(function(retrievedItem){
+    //only cache the result if no write to this type occurred while the retrieve was in progress
+    if(generationAtRetrieve === getGeneration(projectId, type)){
+      set(projectId, type, id, variant, retrievedItem);
+    }
+    return retrievedItem;
+  });
+}
+
+//calls the passed invalidate function once the write promise provided completes, whether it succeeded or failed (a failed write may still have been partially applied). Returns the write promise.
+function invalidateOnSettle(writePromise, invalidateFunction){
+  writePromise.then(invalidateFunction, invalidateFunction).done();
+  return writePromise;
+}
+
+function getStatistics(){
+  return {
+    enabled: cachingEnabled,
+    duration: appConfig.cacheDuration,
+    maxKeys: appConfig.cacheMaxKeys,
+    keys: cachedKeys.size,
+    hits: cacheStats.hits,
+    misses: cacheStats.misses,
+    sets: cacheStats.sets,
+    evictions: cacheStats.evictions,
+    invalidations: cacheStats.invalidations,
+    byType: cacheStats.byType
+  };
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2015-2017 EntIT Software LLC, a Micro Focus company.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+//a pooled keep-alive agent shared by all requests to Policy API so that connections are reused rather than opened per request.
+var http = require('http');
+var policyConfig = require('../config/policyConfig.js').policyConfig;
+var logger = require('../logging/logging.js');
+
+module.exports = {
+  getAgent: getAgent,
+  getStatistics: getStatistics,
+  trackRequest: trackRequest
+};
+
+var agent = new http.Agent({
+  keepAlive: true,
+  maxSockets: policyConfig.maxSockets,
+  maxFreeSockets: policyConfig.maxFreeSockets
+});
+
+var socketStats = {
+  socketsCreated: 0,
+  socketsClosed: 0,
+  requestsOnNewSockets: 0,
+  requestsOnReusedSockets: 0,
+  idleTimeouts: 0
+};
+
+//sockets returned to the pool are closed if they remain unused for longer than the configured idle timeout
+agent.on('free', function(socket){
+  socket.setTimeout(policyConfig.socketIdleTimeout);
+});
+
+function getAgent(){
+  return agent;
+}
+
+//records whether the passed request was assigned a new socket or one reused from the pool
+function trackRequest(policyApiRequest){
+  policyApiRequest.on('socket', function(socket){
+    //clear any idle timeout set while the socket was in the pool
+    socket.setTimeout(0);
+    if(socket.policyPoolTracked === true){
+      socketStats.requestsOnReusedSockets++;
+      return;
+    }
+    socket.policyPoolTracked = true;
+    socketStats.socketsCreated++;
+    socketStats.requestsOnNewSockets++;
+    socket.on('timeout', function(){
+      //only sockets idle in the pool have a timeout set, safe to close
+      socketStats.idleTimeouts++;
+      logger.debug("Closing idle socket to Policy API.");
+      socket.destroy();
+    });
+    socket.once('close', function(){
+      socketStats.socketsClosed++;
+    });
+  });
+}
+
+//sums the number of entries for each host on one of the agent's socket/request maps
+var countEntries = function(agentMap){
+  var total = 0;
+  Object.keys(agentMap).forEach(function(key){
+    total += agentMap[key].length;
+  });
+  return total;
+};
+
+//returns details on the current state of the pool and the sockets opened over the life of the service
+function getStatistics(){
+  return {
+    maxSockets: policyConfig.maxSockets,
+    maxFreeSockets: policyConfig.maxFreeSockets,
+    socketIdleTimeout: policyConfig.socketIdleTimeout,
+    activeSockets: countEntries(agent.sockets),
+    freeSockets: countEntries(agent.freeSockets),
+    queuedRequests: countEntries(agent.requests),
+    socketsCreated: socketStats.socketsCreated,
+    socketsClosed: socketStats.socketsClosed,
+    requestsOnNewSockets: socketStats.requestsOnNewSockets,
+    requestsOnReusedSockets: socketStats.requestsOnReusedSockets,
+    idleTimeouts: socketStats.idleTimeouts
+  };
+}
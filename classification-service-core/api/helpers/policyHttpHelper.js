@@ -17,20 +17,55 @@ var Q = require('q');
 var http = require('http');
 var querystring = require('querystring');
 var policyConfig = require('../config/policyConfig.js').policyConfig;
+var circuitBreaker = require('./circuitBreaker.js');
+var metrics = require('../libs/metrics.js');
 var logger = require('../logging/logging.js');
+var policyHttpAgent = require('./policyHttpAgent.js');
+var policyRequestQueue = require('./policyRequestQueue.js');
 var promiseHelper = require('./httpPromiseHelper.js');
+var requestTrace = require('../libs/requestTrace.js');
 var strUtils = require('../libs/stringUtils.js');
 
 module.exports = {
   genericPolicyAPIGetItemRequest: genericPolicyAPIGetItemRequest,
   genericPolicyAPIGetItemsRequest: genericPolicyAPIGetItemsRequest,
   genericPolicyAPIPostItemRequest: genericPolicyAPIPostItemRequest,
+  getCircuitBreakerState: getCircuitBreakerState,
+  getStatistics: getStatistics,
   getVersion: getVersion,
   healthCheck: healthCheck,
   policyAPIPostRequest: policyAPIPostRequest,
   policyAPIGetRequest:  policyAPIGetRequest
 };
 
+//GET requests currently in progress keyed on path and parameters, identical requests made while one is in progress wait on its response rather than issuing another
+var inFlightGetRequests = {};
+var requestStats = {
+  coalescedGetRequests: 0,
+  getRequestsSent: 0,
+  retries: 0,
+  timeouts: 0,
+  rejectedByCircuitBreaker: 0
+};
+
+//fails requests fast without contacting Policy API once it has been failing for a proportion of recent requests
+var policyCircuitBreaker = circuitBreaker.create('Policy API', {
+  errorThreshold: policyConfig.circuitBreakerErrorThreshold,
+  minimumRequests: policyConfig.circuitBreakerMinimumRequests,
+  resetTimeout: policyConfig.circuitBreakerResetTimeout,
+  window: policyConfig.circuitBreakerWindow
+});
+
+var policyRequestDuration = metrics.createHistogram("classification_policy_api_request_duration_seconds",
+  "Time taken for requests to Policy API to complete, by path and type of item. Does not include time spent queued.", ["path", "method", "type"]);
+var policyRequestCount = metrics.createCounter("classification_policy_api_requests_total",
+  "Number of requests made to Policy API, by path, type of item and status code. Status is 'error' for requests that failed without a response.", ["path", "method", "type", "status"]);
+
+//status codes that indicate Policy API (or a proxy in front of it) is unavailable rather than a problem with the request itself
+var isUnavailableStatusCode = function(statusCode){
+  return statusCode === 502 || statusCode === 503 || statusCode === 504;
+};
+
 //--------------------UTILITY METHODS-------------------------------------//
 var buildPolicyApiRequestOptions = function(apiPath, requestMethod){
   var corePolicyRequestOptions = {
@@ -54,6 +89,12 @@ var updateRequestWithGetParams = function(corePolicyRequestOptions, params){
       if(typeof(paramsValue)==='object' && Array.isArray(paramsValue)===false){
         paramsToSend[key] = JSON.stringify(paramsValue);
       }
+      //querystring drops objects in arrays, pass items such as 64-bit IDs held as BigNumber as their string form
+      else if(Array.isArray(paramsValue)){
+        paramsToSend[key] = paramsValue.map(function(paramItem){
+          return paramItem!==null && typeof(paramItem)==='object' ? paramItem.toString() : paramItem;
+        });
+      }
       else {
         paramsToSend[key] = paramsValue;
       }
@@ -67,85 +108,345 @@ var updateRequestWithContentHeaders = function(corePolicyRequestOptions, data){
   if(data===null || data===undefined){
     return;
   }
-  corePolicyRequestOptions.headers = {
-    'Content-Type': 'application/json',
-    'Content-Length': Buffer.byteLength(data)
-  };
+  if(corePolicyRequestOptions.headers===undefined){
+    corePolicyRequestOptions.headers = {};
+  }
+  corePolicyRequestOptions.headers['Content-Type'] = 'application/json';
+  corePolicyRequestOptions.headers['Content-Length'] = Buffer.byteLength(data);
+};
+
+//passes the ID of the trace for the request being handled to Policy API so that calls can be correlated across the two services
+var updateRequestWithTraceHeader = function(corePolicyRequestOptions, trace){
+  if(trace===null){
+    return;
+  }
+  if(corePolicyRequestOptions.headers===undefined){
+    corePolicyRequestOptions.headers = {};
+  }
+  corePolicyRequestOptions.headers[requestTrace.CORRELATION_ID_HEADER] = trace.id;
 };
 
 //reads in data from a response and once response body is fully returned calls the passed in callback with the 
-//response and built up response body.
-var readResponse = function(response, completedResponseCallback) {
-  var responseBody = "";
-  response.setEncoding("utf8");
+//response and built up response body. The body is collected as Buffers and decoded once complete, if it exceeds the configured
+//maximum size the response is abandoned and the error callback is called instead.
+var readResponse = function(response, completedResponseCallback, errorCallback) {
+  var maxResponseSize = policyConfig.maxResponseSize;
+  var responseSizeError = function(){
+    return new Error("Response from Policy API exceeded the maximum size of "+maxResponseSize+" bytes.");
+  };
+  //fail early if the response declares that it is too large
+  var declaredLength = parseInt(response.headers['content-length']);
+  if(!isNaN(declaredLength) && declaredLength > maxResponseSize){
+    response.destroy();
+    errorCallback(responseSizeError());
+    return;
+  }
+  
+  var responseChunks = [];
+  var responseSize = 0;
+  var responseAbandoned = false;
   response.on('data', function(chunk) {
-    responseBody += chunk;
+    if(responseAbandoned){
+      return;
+    }
+    responseSize += chunk.length;
+    if(responseSize > maxResponseSize){
+      responseAbandoned = true;
+      responseChunks = [];
+      response.destroy();
+      errorCallback(responseSizeError());
+      return;
+    }
+    responseChunks.push(chunk);
   });
   response.on('end', function() {
+    if(responseAbandoned){
+      return;
+    }
+    var responseBody = Buffer.concat(responseChunks, responseSize).toString('utf8');
+    responseChunks = null;
     logger.debug(function(){return "Response from Policy API: "+strUtils.getString(responseBody);});
     completedResponseCallback(response, responseBody);
   });
 };
 
 //sends a HTTP request with the specified options. Does not call 'end' and does not write data for POST.
+//If the circuit breaker is open no request is sent, the error callback is called and null is returned.
 var sendPolicyApiRequest = function(policyApiRequestOptions, policyCallback, errorCallback){
-  var policyApiRequest = http.request(policyApiRequestOptions, function(policyApiResponse){
-    readResponse(policyApiResponse, policyCallback);
-  });
-  policyApiRequest.on('error', function(e) {    
+  var reportError = function(e){
     if(errorCallback!==null && errorCallback!==undefined){
       errorCallback(e);
     }
     else{
-      logger.error("Error occured making Policy API Request to "+ apiPath +" "+ e);
+      logger.error("Error occured making Policy API Request to "+ policyApiRequestOptions.path +" "+ e);
+    }
+  };
+  if(!policyCircuitBreaker.allowRequest()){
+    requestStats.rejectedByCircuitBreaker++;
+    var circuitOpenError = new Error("Policy API is unavailable, requests are not being sent to it until it recovers.");
+    circuitOpenError.statusCode = 503;
+    circuitOpenError.circuitBreakerOpen = true;
+    setImmediate(function(){
+      reportError(circuitOpenError);
+    });
+    return null;
+  }
+  
+  //ensure only one of the callbacks is called once per request, e.g. the request may report an error after a response has been abandoned
+  var requestCompleted = false;
+  var connectTimer = null;
+  var responseTimer = null;
+  var onSuccess = function(response, responseBody){
+    if(requestCompleted){
+      return;
+    }
+    requestCompleted = true;
+    clearTimeout(connectTimer);
+    clearTimeout(responseTimer);
+    if(isUnavailableStatusCode(response.statusCode)){
+      policyCircuitBreaker.recordFailure();
+    }
+    else {
+      policyCircuitBreaker.recordSuccess();
+    }
+    policyCallback(response, responseBody);
+  };
+  var onError = function(e){
+    if(requestCompleted){
+      return;
+    }
+    requestCompleted = true;
+    clearTimeout(connectTimer);
+    clearTimeout(responseTimer);
+    policyCircuitBreaker.recordFailure();
+    reportError(e);
+  };
+  
+  //use the shared keep-alive agent so that sockets to Policy API are pooled and reused
+  policyApiRequestOptions.agent = policyHttpAgent.getAgent();
+  var policyApiRequest = http.request(policyApiRequestOptions, function(policyApiResponse){
+    readResponse(policyApiResponse, onSuccess, onError);
+  });
+  var timeoutRequest = function(message){
+    requestStats.timeouts++;
+    var timeoutError = new Error(message + " Path: " + policyApiRequestOptions.path);
+    timeoutError.statusCode = 504;
+    onError(timeoutError);
+    policyApiRequest.abort();
+  };
+  //timers start once the request has been assigned a socket so that time spent waiting for a free socket in the pool is not counted
+  policyApiRequest.on('socket', function(socket){
+    if(requestCompleted){
+      return;
+    }
+    responseTimer = setTimeout(function(){
+      timeoutRequest("Timed out after "+policyConfig.responseTimeout+"ms waiting for response from Policy API.");
+    }, policyConfig.responseTimeout);
+    if(socket.connecting || socket._connecting){
+      connectTimer = setTimeout(function(){
+        timeoutRequest("Timed out after "+policyConfig.connectTimeout+"ms connecting to Policy API.");
+      }, policyConfig.connectTimeout);
+      socket.once('connect', function(){
+        clearTimeout(connectTimer);
+      });
     }
   });
+  policyHttpAgent.trackRequest(policyApiRequest);
+  policyApiRequest.on('error', onError);
   return policyApiRequest;
 };
 
 var sendPolicyAPIPostRequest = function(postData, policyApiRequestOptions, policyCallback, errorCallback){
   var policyApiRequest = sendPolicyApiRequest(policyApiRequestOptions, policyCallback, errorCallback);
   //finish sending the request, writing the data to request body
-  policyApiRequest.end(postData);
+  if(policyApiRequest!==null){
+    policyApiRequest.end(postData);
+  }
   return policyApiRequest;
 };
 
 var sendPolicyAPIGetRequest = function(policyApiRequestOptions, policyCallback, errorCallback){
   var policyApiRequest = sendPolicyApiRequest(policyApiRequestOptions, policyCallback, errorCallback);
   //finish sending the request
-  policyApiRequest.end();
+  if(policyApiRequest!==null){
+    policyApiRequest.end();
+  }
   return policyApiRequest;
 };
 
+//wraps the callbacks for a request so that the request queue is informed when the request completes, metrics are recorded for the request 
+//and a span for the request is added to the trace of the request being handled, if any. Returns an object with the wrapped 'success' and 'error' callbacks.
+var wrapCallbacksForQueue = function(apiPath, method, requestParams, policyAPIRequestCallback, errorCallback, requestComplete, trace, queuedAt, requestBytes){
+  var requestStart = process.hrtime();
+  var startedAt = Date.now();
+  var itemType = requestParams !== null && requestParams !== undefined && requestParams.type !== undefined ? requestParams.type : "";
+  var recordMetrics = function(status, responseBody){
+    var elapsed = process.hrtime(requestStart);
+    var metricLabels = {
+      method: method,
+      path: apiPath,
+      type: itemType
+    };
+    policyRequestDuration.observe(metricLabels, elapsed[0] + elapsed[1] / 1e9);
+    metricLabels.status = status;
+    policyRequestCount.inc(metricLabels);
+    if(trace===null){
+      return;
+    }
+    requestTrace.recordSpan(trace, {
+      duration: Math.round(elapsed[0] * 1000 + elapsed[1] / 1e6),
+      method: method,
+      path: apiPath,
+      queuedTime: startedAt - queuedAt,
+      requestBytes: requestBytes,
+      responseBytes: responseBody === undefined ? 0 : Buffer.byteLength(responseBody),
+      startedAt: queuedAt,
+      status: status,
+      type: itemType
+    });
+  };
+  return {
+    success: function(response, responseBody){
+      requestComplete();
+      recordMetrics(response.statusCode, responseBody);
+      policyAPIRequestCallback(response, responseBody);
+    },
+    error: function(e){
+      requestComplete();
+      recordMetrics("error");
+      if(errorCallback!==null && errorCallback!==undefined){
+        errorCallback(e);
+      }
+      else{
+        logger.error("Error occured making Policy API Request to "+ apiPath +" "+ e);
+      }
+    }
+  };
+};
+
 //Makes a HTTP request to Core Policy API using the specified path and parameters, calls the passed in callback with the response object
 //apiPath                   - path to API method to call e.g. 'classification/retrieve'
 //requestParams             - JSON object of parameters to submit in body of request
 //policyAPIRequestCallback  - function to call with response from request, will be 
 //                            passed the response and the responseBody as arguments
 //error callback            - function to call in case of error event being raised
-//Returns the request object created.
+//The request is placed on the write queue and sent once the limit on requests in progress to Policy API allows.
 function policyAPIPostRequest(apiPath, requestParams, policyAPIRequestCallback, errorCallback){
   var policyApiRequestOptions = buildPolicyApiRequestOptions(apiPath, 
     "POST");
   
   var paramsAsStr = (requestParams !== null && requestParams !== undefined) ? JSON.stringify(requestParams) : "{}";  
   updateRequestWithContentHeaders(policyApiRequestOptions, paramsAsStr);
+  //the trace is captured now as the request may be sent from the queue while a different request is being handled
+  var trace = requestTrace.getCurrentTrace();
+  updateRequestWithTraceHeader(policyApiRequestOptions, trace);
+  var queuedAt = Date.now();
   
-  logger.info("About to issue request with options: " + JSON.stringify(policyApiRequestOptions) + ", body: "+paramsAsStr);
-  var policyApiRequest = sendPolicyAPIPostRequest(paramsAsStr, policyApiRequestOptions, policyAPIRequestCallback, errorCallback);
-  return policyApiRequest;
+  policyRequestQueue.schedule(policyRequestQueue.WRITE, function(requestComplete){
+    var queueCallbacks = wrapCallbacksForQueue(apiPath, "POST", requestParams, policyAPIRequestCallback, errorCallback, requestComplete,
+      trace, queuedAt, policyApiRequestOptions.headers['Content-Length']);
+    logger.info("About to issue request with options: " + JSON.stringify(policyApiRequestOptions) + ", body: "+paramsAsStr);
+    sendPolicyAPIPostRequest(paramsAsStr, policyApiRequestOptions, queueCallbacks.success, queueCallbacks.error);
+  }, errorCallback);
 }
 
+//Makes a HTTP GET request to Core Policy API. Parameters are as for policyAPIPostRequest, with requestParams being sent on the query string.
+//The request is placed on the read queue and sent once the limit on requests in progress to Policy API allows.
 function policyAPIGetRequest(apiPath, requestParams, policyAPIRequestCallback, errorCallback){
   var policyApiRequestOptions = buildPolicyApiRequestOptions(apiPath, 
     "GET");
   updateRequestWithGetParams(policyApiRequestOptions, requestParams);
-    
-  logger.info("About to issue request with options: " + JSON.stringify(policyApiRequestOptions));
-  var policyApiRequest = sendPolicyAPIGetRequest(policyApiRequestOptions, policyAPIRequestCallback, errorCallback);
-  return policyApiRequest;
+  var trace = requestTrace.getCurrentTrace();
+  updateRequestWithTraceHeader(policyApiRequestOptions, trace);
+  var queuedAt = Date.now();
+  
+  policyRequestQueue.schedule(policyRequestQueue.READ, function(requestComplete){
+    var queueCallbacks = wrapCallbacksForQueue(apiPath, "GET", requestParams, policyAPIRequestCallback, errorCallback, requestComplete,
+      trace, queuedAt, 0);
+    logger.info("About to issue request with options: " + JSON.stringify(policyApiRequestOptions));
+    sendPolicyAPIGetRequest(policyApiRequestOptions, queueCallbacks.success, queueCallbacks.error);
+  }, errorCallback);
 }
 
+//makes a GET request to Policy API, retrying with a jittered exponential backoff if it fails due to a network error, timeout or Policy API being unavailable.
+//Only to be used for retrieves, which are safe to repeat. Requests rejected by the circuit breaker are not retried.
+var policyAPIGetRequestWithRetries = function(apiPath, requestParams, policyAPIRequestCallback, errorCallback, attempt){
+  attempt = attempt === undefined ? 0 : attempt;
+  var retryOrFail = function(reason, failFunction){
+    if(attempt >= policyConfig.maxRetries){
+      failFunction();
+      return;
+    }
+    //wait between half and the full backoff period so that retries from concurrent requests are spread out
+    var backoff = policyConfig.retryDelay * Math.pow(2, attempt);
+    var retryDelay = Math.floor(backoff / 2 + Math.random() * backoff / 2);
+    logger.warning("Retrying request to Policy API path "+apiPath+" in "+retryDelay+"ms. Attempt "+(attempt+1)+" failed: "+reason);
+    requestStats.retries++;
+    setTimeout(function(){
+      policyAPIGetRequestWithRetries(apiPath, requestParams, policyAPIRequestCallback, errorCallback, attempt + 1);
+    }, retryDelay);
+  };
+  policyAPIGetRequest(apiPath, requestParams,
+    function(response, responseBody){
+      if(isUnavailableStatusCode(response.statusCode)){
+        retryOrFail("status code "+response.statusCode, function(){
+          policyAPIRequestCallback(response, responseBody);
+        });
+        return;
+      }
+      policyAPIRequestCallback(response, responseBody);
+    },
+    function(error){
+      if(error.circuitBreakerOpen === true){
+        errorCallback(error);
+        return;
+      }
+      retryOrFail(error, function(){
+        errorCallback(error);
+      });
+    });
+};
+
+//issues a GET request to Policy API, sharing the response of an identical request if one is already in progress. 
+//Each waiting caller has the response body parsed separately so that callers are free to modify the result they receive.
+//Returns a promise that resolves on success and rejects on failure of the call.
+var coalescedPolicyAPIGetRequest = function(path, params, extractFunction){
+  var deferredRequest = Q.defer();
+  var waiter = {
+    deferred: deferredRequest,
+    extractFunction: extractFunction
+  };
+  var requestKey = path + "?" + JSON.stringify(params);
+  var inFlightRequest = inFlightGetRequests[requestKey];
+  if(inFlightRequest!==undefined){
+    logger.debug(function(){return "Identical request already in progress, waiting on its response. Path: "+path;});
+    requestStats.coalescedGetRequests++;
+    inFlightRequest.waiters.push(waiter);
+    return deferredRequest.promise;
+  }
+  
+  inFlightRequest = {
+    waiters: [waiter]
+  };
+  inFlightGetRequests[requestKey] = inFlightRequest;
+  requestStats.getRequestsSent++;
+  policyAPIGetRequestWithRetries(path, params,
+    function(response, responseBody){
+      delete inFlightGetRequests[requestKey];
+      for(var successWaiter of inFlightRequest.waiters){
+        promiseHelper.handlePotentialSuccess(successWaiter.deferred, successWaiter.extractFunction)(response, responseBody);
+      }
+    },
+    function(errorResponse){
+      delete inFlightGetRequests[requestKey];
+      for(var failureWaiter of inFlightRequest.waiters){
+        promiseHelper.handleFailure(failureWaiter.deferred)(errorResponse);
+      }
+    }
+  );
+  return deferredRequest.promise;
+};
+
 //a convenience method that calls policyAPIGetRequest with a specified policy path and returns the first result of the array of results in the response or null if none. Returns a promise that resolves on success and rejects on failure of the call.
 function genericPolicyAPIGetItemRequest(path, params){
   //returns the first item from the array that call returns
@@ -155,22 +456,12 @@ function genericPolicyAPIGetItemRequest(path, params){
     }
     return null;
   };
-  var deferredRequest = Q.defer();
-  policyAPIGetRequest(path, params,
-    promiseHelper.handlePotentialSuccess(deferredRequest, extractFirstItem),
-    promiseHelper.handleFailure(deferredRequest)
-  );
-  return deferredRequest.promise;
+  return coalescedPolicyAPIGetRequest(path, params, extractFirstItem);
 }
 
 //a convenience method that calls policyAPIGetRequest with a specified policy path and returns the response. Returns a promise that resolves on success and rejects on failure of the call.
 function genericPolicyAPIGetItemsRequest(path, params){
-  var deferredRequest = Q.defer();
-  policyAPIGetRequest(path, params,
-    promiseHelper.handlePotentialSuccess(deferredRequest),
-    promiseHelper.handleFailure(deferredRequest)
-  );
-  return deferredRequest.promise;
+  return coalescedPolicyAPIGetRequest(path, params);
 }
 
 //a convenience method that calls policyAPIPostRequest with a specified policy path. Returns a promise that resolves on success passing the server response and rejects on failure of the call.
@@ -183,6 +474,24 @@ function genericPolicyAPIPostItemRequest(path, params){
   return deferredRequest.promise;
 }
 
+//returns the current state of the circuit breaker for Policy API requests, one of CLOSED, OPEN or HALF_OPEN.
+function getCircuitBreakerState(){
+  return policyCircuitBreaker.getState();
+}
+
+//returns counts of the requests sent to Policy API, those that shared the response of an identical request already in progress and those that failed or were retried
+function getStatistics(){
+  return {
+    circuitBreaker: policyCircuitBreaker.getStatistics(),
+    coalescedGetRequests: requestStats.coalescedGetRequests,
+    getRequestsSent: requestStats.getRequestsSent,
+    inFlightGetRequests: Object.keys(inFlightGetRequests).length,
+    rejectedByCircuitBreaker: requestStats.rejectedByCircuitBreaker,
+    retries: requestStats.retries,
+    timeouts: requestStats.timeouts
+  };
+}
+
 //call the Policy API health check. Returns a promise that resolves with the result.
 function healthCheck(){
   return genericPolicyAPIGetItemsRequest('healthcheck', {
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2015-2017 EntIT Software LLC, a Micro Focus company.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+//limits the number of requests in progress to Policy API at one time. Requests over the limit are queued in separate lanes for reads and writes,
+//reads are started first and writes may only use part of the limit so that a large batch of writes cannot hold up retrieves. A write that has
+//waited longer than the configured maximum is started ahead of reads so that sustained read load cannot hold up writes indefinitely.
+var policyConfig = require('../config/policyConfig.js').policyConfig;
+var logger = require('../logging/logging.js');
+var metrics = require('../libs/metrics.js');
+
+const READ = 'READ';
+const WRITE = 'WRITE';
+
+module.exports = {
+  READ: READ,
+  WRITE: WRITE,
+  getStatistics: getStatistics,
+  schedule: schedule
+};
+
+var lanes = {};
+lanes[READ] = {
+  inFlight: 0,
+  queue: [],
+  started: 0,
+  totalWaitTime: 0,
+  maxWaitTime: 0,
+  peakQueueDepth: 0
+};
+lanes[WRITE] = {
+  inFlight: 0,
+  queue: [],
+  started: 0,
+  totalWaitTime: 0,
+  maxWaitTime: 0,
+  peakQueueDepth: 0
+};
+
+metrics.createGauge("classification_policy_api_queue_depth", "Number of requests to Policy API waiting to be sent, by lane.", ["lane"], function(gauge){
+  gauge.set({lane: READ}, lanes[READ].queue.length);
+  gauge.set({lane: WRITE}, lanes[WRITE].queue.length);
+});
+metrics.createGauge("classification_policy_api_in_flight_requests", "Number of requests to Policy API in progress, by lane.", ["lane"], function(gauge){
+  gauge.set({lane: READ}, lanes[READ].inFlight);
+  gauge.set({lane: WRITE}, lanes[WRITE].inFlight);
+});
+var queueWait = metrics.createHistogram("classification_policy_api_queue_wait_seconds",
+  "Time requests to Policy API spent waiting in the queue before being sent, by lane.", ["lane"]);
+
+var getTotalInFlight = function(){
+  return lanes[READ].inFlight + lanes[WRITE].inFlight;
+};
+
+var canStartWrite = function(){
+  return lanes[WRITE].inFlight < policyConfig.maxInFlightWrites;
+};
+
+//returns true if the oldest queued write has waited longer than the maximum allowed
+var isWriteOverdue = function(){
+  var writeQueue = lanes[WRITE].queue;
+  return writeQueue.length > 0 && Date.now() - writeQueue[0].queuedAt >= policyConfig.maxWriteWait;
+};
+
+var startRequest = function(laneName, queuedRequest){
+  var lane = lanes[laneName];
+  var waitTime = Date.now() - queuedRequest.queuedAt;
+  lane.inFlight++;
+  lane.started++;
+  lane.totalWaitTime += waitTime;
+  if(waitTime > lane.maxWaitTime){
+    lane.maxWaitTime = waitTime;
+  }
+  queueWait.observe({lane: laneName}, waitTime / 1000);
+  var completed = false;
+  var onComplete = function(){
+    if(completed){
+      return;
+    }
+    completed = true;
+    lane.inFlight--;
+    processQueues();
+  };
+  try{
+    queuedRequest.start(onComplete);
+  }
+  catch(e){
+    logger.error("Error starting queued request to Policy API: "+e);
+    //the request will never complete so the caller must be told it failed or it will wait indefinitely
+    if(queuedRequest.error!==undefined && queuedRequest.error!==null){
+      try{
+        queuedRequest.error(e);
+      }
+      catch(errorCallbackError){
+        logger.error("Error passing failure to start queued request to Policy API to the caller: "+errorCallbackError);
+      }
+    }
+    onComplete();
+  }
+};
+
+//starts as many queued requests as the limits allow, preferring reads over writes unless a write is overdue
+var processQueues = function(){
+  while(getTotalInFlight() < policyConfig.maxInFlight){
+    //if writes are at their own limit they are still being sent, so reads may use the remaining capacity
+    if(isWriteOverdue() && canStartWrite()){
+      startRequest(WRITE, lanes[WRITE].queue.shift());
+    }
+    else if(lanes[READ].queue.length > 0){
+      startRequest(READ, lanes[READ].queue.shift());
+    }
+    else if(lanes[WRITE].queue.length > 0 && canStartWrite()){
+      startRequest(WRITE, lanes[WRITE].queue.shift());
+    }
+    else {
+      return;
+    }
+  }
+};
+
+//schedules a request to Policy API in the specified lane (READ or WRITE). 'startFunction' is called when the request may be sent and
+//is passed a function that must be called once the request has completed, successfully or otherwise. 'errorFunction' is optional and
+//is called with the error if 'startFunction' throws.
+function schedule(laneName, startFunction, errorFunction){
+  var lane = lanes[laneName];
+  lane.queue.push({
+    error: errorFunction,
+    queuedAt: Date.now(),
+    start: startFunction
+  });
+  if(lane.queue.length > lane.peakQueueDepth){
+    lane.peakQueueDepth = lane.queue.length;
+  }
+  processQueues();
+}
+
+var getLaneStatistics = function(lane){
+  return {
+    inFlight: lane.inFlight,
+    queueDepth: lane.queue.length,
+    peakQueueDepth: lane.peakQueueDepth,
+    started: lane.started,
+    averageWaitTime: lane.started === 0 ? 0 : Math.round(lane.totalWaitTime / lane.started),
+    maxWaitTime: lane.maxWaitTime
+  };
+};
+
+function getStatistics(){
+  return {
+    maxInFlight: policyConfig.maxInFlight,
+    maxInFlightWrites: policyConfig.maxInFlightWrites,
+    reads: getLaneStatistics(lanes[READ]),
+    writes: getLaneStatistics(lanes[WRITE])
+  };
+}
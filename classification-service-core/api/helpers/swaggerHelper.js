@@ -17,9 +17,24 @@
 var express = require('express');
 
 module.exports = {
+  getOperationId: getOperationId,
   register: register
 };
 
+//returns the ID of the Swagger operation a request was routed to, or 'unmatched' if it did not match an operation on the contract
+function getOperationId(request){
+  if(request.swagger && request.swagger.operation){
+    var operation = request.swagger.operation;
+    if(operation.operationId){
+      return operation.operationId;
+    }
+    if(operation.definition && operation.definition.operationId){
+      return operation.definition.operationId;
+    }
+  }
+  return "unmatched";
+}
+
 //register paths with app instance
 function register(config, app, swaggerExpress){
   //register path to return the swagger contract
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2015-2017 EntIT Software LLC, a Micro Focus company.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+//functions to read Terms from a stream of text with one Term per line, either as newline delimited JSON or as CSV.
+var StringDecoder = require('string_decoder').StringDecoder;
+
+const CSV = 'CSV';
+const NDJSON = 'NDJSON';
+
+module.exports = {
+  CSV: CSV,
+  NDJSON: NDJSON,
+  createLineReader: createLineReader,
+  getFormatFromContentType: getFormatFromContentType,
+  parseTerm: parseTerm
+};
+
+var validTermTypes = ["text", "regex"];
+
+//returns the format of Terms to read based on the Content-Type of a request. CSV if the type is 'text/csv', otherwise NDJSON.
+function getFormatFromContentType(contentType){
+  if(contentType!==undefined && contentType!==null && contentType.toLowerCase().indexOf('text/csv') === 0){
+    return CSV;
+  }
+  return NDJSON;
+}
+
+//returns a reader that splits text passed to it in chunks into lines. Lines are passed to 'lineCallback' along with their line number.
+//If a line exceeds 'maxLineLength' characters 'errorCallback' is called and no further lines are read.
+//The reader has 'write' to pass a chunk of data, as a Buffer or string, and 'end' to indicate no more data will be written.
+function createLineReader(lineCallback, errorCallback, maxLineLength){
+  var decoder = new StringDecoder('utf8');
+  var partialLine = "";
+  var lineNumber = 0;
+  var failed = false;
+
+  var outputLine = function(line){
+    lineNumber++;
+    //strip carriage return of Windows line endings
+    if(line.charAt(line.length - 1) === '\r'){
+      line = line.substring(0, line.length - 1);
+    }
+    lineCallback(line, lineNumber);
+  };
+
+  var readText = function(text){
+    if(failed){
+      return;
+    }
+    var lines = (partialLine + text).split('\n');
+    partialLine = lines.pop();
+    for(var line of lines){
+      outputLine(line);
+    }
+    if(partialLine.length > maxLineLength){
+      failed = true;
+      errorCallback(new Error("Line "+(lineNumber + 1)+" exceeds the maximum length of "+maxLineLength+" characters."));
+    }
+  };
+
+  return {
+    end: function(){
+      readText(decoder.end());
+      if(!failed && partialLine.length > 0){
+        outputLine(partialLine);
+      }
+      partialLine = "";
+    },
+    write: function(chunk){
+      readText(typeof(chunk)==='string' ? chunk : decoder.write(chunk));
+    }
+  };
+}
+
+//splits a line of CSV into its fields. Fields may be enclosed in double quotes to include commas, with double quotes inside a field escaped by doubling them.
+var parseCsvFields = function(line){
+  var fields = [];
+  var currentField = "";
+  var inQuotes = false;
+  var fieldWasQuoted = false;
+  for(var charIndex = 0; charIndex < line.length; charIndex++){
+    var currentChar = line.charAt(charIndex);
+    if(inQuotes){
+      if(currentChar === '"'){
+        if(line.charAt(charIndex + 1) === '"'){
+          currentField += '"';
+          charIndex++;
+        }
+        else {
+          inQuotes = false;
+        }
+      }
+      else {
+        currentField += currentChar;
+      }
+    }
+    else if(currentChar === '"' && currentField.length === 0 && !fieldWasQuoted){
+      inQuotes = true;
+      fieldWasQuoted = true;
+    }
+    else if(currentChar === ','){
+      fields.push(currentField);
+      currentField = "";
+      fieldWasQuoted = false;
+    }
+    else {
+      currentField += currentChar;
+    }
+  }
+  if(inQuotes){
+    throw new Error("Unterminated quoted field.");
+  }
+  fields.push(currentField);
+  return fields;
+};
+
+var validateTerm = function(term){
+  if(typeof(term.expression)!=='string' || term.expression.length === 0){
+    throw new Error("Term must have a non-empty 'expression'.");
+  }
+  if(validTermTypes.indexOf(term.type) === -1){
+    throw new Error("Term 'type' must be one of "+JSON.stringify(validTermTypes)+".");
+  }
+  return term;
+};
+
+//parses a single line into a Term with 'expression' and 'type' properties, throwing an Error describing the problem if the line is not a valid Term.
+//Returns null for lines that should be skipped; blank lines and a CSV header line of 'expression,type' on the first line.
+//NDJSON lines should be JSON objects with 'expression' and 'type' properties. CSV lines should have the expression followed by the type.
+function parseTerm(format, line, lineNumber){
+  if(line.trim().length === 0){
+    return null;
+  }
+  if(format === CSV){
+    var fields = parseCsvFields(line);
+    if(fields.length !== 2){
+      throw new Error("Expected 2 fields, expression and type, but found "+fields.length+".");
+    }
+    if(lineNumber === 1 && fields[0].trim().toLowerCase() === 'expression' && fields[1].trim().toLowerCase() === 'type'){
+      return null;
+    }
+    return validateTerm({
+      expression: fields[0],
+      type: fields[1].trim()
+    });
+  }
+  var parsedLine;
+  try{
+    parsedLine = JSON.parse(line);
+  }
+  catch(e){
+    throw new Error("Unable to parse line as JSON. "+e.message);
+  }
+  if(parsedLine===null || typeof(parsedLine)!=='object' || Array.isArray(parsedLine)){
+    throw new Error("Line must be a JSON object.");
+  }
+  return validateTerm({
+    expression: parsedLine.expression,
+    type: parsedLine.type
+  });
+}
@@ -17,8 +17,14 @@
 var Q = require('q');
 var util = require('util');
 var packageJson = require('../../package.json');
+var policyBatchHelper = require('../helpers/policyBatchHelper.js');
+var policyCacheHelper = require('../helpers/policyCacheHelper.js');
+var policyHttpAgent = require('../helpers/policyHttpAgent.js');
 var policyHttpHelper = require('../helpers/policyHttpHelper.js');
+var policyRequestQueue = require('../helpers/policyRequestQueue.js');
 var loggingConfig = require('../config/loggingConfig.js');
+var clusterManager = require('./clusterManager.js');
+var metrics = require('./metrics.js');
 
 const unHealthy = 'UNHEALTHY';
 const healthy = 'HEALTHY';
@@ -37,6 +43,7 @@ module.exports.healthCheck = function(){
       throw "Health Check did not return 'true'. Returned " + result;
     }
     dependantStatuses.push({
+      circuitBreakerState: policyHttpHelper.getCircuitBreakerState(),
       name: policyApiName,
       status: healthy
     });
@@ -44,6 +51,7 @@ module.exports.healthCheck = function(){
   })
   .fail(function(errorResponse){  
     dependantStatuses.push({
+      circuitBreakerState: policyHttpHelper.getCircuitBreakerState(),
       name: policyApiName,
       message: typeof(errorResponse) === 'string' ? errorResponse : util.inspect(errorResponse),
       status: unHealthy
@@ -77,14 +85,35 @@ module.exports.getVersion = function() {
     });
 };
 
+//Retrieves statistics on the internal state of the service, such as the pool of connections used for Policy API requests and the cache of retrieved items.
+module.exports.getStatistics = function(){
+  return Q({
+    policyApiBatching: policyBatchHelper.getStatistics(),
+    policyApiCache: policyCacheHelper.getStatistics(),
+    policyApiConnections: policyHttpAgent.getStatistics(),
+    policyApiQueue: policyRequestQueue.getStatistics(),
+    policyApiRequests: policyHttpHelper.getStatistics()
+  });
+};
+
+//Retrieves the metrics recorded by the service in the Prometheus text format. When running with multiple workers the metrics of all workers are combined. Returns a promise.
+module.exports.getMetrics = function(){
+  return clusterManager.collectMetrics()
+  .then(function(snapshot){
+    return metrics.getPrometheusText(snapshot);
+  });
+};
+
 module.exports.getLogLevel = function(){
   return Q({
     level: loggingConfig.getLogLevel()
   });
 };
 
+//Sets the log level for the service. When running with multiple workers the change is passed on to all workers.
 module.exports.setLogLevel = function(newLogLevel){
+  clusterManager.setLogLevel(newLogLevel);
   return Q({
-    level: loggingConfig.setLogLevel(newLogLevel)
+    level: loggingConfig.getLogLevel()
   });
 };
\ No newline at end of file
@@ -0,0 +1,479 @@
+/*
+ * Copyright 2015-2017 EntIT Software LLC, a Micro Focus company.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+//runs the service as a master process and a number of worker processes sharing the listen port when more than one worker is configured.
+//The master restarts workers that exit unexpectedly, coordinates graceful shutdown and relays messages between workers so that
+//state held in each worker, such as metrics, may be queried across all workers and log level changes and cache invalidations apply to all workers.
+var cluster = require('cluster');
+var os = require('os');
+var Q = require('q');
+var appConfig = require('../config/classificationServiceConfig.js');
+var loggingConfig = require('../config/loggingConfig.js');
+var logger = require('../logging/logging.js');
+var metrics = require('./metrics.js');
+
+module.exports = {
+  broadcast: broadcast,
+  collectMetrics: collectMetrics,
+  isMaster: isMaster,
+  queryWorkers: queryWorkers,
+  registerBroadcastHandler: registerBroadcastHandler,
+  registerQuery: registerQuery,
+  registerServer: registerServer,
+  registerShutdownWait: registerShutdownWait,
+  setLogLevel: setLogLevel,
+  startMaster: startMaster
+};
+
+//types of message passed between the master and workers
+const QUERY_WORKERS = 'queryWorkers';
+const QUERY_RESULTS = 'queryResults';
+const RUN_QUERY = 'runQuery';
+const QUERY_RESULT = 'queryResult';
+const SET_LOG_LEVEL = 'setLogLevel';
+const BROADCAST = 'broadcast';
+const SHUTDOWN = 'shutdown';
+
+const METRICS_QUERY = 'metrics';
+
+//time in milliseconds to wait for workers to answer a query before returning the results that have been received
+var queryTimeout = 5000;
+//workers exiting within this many milliseconds of starting are restarted after a delay to avoid repeatedly restarting a worker that cannot start
+var minimumWorkerUptime = 5000;
+var workerRestartDelay = 1000;
+
+var getWorkerCount = function(){
+  return appConfig.workers > 0 ? appConfig.workers : os.cpus().length;
+};
+
+//returns true if this process should act as the master, starting workers rather than serving requests itself
+function isMaster(){
+  return cluster.isMaster && getWorkerCount() > 1;
+}
+
+var isClusterWorker = function(){
+  return cluster.isWorker;
+};
+
+//-------------------------MASTER-------------------------------------//
+var shuttingDown = false;
+var workerStartTimes = {};
+var queryCollections = {};
+var nextCollectionId = 1;
+
+var sendToWorker = function(worker, message){
+  try{
+    worker.send(message);
+  }
+  catch(e){
+    logger.warning("Unable to send message to worker "+worker.id+": "+e);
+  }
+};
+
+//sends the message to every worker other than 'excludedWorker', if provided
+var sendToAllWorkers = function(message, excludedWorker){
+  Object.keys(cluster.workers).forEach(function(workerId){
+    var worker = cluster.workers[workerId];
+    if(excludedWorker===undefined || worker.id!==excludedWorker.id){
+      sendToWorker(worker, message);
+    }
+  });
+};
+
+var completeQueryCollection = function(collectionId){
+  var collection = queryCollections[collectionId];
+  if(collection===undefined){
+    return;
+  }
+  delete queryCollections[collectionId];
+  clearTimeout(collection.timer);
+  var requestingWorker = cluster.workers[collection.workerId];
+  if(requestingWorker!==undefined){
+    sendToWorker(requestingWorker, {
+      classificationService: QUERY_RESULTS,
+      requestId: collection.requestId,
+      results: collection.results
+    });
+  }
+};
+
+//runs a query on every worker and returns the results to the worker that asked for them
+var startQueryCollection = function(worker, message){
+  var collectionId = nextCollectionId++;
+  var workerIds = Object.keys(cluster.workers);
+  queryCollections[collectionId] = {
+    awaiting: workerIds.length,
+    requestId: message.requestId,
+    results: [],
+    timer: setTimeout(function(){
+      logger.warning("Timed out waiting for all workers to answer query '"+message.query+"', returning results from those that responded.");
+      completeQueryCollection(collectionId);
+    }, queryTimeout),
+    workerId: worker.id
+  };
+  sendToAllWorkers({
+    classificationService: RUN_QUERY,
+    args: message.args,
+    collectionId: collectionId,
+    query: message.query
+  });
+};
+
+var handleWorkerMessage = function(worker, message){
+  if(message===null || typeof(message)!=='object'){
+    return;
+  }
+  switch(message.classificationService){
+    case QUERY_WORKERS:
+      startQueryCollection(worker, message);
+      break;
+    case QUERY_RESULT:
+      var collection = queryCollections[message.collectionId];
+      if(collection===undefined){
+        return;
+      }
+      collection.results.push(message.result);
+      collection.awaiting--;
+      if(collection.awaiting <= 0){
+        completeQueryCollection(message.collectionId);
+      }
+      break;
+    case SET_LOG_LEVEL:
+      logger.info("Setting log level for all workers to "+message.level);
+      loggingConfig.setLogLevel(message.level);
+      sendToAllWorkers(message);
+      break;
+    case BROADCAST:
+      //the sending worker has already handled the message itself
+      sendToAllWorkers(message, worker);
+      break;
+  }
+};
+
+var forkWorker = function(){
+  var worker = cluster.fork();
+  workerStartTimes[worker.id] = Date.now();
+  worker.on('message', function(message){
+    handleWorkerMessage(worker, message);
+  });
+  return worker;
+};
+
+//stops all workers, allowing each to finish the requests it is handling, then exits
+var shutdownMaster = function(signal){
+  if(shuttingDown){
+    return;
+  }
+  shuttingDown = true;
+  logger.info("Received "+signal+", shutting down workers.");
+  sendToAllWorkers({
+    classificationService: SHUTDOWN
+  });
+  //workers enforce their own timeout, allow them a little longer before killing any that remain
+  var forceTimer = setTimeout(function(){
+    logger.warning("Workers did not shut down in time, killing remaining workers.");
+    Object.keys(cluster.workers).forEach(function(workerId){
+      cluster.workers[workerId].kill('SIGKILL');
+    });
+    process.exit(1);
+  }, appConfig.shutdownTimeout + 1000);
+  var exitWhenAllStopped = function(){
+    if(Object.keys(cluster.workers).length === 0){
+      clearTimeout(forceTimer);
+      logger.info("All workers stopped.");
+      process.exit(0);
+    }
+  };
+  cluster.on('exit', exitWhenAllStopped);
+  exitWhenAllStopped();
+};
+
+//starts the configured number of workers and restarts any that exit unexpectedly
+function startMaster(){
+  var workerCount = getWorkerCount();
+  logger.info("Starting "+workerCount+" workers.");
+  for(var workerIndex = 0; workerIndex < workerCount; workerIndex++){
+    forkWorker();
+  }
+  cluster.on('exit', function(worker, code, signal){
+    var uptime = Date.now() - workerStartTimes[worker.id];
+    delete workerStartTimes[worker.id];
+    if(shuttingDown){
+      return;
+    }
+    logger.error("Worker "+worker.id+" (pid "+worker.process.pid+") exited unexpectedly with "+
+      (signal ? "signal "+signal : "code "+code)+" after "+uptime+"ms. Starting a replacement.");
+    if(uptime < minimumWorkerUptime){
+      setTimeout(function(){
+        if(!shuttingDown){
+          forkWorker();
+        }
+      }, workerRestartDelay);
+    }
+    else {
+      forkWorker();
+    }
+  });
+  process.on('SIGTERM', function(){
+    shutdownMaster('SIGTERM');
+  });
+  process.on('SIGINT', function(){
+    shutdownMaster('SIGINT');
+  });
+}
+
+//-------------------------WORKER-------------------------------------//
+//functions that answer queries made across all workers, keyed on query name
+var queryHandlers = {};
+//functions that handle messages broadcast by other workers, keyed on message name
+var broadcastHandlers = {};
+var pendingQueries = {};
+var nextQueryId = 1;
+var serverClosing = false;
+//functions returning a promise that resolves once work that must finish before the process exits, such as background jobs, has completed
+var shutdownWaits = [];
+//open connections to the server with the number of requests in progress on each, so that idle keep-alive connections can be closed on shutdown
+var openConnections = new Map();
+
+var closeIdleConnections = function(){
+  openConnections.forEach(function(requestsInProgress, socket){
+    if(requestsInProgress===0){
+      socket.destroy();
+    }
+  });
+};
+
+var trackConnections = function(server){
+  server.on('connection', function(socket){
+    openConnections.set(socket, 0);
+    socket.on('close', function(){
+      openConnections.delete(socket);
+    });
+  });
+  server.on('request', function(request, response){
+    var socket = request.socket;
+    openConnections.set(socket, (openConnections.get(socket) || 0) + 1);
+    if(serverClosing){
+      response.setHeader('Connection', 'close');
+    }
+    response.on('finish', function(){
+      var requestsInProgress = openConnections.get(socket) - 1;
+      openConnections.set(socket, requestsInProgress);
+      if(serverClosing && requestsInProgress===0){
+        socket.destroy();
+      }
+    });
+  });
+};
+
+//returns a promise resolving once all registered shutdown waits have resolved. Failures are logged and do not prevent the others being waited on.
+var waitForShutdownWaits = function(){
+  return Q.allSettled(shutdownWaits.map(function(shutdownWait){
+    return Q().then(shutdownWait);
+  }))
+  .then(function(outcomes){
+    for(var outcome of outcomes){
+      if(outcome.state==='rejected'){
+        logger.warning("Error waiting for work to complete before shutting down: "+outcome.reason);
+      }
+    }
+  });
+};
+
+var runQuery = function(query, args){
+  var queryHandler = queryHandlers[query];
+  if(queryHandler===undefined){
+    logger.warning("No handler registered for query: "+query);
+    return null;
+  }
+  return queryHandler(args);
+};
+
+//stops the server accepting new connections and exits once the requests in progress and any registered work, such as background jobs,
+//have completed, or the shutdown timeout passes. Idle keep-alive connections are closed straight away and others once their request completes.
+var shutdownServer = function(server, reason){
+  if(serverClosing){
+    return;
+  }
+  serverClosing = true;
+  logger.info("Shutting down ("+reason+"), waiting for requests in progress and background jobs to complete.");
+  var forceTimer = setTimeout(function(){
+    logger.warning("Requests and background jobs did not complete within "+appConfig.shutdownTimeout+"ms, exiting.");
+    process.exit(1);
+  }, appConfig.shutdownTimeout);
+  var serverClosed = Q.defer();
+  server.close(function(){
+    logger.info("All connections closed.");
+    serverClosed.resolve();
+  });
+  closeIdleConnections();
+  Q.all([serverClosed.promise, waitForShutdownWaits()])
+  .then(function(){
+    clearTimeout(forceTimer);
+    logger.info("Requests and background jobs complete, exiting.");
+    process.exit(0);
+  }).done();
+};
+
+var handleMasterMessage = function(server, message){
+  if(message===null || typeof(message)!=='object'){
+    return;
+  }
+  switch(message.classificationService){
+    case RUN_QUERY:
+      var result = null;
+      try{
+        result = runQuery(message.query, message.args);
+      }
+      catch(e){
+        logger.error("Error running query '"+message.query+"': "+e);
+      }
+      process.send({
+        classificationService: QUERY_RESULT,
+        collectionId: message.collectionId,
+        result: result === undefined ? null : result
+      });
+      break;
+    case QUERY_RESULTS:
+      var pendingQuery = pendingQueries[message.requestId];
+      if(pendingQuery!==undefined){
+        delete pendingQueries[message.requestId];
+        clearTimeout(pendingQuery.timer);
+        pendingQuery.deferred.resolve(message.results);
+      }
+      break;
+    case SET_LOG_LEVEL:
+      loggingConfig.setLogLevel(message.level);
+      break;
+    case BROADCAST:
+      var broadcastHandler = broadcastHandlers[message.name];
+      if(broadcastHandler===undefined){
+        logger.warning("No handler registered for broadcast: "+message.name);
+        return;
+      }
+      try{
+        broadcastHandler(message.args);
+      }
+      catch(e){
+        logger.error("Error handling broadcast '"+message.name+"': "+e);
+      }
+      break;
+    case SHUTDOWN:
+      shutdownServer(server, "requested by master");
+      break;
+  }
+};
+
+//sets up graceful shutdown of the server passed and, when running as a worker, handling of messages from the master
+function registerServer(server){
+  trackConnections(server);
+  process.on('SIGTERM', function(){
+    shutdownServer(server, "SIGTERM");
+  });
+  process.on('SIGINT', function(){
+    shutdownServer(server, "SIGINT");
+  });
+  if(isClusterWorker()){
+    process.on('message', function(message){
+      handleMasterMessage(server, message);
+    });
+  }
+}
+
+//registers a function that is called when the process is shutting down and returns a promise that resolves once work that should not be
+//interrupted has completed. The process exits once all such promises resolve or the shutdown timeout passes.
+function registerShutdownWait(shutdownWait){
+  shutdownWaits.push(shutdownWait);
+}
+
+//registers a function that answers the named query for this process. The function is passed the query arguments and must return a value that can be sent between processes.
+function registerQuery(query, queryHandler){
+  queryHandlers[query] = queryHandler;
+}
+
+//registers a function that handles the named message when it is broadcast by another worker. The function is passed the message arguments.
+function registerBroadcastHandler(name, broadcastHandler){
+  broadcastHandlers[name] = broadcastHandler;
+}
+
+//sends the named message to every other worker, where it is passed to the handler registered for it. Does nothing if not running as a worker.
+//Delivery is asynchronous so other workers may handle requests before receiving the message.
+function broadcast(name, args){
+  if(!isClusterWorker()){
+    return;
+  }
+  try{
+    process.send({
+      classificationService: BROADCAST,
+      args: args,
+      name: name
+    });
+  }
+  catch(e){
+    logger.warning("Unable to broadcast '"+name+"' to other workers: "+e);
+  }
+}
+
+//runs the named query on every worker, returning a promise resolving with an array of the results. If not running as a worker the array holds the result for this process only.
+//Workers that do not answer in time are left out of the results.
+function queryWorkers(query, args){
+  if(!isClusterWorker()){
+    return Q().then(function(){
+      return [runQuery(query, args)];
+    });
+  }
+  var deferredQuery = Q.defer();
+  var requestId = nextQueryId++;
+  //the master times out slow workers itself, this guards against the master not responding at all
+  var responseTimer = setTimeout(function(){
+    delete pendingQueries[requestId];
+    deferredQuery.reject(new Error("Timed out waiting for workers to answer query: "+query));
+  }, queryTimeout * 2);
+  pendingQueries[requestId] = {
+    deferred: deferredQuery,
+    timer: responseTimer
+  };
+  process.send({
+    classificationService: QUERY_WORKERS,
+    args: args,
+    query: query,
+    requestId: requestId
+  });
+  return deferredQuery.promise;
+}
+
+//returns a promise resolving with a snapshot of the metrics of all workers merged together. If not running as a worker the snapshot is of this process only.
+function collectMetrics(){
+  return queryWorkers(METRICS_QUERY)
+  .then(function(snapshots){
+    return metrics.mergeSnapshots(snapshots.filter(function(snapshot){
+      return snapshot !== null;
+    }));
+  });
+}
+registerQuery(METRICS_QUERY, function(){
+  return metrics.getSnapshot();
+});
+
+//sets the log level of this process and, when running as a worker, of all other workers
+function setLogLevel(newLogLevel){
+  loggingConfig.setLogLevel(newLogLevel);
+  if(isClusterWorker()){
+    process.send({
+      classificationService: SET_LOG_LEVEL,
+      level: newLogLevel
+    });
+  }
+}
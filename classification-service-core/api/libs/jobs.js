@@ -0,0 +1,189 @@
+/*
+ * Copyright 2015-2017 EntIT Software LLC, a Micro Focus company.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+//tracks long running operations performed in the background after a request has been responded to, so that callers may check on their progress.
+//Jobs are held in memory by the process running them and are kept for a period after finishing before being removed.
+var crypto = require('crypto');
+var Q = require('q');
+var appConfig = require('../config/classificationServiceConfig.js');
+var apiErrorFactory = require('../models/errors/apiErrorFactory.js');
+var clusterManager = require('./clusterManager.js');
+var logger = require('../logging/logging.js');
+
+const RUNNING = 'RUNNING';
+const COMPLETED = 'COMPLETED';
+const FAILED = 'FAILED';
+
+module.exports = {
+  COMPLETED: COMPLETED,
+  FAILED: FAILED,
+  RUNNING: RUNNING,
+  addError: addError,
+  complete: complete,
+  create: create,
+  fail: fail,
+  get: get,
+  getWithValidate: getWithValidate,
+  toOutput: toOutput
+};
+
+//limit on the number of error messages kept for a job, further errors are counted but their messages are not kept
+var maxErrorsPerJob = 100;
+var jobQuery = 'job';
+
+//jobs keyed on ID
+var jobs = {};
+//number of jobs still running and callbacks to call once none are running
+var runningJobCount = 0;
+var noRunningJobsCallbacks = [];
+
+var jobFinished = function(){
+  runningJobCount--;
+  if(runningJobCount===0){
+    var callbacks = noRunningJobsCallbacks;
+    noRunningJobsCallbacks = [];
+    callbacks.forEach(function(callback){
+      callback();
+    });
+  }
+};
+
+//returns a promise resolving once no jobs are running. Used so that shutting down does not interrupt jobs part way through.
+var waitForRunningJobs = function(){
+  var deferredWait = Q.defer();
+  if(runningJobCount===0){
+    deferredWait.resolve();
+  }
+  else {
+    logger.info("Waiting for "+runningJobCount+" running jobs to finish before shutting down.");
+    noRunningJobsCallbacks.push(deferredWait.resolve);
+  }
+  return deferredWait.promise;
+};
+clusterManager.registerShutdownWait(waitForRunningJobs);
+
+//removes jobs that finished longer ago than the retention period
+var removeExpiredJobs = function(){
+  var expiryTime = Date.now() - appConfig.jobRetention * 1000;
+  Object.keys(jobs).forEach(function(jobId){
+    var job = jobs[jobId];
+    if(job.finishedTime!==null && job.finishedTime < expiryTime){
+      delete jobs[jobId];
+    }
+  });
+};
+
+//creates a job of the specified type for a project. The job is returned and its 'progress' object may be updated as the job runs.
+function create(type, projectId){
+  removeExpiredJobs();
+  var job = {
+    createdTime: Date.now(),
+    errorCount: 0,
+    errors: [],
+    finishedTime: null,
+    id: crypto.randomBytes(12).toString('hex'),
+    progress: {},
+    projectId: projectId,
+    status: RUNNING,
+    type: type
+  };
+  jobs[job.id] = job;
+  runningJobCount++;
+  return job;
+}
+
+//records an error that occurred while running the job, the job continues to run
+function addError(job, message){
+  job.errorCount++;
+  if(job.errors.length < maxErrorsPerJob){
+    job.errors.push(message);
+  }
+}
+
+//marks the job as finished. If any errors were recorded the job is marked as failed.
+function complete(job){
+  if(job.finishedTime!==null){
+    return;
+  }
+  job.finishedTime = Date.now();
+  job.status = job.errorCount > 0 ? FAILED : COMPLETED;
+  jobFinished();
+}
+
+//marks the job as finished and failed, recording the message passed as the reason
+function fail(job, message){
+  addError(job, message);
+  if(job.finishedTime!==null){
+    return;
+  }
+  job.finishedTime = Date.now();
+  job.status = FAILED;
+  jobFinished();
+}
+
+//returns the representation of the job returned to callers
+function toOutput(job){
+  var jobOutput = {
+    createdTime: new Date(job.createdTime).toISOString(),
+    errorCount: job.errorCount,
+    errors: job.errors,
+    id: job.id,
+    progress: job.progress,
+    status: job.status,
+    type: job.type
+  };
+  if(job.finishedTime!==null){
+    jobOutput.finishedTime = new Date(job.finishedTime).toISOString();
+  }
+  return jobOutput;
+}
+
+var getLocalJob = function(args){
+  removeExpiredJobs();
+  var job = jobs[args.id];
+  if(job===undefined || job.projectId!==args.projectId){
+    return null;
+  }
+  return toOutput(job);
+};
+//when running with multiple workers the job may be held by any worker
+clusterManager.registerQuery(jobQuery, getLocalJob);
+
+//Returns a promise resolving with the job matching the ID for the project, or null if there is no such job.
+function get(projectId, id){
+  return clusterManager.queryWorkers(jobQuery, {
+    id: id,
+    projectId: projectId
+  })
+  .then(function(results){
+    for(var result of results){
+      if(result!==null){
+        return result;
+      }
+    }
+    return null;
+  });
+}
+
+//Returns a promise resolving with the job matching the ID for the project, rejecting with a not found error if there is no such job.
+function getWithValidate(projectId, id){
+  return get(projectId, id)
+  .then(function(job){
+    if(job===null){
+      throw apiErrorFactory.createNotFoundError("Unable to find Job with ID: "+id);
+    }
+    return job;
+  });
+}
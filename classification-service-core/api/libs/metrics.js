@@ -0,0 +1,315 @@
+/*
+ * Copyright 2015-2017 EntIT Software LLC, a Micro Focus company.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+//registry of metrics recorded by the service that can be output in the Prometheus text exposition format.
+var logger = require('../logging/logging.js');
+
+module.exports = {
+  createCounter: createCounter,
+  createGauge: createGauge,
+  createHistogram: createHistogram,
+  getPrometheusText: getPrometheusText,
+  getSnapshot: getSnapshot,
+  mergeSnapshots: mergeSnapshots,
+  startProcessMetrics: startProcessMetrics
+};
+
+//default histogram buckets, in seconds, suitable for request durations
+var defaultBuckets = [0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10];
+
+//metrics registered, keyed on name
+var registeredMetrics = {};
+
+//returns a key uniquely identifying a set of label values for a metric
+var buildLabelKey = function(labelNames, labels){
+  return labelNames.map(function(labelName){
+    var labelValue = labels === undefined || labels === null ? undefined : labels[labelName];
+    return labelValue === undefined || labelValue === null ? "" : String(labelValue);
+  }).join("\u0000");
+};
+
+var registerMetric = function(name, help, type, labelNames){
+  if(registeredMetrics[name]!==undefined){
+    throw new Error("Metric already registered with name: "+name);
+  }
+  var metric = {
+    help: help,
+    labelNames: labelNames === undefined || labelNames === null ? [] : labelNames,
+    name: name,
+    type: type,
+    values: {}
+  };
+  registeredMetrics[name] = metric;
+  return metric;
+};
+
+//returns the stored value entry for the labels provided, creating it with the initial value passed if not yet recorded
+var getValueEntry = function(metric, labels, buildInitialValue){
+  var labelKey = buildLabelKey(metric.labelNames, labels);
+  var valueEntry = metric.values[labelKey];
+  if(valueEntry === undefined){
+    var entryLabels = {};
+    for(var labelName of metric.labelNames){
+      entryLabels[labelName] = labels === undefined || labels === null || labels[labelName] === undefined ? "" : String(labels[labelName]);
+    }
+    valueEntry = buildInitialValue();
+    valueEntry.labels = entryLabels;
+    metric.values[labelKey] = valueEntry;
+  }
+  return valueEntry;
+};
+
+//creates a counter, a value that only increases. Returns an object with an 'inc' function taking the labels and optional amount to increase by.
+function createCounter(name, help, labelNames){
+  var metric = registerMetric(name, help, 'counter', labelNames);
+  return {
+    inc: function(labels, amount){
+      getValueEntry(metric, labels, function(){
+        return {value: 0};
+      }).value += amount === undefined ? 1 : amount;
+    }
+  };
+}
+
+//creates a gauge, a value that may go up or down. Returns an object with a 'set' function taking the labels and value.
+//A collect function may be passed which will be called each time metrics are output, allowing the gauge to be updated from another source.
+function createGauge(name, help, labelNames, collectFunction){
+  var metric = registerMetric(name, help, 'gauge', labelNames);
+  var gauge = {
+    set: function(labels, value){
+      getValueEntry(metric, labels, function(){
+        return {value: 0};
+      }).value = value;
+    }
+  };
+  if(typeof(collectFunction)==='function'){
+    metric.collect = function(){
+      collectFunction(gauge);
+    };
+  }
+  return gauge;
+}
+
+//creates a histogram, counting observed values into buckets. Returns an object with an 'observe' function taking the labels and value observed.
+//buckets are the upper bounds of each bucket, defaulting to bounds suitable for request durations in seconds.
+function createHistogram(name, help, labelNames, buckets){
+  var metric = registerMetric(name, help, 'histogram', labelNames);
+  metric.buckets = buckets === undefined || buckets === null ? defaultBuckets : buckets.slice().sort(function(a, b){return a - b;});
+  return {
+    observe: function(labels, value){
+      var valueEntry = getValueEntry(metric, labels, function(){
+        return {
+          bucketCounts: metric.buckets.map(function(){return 0;}),
+          count: 0,
+          sum: 0
+        };
+      });
+      for(var bucketIndex = 0; bucketIndex < metric.buckets.length; bucketIndex++){
+        if(value <= metric.buckets[bucketIndex]){
+          valueEntry.bucketCounts[bucketIndex]++;
+        }
+      }
+      valueEntry.count++;
+      valueEntry.sum += value;
+    }
+  };
+}
+
+//returns a copy of all metrics and their current values
+function getSnapshot(){
+  var snapshot = [];
+  Object.keys(registeredMetrics).forEach(function(metricName){
+    var metric = registeredMetrics[metricName];
+    if(metric.collect!==undefined){
+      try{
+        metric.collect();
+      }
+      catch(e){
+        logger.error("Error collecting value for metric "+metricName+": "+e);
+      }
+    }
+    snapshot.push({
+      buckets: metric.buckets,
+      help: metric.help,
+      labelNames: metric.labelNames,
+      name: metric.name,
+      type: metric.type,
+      values: Object.keys(metric.values).map(function(labelKey){
+        return JSON.parse(JSON.stringify(metric.values[labelKey]));
+      })
+    });
+  });
+  return snapshot;
+}
+
+//combines snapshots taken from several processes into one. Values with the same labels are added together, for histograms
+//the count in each bucket is added. Gauges are also added so that, for example, in flight requests are reported for all processes.
+function mergeSnapshots(snapshots){
+  var mergedMetrics = {};
+  var metricNames = [];
+  for(var snapshot of snapshots){
+    for(var metric of snapshot){
+      var mergedMetric = mergedMetrics[metric.name];
+      if(mergedMetric === undefined){
+        mergedMetric = {
+          buckets: metric.buckets,
+          help: metric.help,
+          labelNames: metric.labelNames,
+          name: metric.name,
+          type: metric.type,
+          valuesByLabels: {}
+        };
+        mergedMetrics[metric.name] = mergedMetric;
+        metricNames.push(metric.name);
+      }
+      for(var valueEntry of metric.values){
+        var labelKey = buildLabelKey(mergedMetric.labelNames, valueEntry.labels);
+        var mergedEntry = mergedMetric.valuesByLabels[labelKey];
+        if(mergedEntry === undefined){
+          mergedMetric.valuesByLabels[labelKey] = JSON.parse(JSON.stringify(valueEntry));
+          continue;
+        }
+        if(mergedMetric.type === 'histogram'){
+          for(var bucketIndex = 0; bucketIndex < mergedEntry.bucketCounts.length; bucketIndex++){
+            mergedEntry.bucketCounts[bucketIndex] += valueEntry.bucketCounts[bucketIndex];
+          }
+          mergedEntry.count += valueEntry.count;
+          mergedEntry.sum += valueEntry.sum;
+        }
+        else {
+          mergedEntry.value += valueEntry.value;
+        }
+      }
+    }
+  }
+  return metricNames.map(function(metricName){
+    var mergedMetric = mergedMetrics[metricName];
+    return {
+      buckets: mergedMetric.buckets,
+      help: mergedMetric.help,
+      labelNames: mergedMetric.labelNames,
+      name: mergedMetric.name,
+      type: mergedMetric.type,
+      values: Object.keys(mergedMetric.valuesByLabels).map(function(labelKey){
+        return mergedMetric.valuesByLabels[labelKey];
+      })
+    };
+  });
+}
+
+var escapeLabelValue = function(labelValue){
+  return labelValue.replace(/\\/g, "\\\\").replace(/"/g, "\\\"").replace(/\n/g, "\\n");
+};
+
+var formatLabels = function(labels, additionalLabelName, additionalLabelValue){
+  var labelPairs = Object.keys(labels).map(function(labelName){
+    return labelName + "=\"" + escapeLabelValue(labels[labelName]) + "\"";
+  });
+  if(additionalLabelName!==undefined){
+    labelPairs.push(additionalLabelName + "=\"" + additionalLabelValue + "\"");
+  }
+  return labelPairs.length === 0 ? "" : "{" + labelPairs.join(",") + "}";
+};
+
+var formatNumber = function(value){
+  if(value === Infinity){
+    return "+Inf";
+  }
+  return String(value);
+};
+
+//returns the metrics in a snapshot (defaults to the current metrics) in the Prometheus text exposition format
+function getPrometheusText(snapshot){
+  if(snapshot === undefined || snapshot === null){
+    snapshot = getSnapshot();
+  }
+  var lines = [];
+  for(var metric of snapshot){
+    lines.push("# HELP " + metric.name + " " + metric.help.replace(/\\/g, "\\\\").replace(/\n/g, "\\n"));
+    lines.push("# TYPE " + metric.name + " " + metric.type);
+    for(var valueEntry of metric.values){
+      if(metric.type === 'histogram'){
+        for(var bucketIndex = 0; bucketIndex < metric.buckets.length; bucketIndex++){
+          lines.push(metric.name + "_bucket" + formatLabels(valueEntry.labels, "le", formatNumber(metric.buckets[bucketIndex])) +
+            " " + valueEntry.bucketCounts[bucketIndex]);
+        }
+        lines.push(metric.name + "_bucket" + formatLabels(valueEntry.labels, "le", "+Inf") + " " + valueEntry.count);
+        lines.push(metric.name + "_sum" + formatLabels(valueEntry.labels) + " " + formatNumber(valueEntry.sum));
+        lines.push(metric.name + "_count" + formatLabels(valueEntry.labels) + " " + valueEntry.count);
+      }
+      else {
+        lines.push(metric.name + formatLabels(valueEntry.labels) + " " + formatNumber(valueEntry.value));
+      }
+    }
+  }
+  return lines.join("\n") + "\n";
+}
+
+var processMetricsStarted = false;
+//starts recording metrics about the Node process itself; event loop lag, heap usage and garbage collection pauses.
+function startProcessMetrics(){
+  if(processMetricsStarted){
+    return;
+  }
+  processMetricsStarted = true;
+
+  //event loop lag is measured as how late a timer fires compared to when it was scheduled
+  var lagInterval = 500;
+  var eventLoopLag = createHistogram("nodejs_eventloop_lag_seconds", "Delay in firing a timer, indicating how long the event loop was blocked.", [],
+    [0.001, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5]);
+  var lastLagCheck = Date.now();
+  var lagTimer = setInterval(function(){
+    var now = Date.now();
+    eventLoopLag.observe({}, Math.max(now - lastLagCheck - lagInterval, 0) / 1000);
+    lastLagCheck = now;
+  }, lagInterval);
+  if(typeof(lagTimer.unref)==='function'){
+    lagTimer.unref();
+  }
+
+  createGauge("nodejs_heap_size_used_bytes", "Heap memory in use by the process.", [], function(gauge){
+    gauge.set({}, process.memoryUsage().heapUsed);
+  });
+  createGauge("nodejs_heap_size_total_bytes", "Heap memory allocated to the process.", [], function(gauge){
+    gauge.set({}, process.memoryUsage().heapTotal);
+  });
+  createGauge("process_resident_memory_bytes", "Resident memory size of the process.", [], function(gauge){
+    gauge.set({}, process.memoryUsage().rss);
+  });
+
+  //garbage collection timings are only available on versions of Node that provide perf_hooks
+  try{
+    var perfHooks = require('perf_hooks');
+    var gcKinds = {
+      1: "scavenge",
+      2: "mark_sweep_compact",
+      4: "incremental_marking",
+      8: "weak_callbacks",
+      15: "all"
+    };
+    var gcPauses = createHistogram("nodejs_gc_pause_seconds", "Time spent paused for garbage collection, by kind of collection.", ["kind"],
+      [0.001, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1]);
+    var gcObserver = new perfHooks.PerformanceObserver(function(list){
+      for(var gcEntry of list.getEntries()){
+        var gcKind = gcEntry.detail !== undefined && gcEntry.detail !== null ? gcEntry.detail.kind : gcEntry.kind;
+        gcPauses.observe({kind: gcKinds[gcKind] || "unknown"}, gcEntry.duration / 1000);
+      }
+    });
+    gcObserver.observe({entryTypes: ['gc']});
+  }
+  catch(e){
+    logger.debug("Garbage collection metrics are not available on this version of Node: "+e);
+  }
+}
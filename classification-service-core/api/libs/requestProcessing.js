@@ -21,8 +21,27 @@ module.exports ={
 };
 
 var authorizationProvider = require('./authorizationProvider.js');
+var metrics = require('./metrics.js');
+var swaggerHelper = require('../helpers/swaggerHelper.js');
+
+var requestDuration = metrics.createHistogram("classification_http_request_duration_seconds",
+  "Time taken to respond to requests, by Swagger operation.", ["operation", "method"]);
+var responseCount = metrics.createCounter("classification_http_responses_total",
+  "Number of responses returned, by Swagger operation and status code.", ["operation", "method", "status"]);
+
+//records duration and status code of the request once the response has been sent
+var recordRequestMetrics = function(request, response){
+  var requestStart = process.hrtime();
+  response.on('finish', function(){
+    var elapsed = process.hrtime(requestStart);
+    var operationId = swaggerHelper.getOperationId(request);
+    requestDuration.observe({operation: operationId, method: request.method}, elapsed[0] + elapsed[1] / 1e9);
+    responseCount.inc({operation: operationId, method: request.method, status: response.statusCode});
+  });
+};
 
 function preProcess(request, response){
+  recordRequestMetrics(request, response);
   authorizationProvider.authorize(null, request);
   
 }
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2015-2017 EntIT Software LLC, a Micro Focus company.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+//request scoped trace recording the calls made to Policy API while handling a request. The trace is held on a domain created for each request
+//so that it is available to the models without passing it through each call, Q promise callbacks run in the domain that was active when they were registered.
+var crypto = require('crypto');
+var domain = require('domain');
+var appConfig = require('../config/classificationServiceConfig.js');
+var logger = require('../logging/logging.js');
+var metrics = require('./metrics.js');
+var swaggerHelper = require('../helpers/swaggerHelper.js');
+
+//header used to pass the trace ID to and from callers and on to Policy API
+const CORRELATION_ID_HEADER = 'X-Correlation-Id';
+
+module.exports = {
+  CORRELATION_ID_HEADER: CORRELATION_ID_HEADER,
+  getCurrentTrace: getCurrentTrace,
+  recordSpan: recordSpan,
+  start: start
+};
+
+//limit on the number of spans kept for a single request, further calls are counted but their detail is not kept
+var maxSpansPerTrace = 1000;
+
+var policyCallsPerRequest = metrics.createHistogram("classification_http_request_policy_api_calls",
+  "Number of Policy API calls made while handling a request, by Swagger operation.", ["operation"],
+  [0, 1, 2, 5, 10, 25, 50, 100, 250, 500, 1000]);
+
+//correlation IDs supplied by callers are echoed on the response, logged and passed to Policy API so only short, plain values are accepted
+var validCorrelationIdPattern = /^[A-Za-z0-9._-]{1,128}$/;
+
+var generateTraceId = function(){
+  return crypto.randomBytes(8).toString('hex');
+};
+
+//returns the trace for the request currently being handled or null if there is none e.g. work not started by a request
+function getCurrentTrace(){
+  var activeDomain = process.domain;
+  if(activeDomain === undefined || activeDomain === null || activeDomain.requestTrace === undefined){
+    return null;
+  }
+  return activeDomain.requestTrace;
+}
+
+//adds a span describing a completed Policy API call to the trace passed
+function recordSpan(trace, span){
+  if(trace === null || trace === undefined){
+    return;
+  }
+  trace.policyCalls++;
+  if(trace.spans.length < maxSpansPerTrace){
+    span.offset = span.startedAt - trace.startedAt;
+    trace.spans.push(span);
+  }
+}
+
+var formatSpan = function(span){
+  return span.method + " " + span.path + (span.type ? " ("+span.type+")" : "") +
+    " status=" + span.status +
+    " offset=" + span.offset + "ms" +
+    " queued=" + span.queuedTime + "ms" +
+    " duration=" + span.duration + "ms" +
+    " requestBytes=" + span.requestBytes +
+    " responseBytes=" + span.responseBytes;
+};
+
+//logs the trace with each of its spans if the request took longer than the configured threshold
+var logIfSlow = function(trace, duration, statusCode){
+  if(appConfig.slowRequestThreshold <= 0 || duration < appConfig.slowRequestThreshold){
+    return;
+  }
+  var slowRequestMessage = "Slow request. Trace ID: " + trace.id + ", " + trace.method + " " + trace.url +
+    " (" + trace.operationId + ") returned " + statusCode + " in " + duration + "ms with " + trace.policyCalls + " Policy API calls.";
+  trace.spans.forEach(function(span){
+    slowRequestMessage += "\n  " + formatSpan(span);
+  });
+  if(trace.policyCalls > trace.spans.length){
+    slowRequestMessage += "\n  ... " + (trace.policyCalls - trace.spans.length) + " further calls not recorded.";
+  }
+  logger.warning(slowRequestMessage);
+};
+
+//creates a trace for the request and runs the remainder of the request handling within a domain holding the trace.
+//If the caller sent a valid correlation ID header it is used as the trace ID, the trace ID is returned on the response in the same header.
+function start(request, response, next){
+  var suppliedId = request.get(CORRELATION_ID_HEADER);
+  var trace = {
+    id: typeof(suppliedId) === 'string' && validCorrelationIdPattern.test(suppliedId) ? suppliedId : generateTraceId(),
+    method: request.method,
+    operationId: "unmatched",
+    policyCalls: 0,
+    spans: [],
+    startedAt: Date.now(),
+    url: request.originalUrl
+  };
+  response.set(CORRELATION_ID_HEADER, trace.id);
+  response.on('finish', function(){
+    var duration = Date.now() - trace.startedAt;
+    trace.operationId = swaggerHelper.getOperationId(request);
+    policyCallsPerRequest.observe({operation: trace.operationId}, trace.policyCalls);
+    logIfSlow(trace, duration, response.statusCode);
+  });
+
+  var requestDomain = domain.create();
+  requestDomain.requestTrace = trace;
+  requestDomain.run(next);
+}
@@ -32,18 +32,16 @@ var logLevels = {
   "ERROR": 4
 };
 
-//defines minimum level to log. 
-var logLevelSet = loggingConfigHelper.getLogLevel();
-//if environment doesn't specify a valid log level default to 'INFO'
-if(logLevelSet===null || logLevelSet===undefined || logLevels[logLevelSet]===undefined){
-  logLevelSet = "INFO";
-}
-//record this to avoid looking it up every time in 'logToConsole'
-var logLevelIndex = logLevels[logLevelSet];
+//returns the minimum level to log. Looked up on each call so that changes made to the log level while running take effect.
+var getLogLevelIndex = function(){
+  var logLevelIndex = logLevels[loggingConfigHelper.getLogLevel()];
+  //if a valid log level isn't set default to 'INFO'
+  return logLevelIndex===undefined ? logLevels["INFO"] : logLevelIndex;
+};
 
 var logToConsole = function(logLevel, logMessage){
   //only log at the level set and above
-  if(logLevels[logLevel]<logLevelIndex){
+  if(logLevels[logLevel]<getLogLevelIndex()){
     return;
   }
   //support passing a function to generate message. Avoids running logic like 'JSON.stringify(object)' if a message wouldn't be logged due to level settings.
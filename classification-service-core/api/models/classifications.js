@@ -25,11 +25,15 @@ var classificationsHelper = require('../helpers/classificationObjectsHelper.js')
 var apiErrorFactory = require('./errors/apiErrorFactory.js');
 var ApiError = require('./errors/apiError.js');
 var apiErrorTypes = require('./errors/apiErrorTypes.js');
+var errorResponseHelper = require('./errors/errorResponse.js');
+var appConfig = require('../config/classificationServiceConfig.js');
+var concurrencyHelper = require('../helpers/concurrencyHelper.js');
 var pagingHelper = require('../helpers/pagingHelper.js');
 var strUtils = require('../libs/stringUtils.js');
 
 module.exports = {
   create: create,
+  createClassifications: createClassifications,
   delete: deleteClassification,
   get: get,
   getClassificationConditionAndPolicy: getClassificationConditionAndPolicy,
@@ -38,13 +42,34 @@ module.exports = {
 };
 
 var defaultNoMatchMessage = "Unable to retrieve Classification with ID: ";
+var defaultNotAllMatchedMessage = "Unable to retrieve all Classifications with IDs: ";
 var defaultTermListsUsedNotFoundMessage = "Unable to find all Term List IDs specified in Classification.";
+var bulkCreateSucceeded = "CREATED";
+var bulkCreateFailed = "FAILED";
 
 function getNoClassificationMatchMessage(id){
   return defaultNoMatchMessage+id;
 }
 
-function create(createParams){
+//translates any classification API specific options on Classification to be created to their policy API equivalents
+//e.g. map classificationTarget to the include_descendants and target properties that policy API recognizes
+function prepareClassificationForCreate(createParams){
+  classificationApiToPolicy.updateClassificationToPolicyForm(createParams);
+  classificationsHelper.markConditionAsClassification(createParams);
+}
+
+//if the error was due to not finding Term Lists change the API Error type to invalid request. Logic of this decision is that item not found would be correct if the Term List was primary focus of request but here it is just a small part of the request and constitutes it being in an invalid state.
+function updateTermListsNotFoundErrorType(errorResponse){
+  if(errorResponse instanceof ApiError){
+    if(errorResponse.message === defaultTermListsUsedNotFoundMessage){
+      errorResponse.type = apiErrorTypes.INVALID_ARGUMENT;
+    }
+  }
+}
+
+//creates the Condition and Policy representing a Classification that has been prepared for create and had any Term Lists it uses validated.
+//If an error occurs any Condition or Policy already created is removed. Returns a promise resolving with the created Classification.
+function createConditionAndPolicy(createParams){
   var deferredCreate = Q.defer();
   
   var builtClassification;
@@ -52,33 +77,12 @@ function create(createParams){
   var conditionForUpdate;
   var createdPolicyId;  
   
-  //translate any classification API specific options to policy API equivalents
-  //e.g. map classificationTarget to the include_descendants and target properties that policy API recognizes
-  classificationApiToPolicy.updateClassificationToPolicyForm(createParams);
-  classificationsHelper.markConditionAsClassification(createParams);
-  
   //create condition before Policy as it is more likely to fail if caller provides invalid 'additional' property
-  //check that any Term Lists used in the Conditions exist
-  var termListIdsToCheck = classificationsHelper.getTermListIdsOnClassification(createParams);
-  var checkTermListsValidPromise;
-  if(termListIdsToCheck.length===0){
-    //no Term Lists in use on Classification, no need to query for Lexicons
-    logger.debug("No Term Lists used in Classification to be created, no validation query required for Term Lists.");
-    checkTermListsValidPromise = Q();
-  }
-  else{
-    logger.debug("Term Lists are used in Classification to be created, checking that all specified Term Lists exist.");
-    checkTermListsValidPromise  = lexiconsModel.getWithValidate(createParams.project_id, termListIdsToCheck, null, defaultTermListsUsedNotFoundMessage)
-  }
-  checkTermListsValidPromise.then(function(){
-    logger.debug("Any Term Lists passed to use in new Classification exist.");
-    
-    var createConditionParams = {
-      additional: createParams.additional,
-      name: "CREATE_PLACEHOLDER"
-    };
-    return conditionModel.create(createParams.project_id, createConditionParams);
-  })
+  var createConditionParams = {
+    additional: createParams.additional,
+    name: "CREATE_PLACEHOLDER"
+  };
+  conditionModel.create(createParams.project_id, createConditionParams)
   .then(function(createdCondition){
     conditionForUpdate = createdCondition;
     logger.debug("Created Condition to use for created Classification. Condition ID: "+createdCondition.id);
@@ -130,17 +134,173 @@ function create(createParams){
         logger.error("Failed to delete Policy created during Classification creation, Policy ID: "+ createdPolicyId +". Error: "+policyDeleteError);
       }).done();
     }
+    deferredCreate.reject(errorResponse);
+  }).done();
     
-    //if the error was due to not finding Term Lists change the API Error type to invalid request. Logic of this decision is that item not found would be correct if the Term List was primary focus of request but here it is just a small part of the request and constitutes it being in an invalid state.
-    if(errorResponse instanceof ApiError){
-      if(errorResponse.message === defaultTermListsUsedNotFoundMessage){
-        errorResponse.type = apiErrorTypes.INVALID_ARGUMENT;
+  return deferredCreate.promise;
+}
+
+function create(createParams){
+  var deferredCreate = Q.defer();
+  
+  prepareClassificationForCreate(createParams);
+  
+  //check that any Term Lists used in the Conditions exist
+  var termListIdsToCheck = classificationsHelper.getTermListIdsOnClassification(createParams);
+  var checkTermListsValidPromise;
+  if(termListIdsToCheck.length===0){
+    //no Term Lists in use on Classification, no need to query for Lexicons
+    logger.debug("No Term Lists used in Classification to be created, no validation query required for Term Lists.");
+    checkTermListsValidPromise = Q();
+  }
+  else{
+    logger.debug("Term Lists are used in Classification to be created, checking that all specified Term Lists exist.");
+    checkTermListsValidPromise  = lexiconsModel.getWithValidate(createParams.project_id, termListIdsToCheck, null, defaultTermListsUsedNotFoundMessage)
+  }
+  checkTermListsValidPromise.then(function(){
+    logger.debug("Any Term Lists passed to use in new Classification exist.");
+    return createConditionAndPolicy(createParams);
+  })
+  .then(function(createdClassification){
+    deferredCreate.resolve(createdClassification);
+  })
+  .fail(function(errorResponse){
+    updateTermListsNotFoundErrorType(errorResponse);
+    deferredCreate.reject(errorResponse);
+  }).done();
+    
+  return deferredCreate.promise;
+}
+
+//returns a promise resolving with an object whose keys are those of the Term List IDs passed that do not exist. All IDs are checked in a single
+//retrieve and only if that reports that some were not found is each ID checked individually, to find which are missing.
+function getMissingTermListIds(projectId, termListIds){
+  if(termListIds.length===0){
+    return Q({});
+  }
+  var deferredCheck = Q.defer();
+  lexiconsModel.getWithValidate(projectId, termListIds, null, defaultTermListsUsedNotFoundMessage)
+  .then(function(){
+    deferredCheck.resolve({});
+  })
+  .fail(function(errorResponse){
+    if(!(errorResponse instanceof ApiError) || errorResponse.type !== apiErrorTypes.ITEM_NOT_FOUND){
+      deferredCheck.reject(errorResponse);
+      return;
+    }
+    logger.debug("Not all Term Lists used in bulk Classification create exist, checking each Term List individually.");
+    concurrencyHelper.settleWithConcurrency(termListIds, appConfig.bulkConcurrency, function(termListId){
+      return lexiconsModel.getWithValidate(projectId, termListId, false);
+    })
+    .then(function(outcomes){
+      var missingTermListIds = {};
+      for(var outcomeIndex = 0; outcomeIndex < outcomes.length; outcomeIndex++){
+        var outcome = outcomes[outcomeIndex];
+        if(outcome.state === 'fulfilled'){
+          continue;
+        }
+        if(outcome.reason instanceof ApiError && outcome.reason.type === apiErrorTypes.ITEM_NOT_FOUND){
+          missingTermListIds[String(termListIds[outcomeIndex])] = true;
+          continue;
+        }
+        throw outcome.reason;
+      }
+      deferredCheck.resolve(missingTermListIds);
+    })
+    .fail(function(checkError){
+      deferredCheck.reject(checkError);
+    }).done();
+  }).done();
+  return deferredCheck.promise;
+}
+
+//builds the result reported for a Classification that could not be created in a bulk create
+function buildBulkCreateFailure(index, errorResponse){
+  var builtError = errorResponseHelper.create(errorResponse);
+  return {
+    error: builtError.response,
+    index: index,
+    status: bulkCreateFailed,
+    statusCode: builtError.statusCode
+  };
+}
+
+//creates multiple Classifications. The Term Lists used across all the Classifications are validated together, then the Classifications are
+//created in parallel, limited by the configured bulk concurrency. Each Classification is created or fails independently, a Classification that
+//fails has any Condition or Policy created for it removed. Returns a promise resolving with the result for each Classification, in the order passed.
+//bulkParams should have the properties;
+//classifications - array of Classifications to create, each in the form accepted by 'create'
+//project_id      - project to create the Classifications under
+function createClassifications(bulkParams){
+  var deferredCreate = Q.defer();
+  var classificationsToCreate = bulkParams.classifications;
+  var termListIdsPerClassification = [];
+  var allTermListIds = [];
+  var termListIdsSeen = {};
+  
+  var preparationErrors = [];
+  
+  for(var classificationToCreate of classificationsToCreate){
+    classificationToCreate.project_id = bulkParams.project_id;
+    //a Classification that cannot be prepared fails on its own rather than failing the whole request
+    var termListIds = [];
+    try{
+      prepareClassificationForCreate(classificationToCreate);
+      termListIds = classificationsHelper.getTermListIdsOnClassification(classificationToCreate);
+      preparationErrors.push(null);
+    }
+    catch(preparationError){
+      preparationErrors.push(preparationError);
+    }
+    termListIdsPerClassification.push(termListIds);
+    for(var termListId of termListIds){
+      if(termListIdsSeen[String(termListId)]===undefined){
+        termListIdsSeen[String(termListId)] = true;
+        allTermListIds.push(termListId);
       }
     }
-    
+  }
+  logger.debug("Creating "+classificationsToCreate.length+" Classifications using "+allTermListIds.length+" distinct Term Lists.");
+  
+  getMissingTermListIds(bulkParams.project_id, allTermListIds)
+  .then(function(missingTermListIds){
+    return concurrencyHelper.settleWithConcurrency(classificationsToCreate, appConfig.bulkConcurrency, function(classificationToCreate, index){
+      if(preparationErrors[index]!==null){
+        throw preparationErrors[index];
+      }
+      for(var termListId of termListIdsPerClassification[index]){
+        if(missingTermListIds[String(termListId)]!==undefined){
+          throw apiErrorFactory.createInvalidArgumentError(defaultTermListsUsedNotFoundMessage);
+        }
+      }
+      return createConditionAndPolicy(classificationToCreate);
+    });
+  })
+  .then(function(outcomes){
+    var createdCount = 0;
+    var results = outcomes.map(function(outcome, index){
+      if(outcome.state === 'fulfilled'){
+        createdCount++;
+        return {
+          classification: outcome.value,
+          index: index,
+          status: bulkCreateSucceeded
+        };
+      }
+      return buildBulkCreateFailure(index, outcome.reason);
+    });
+    logger.info("Bulk create of Classifications finished. Created: "+createdCount+", failed: "+(results.length - createdCount));
+    deferredCreate.resolve({
+      created: createdCount,
+      failed: results.length - createdCount,
+      results: results
+    });
+  })
+  .fail(function(errorResponse){
+    logger.error("Failed to create Classifications: "+strUtils.getString(errorResponse));
     deferredCreate.reject(errorResponse);
   }).done();
-    
+  
   return deferredCreate.promise;
 }
 
@@ -264,6 +424,54 @@ function getClassificationConditionAndPolicy(getParams){
   return deferredGet.promise;
 }
 
+//retrieves the Policies representing the Classifications with the IDs passed in a single request. Rejects with a not found error if any of the
+//Classifications do not exist. Returns a promise resolving with the retrieved Policies.
+function getPoliciesForClassificationIds(projectId, classificationIds){
+  var deferredGet = Q.defer();
+  //remove any repeated IDs so each Classification is only returned once
+  var idsSeen = {};
+  var idsToRetrieve = [];
+  for(var classificationId of classificationIds){
+    if(idsSeen[String(classificationId)]===undefined){
+      idsSeen[String(classificationId)] = true;
+      idsToRetrieve.push(classificationId);
+    }
+  }
+  logger.debug("Retrieving Policies for "+idsToRetrieve.length+" Classification IDs.");
+  policyModel.getPoliciesByIds(projectId, {
+    ids: idsToRetrieve
+  })
+  .then(function(retrievedPolicies){
+    if(retrievedPolicies.results.length !== idsToRetrieve.length){
+      throw apiErrorFactory.createNotFoundError(defaultNotAllMatchedMessage+idsToRetrieve);
+    }
+    deferredGet.resolve(retrievedPolicies);
+  })
+  .fail(function(errorResponse){
+    if(errorResponse.response && errorResponse.response.message === "Could not retrieve Policy"){
+      deferredGet.reject(apiErrorFactory.createNotFoundError(defaultNotAllMatchedMessage+idsToRetrieve, errorResponse.response.correlation_code));
+      return;
+    }
+    deferredGet.reject(errorResponse);
+  }).done();
+  return deferredGet.promise;
+}
+
+//orders Classifications to match the order their IDs were requested in
+function sortClassificationsByRequestedIds(classifications, requestedIds){
+  var positions = {};
+  requestedIds.forEach(function(requestedId, index){
+    if(positions[String(requestedId)]===undefined){
+      positions[String(requestedId)] = index;
+    }
+  });
+  classifications.sort(function(first, second){
+    return positions[String(first.id)] - positions[String(second.id)];
+  });
+}
+
+//retrieves Classifications a page at a time or, if 'ids' is set on getParams, the Classifications with those IDs. Each Classification is built
+//from its Policy and Condition, with all the Policies retrieved in one request and all their Conditions in a second.
 function getClassifications(getParams){
   var deferredGet = Q.defer();
 
@@ -271,8 +479,16 @@ function getClassifications(getParams){
   var classificationsMap = {};
   var classificationsTotalHits = 0;
   var classificationsToReturn = [];
-     
-  policyModel.getPolicies(getParams.project_id, getParams.pageNum, getParams.pageSize)
+  
+  var getPoliciesPromise;
+  if(getParams.ids!==undefined && getParams.ids!==null && getParams.ids.length > 0){
+    //retrieve only the Classifications requested, paging does not apply
+    getPoliciesPromise = getPoliciesForClassificationIds(getParams.project_id, getParams.ids);
+  }
+  else{
+    getPoliciesPromise = policyModel.getPolicies(getParams.project_id, getParams.pageNum, getParams.pageSize);
+  }
+  getPoliciesPromise
   .then(function(retrievedPolicies){
     logger.debug("Retrieved Policies to use in Classifications being retrieved.");
     classificationsTotalHits = retrievedPolicies.totalhits;
@@ -329,6 +545,9 @@ function getClassifications(getParams){
     return Q();
   })
   .then(function(){
+    if(getParams.ids!==undefined && getParams.ids!==null && getParams.ids.length > 0){
+      sortClassificationsByRequestedIds(classificationsToReturn, getParams.ids);
+    }
     //return Classifications
     deferredGet.resolve({
       classifications: classificationsToReturn,
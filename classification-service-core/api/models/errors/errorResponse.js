@@ -62,6 +62,10 @@ function create(errorResponse, statusCode){
     if(errorResponse.correlationCode){
       responseToSet.correlationCode = errorResponse.correlationCode;
     }
+    //objects created by a request before it failed, e.g. by a Workflow import, so the caller is able to remove them
+    if(errorResponse.created){
+      responseToSet.created = errorResponse.created;
+    }
     returnObject.statusCode = getStatusCodeFromApiErrorType(errorResponse.type);
   }
   else if(errorResponseType!=='object'){
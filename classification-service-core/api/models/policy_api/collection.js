@@ -14,7 +14,9 @@
  * limitations under the License.
  */
 var Q = require('q');
+var concurrencyHelper = require('../../helpers/concurrencyHelper.js');
 var httpHelper = require('../../helpers/httpPromiseHelper.js');
+var policyBatchHelper = require('../../helpers/policyBatchHelper.js');
 var policyHttpHelper = require('../../helpers/policyHttpHelper.js');
 var pagingHelper = require('../../helpers/pagingHelper.js');
 var apiErrorFactory = require('../errors/apiErrorFactory.js');
@@ -27,7 +29,6 @@ var getDefaultParams = function(projectId){
   };
 };
 
-//get a collection with the specified ID. 'include_condition' and 'include_children' can optionally be set. Returns a promise.
 module.exports = {
   create: create,
   delete: deleteCollection,
@@ -35,22 +36,23 @@ module.exports = {
   get: get,
   getCollections: getCollections,
   getCollectionsByIds: getCollectionsByIds,
+  removePoliciesFromAll: removePoliciesFromAll,
   update: update,
   validateCollectionExists: validateCollectionExists
 };
 
+//get a collection with the specified ID. 'include_condition' and 'include_children' can optionally be set. 
+//Retrieves made at the same time with the same options are combined into a single request for multiple IDs. Returns a promise.
 function get(projectId, collectionId, include_condition, include_children){
-  var getCollectionParams = getDefaultParams(projectId);
-  getCollectionParams.id = collectionId;
-  getCollectionParams.additional = {};
+  var additional = {};
   if(include_condition){    
-    getCollectionParams.additional.include_condition = true;
+    additional.include_condition = true;
   }
   if(include_children){
-    getCollectionParams.additional.include_children = true;
+    additional.include_children = true;
   }
   
-  return policyHttpHelper.genericPolicyAPIGetItemRequest("classification/retrieve", getCollectionParams);
+  return policyBatchHelper.getItem("classification/retrieve", projectId, getDefaultParams(projectId).type, collectionId, additional);
 }
 
 //gets collections in the system. Supports paging. Will not return detail about policyIds or conditions on Collection. Returns a promise.
@@ -106,6 +108,25 @@ function update(projectId, collection){
   
   return policyHttpHelper.genericPolicyAPIPostItemRequest("classification/update", updateCollectionParams);
 }
+//updates each of the Collections for the IDs passed to not refer to any Policies, as is required before deleting them. Policy API updates a single
+//Collection per request so at most 'concurrencyLimit' updates are sent at one time. Returns a promise resolving once all are updated,
+//rejecting with the first error encountered once every update has finished.
+function removePoliciesFromAll(projectId, collectionIds, concurrencyLimit){
+  return concurrencyHelper.settleWithConcurrency(collectionIds, concurrencyLimit, function(collectionId){
+    return update(projectId, {
+      id: collectionId,
+      name: "DELETE_PLACEHOLDER",
+      policyIds: []
+    });
+  })
+  .then(function(outcomes){
+    for(var outcome of outcomes){
+      if(outcome.state==='rejected'){
+        throw outcome.reason;
+      }
+    }
+  });
+}
 function deleteCollection(projectId, collectionId){
   var deleteCollectionParams = getDefaultParams(projectId);
   deleteCollectionParams.id = collectionId;
@@ -119,7 +140,7 @@ function deleteCollection(projectId, collectionId){
   .fail(function(errorResponse){
     deferredDelete.reject(errorResponse);
   }).done();
-  return deferredDelete;
+  return deferredDelete.promise;
 }
 //delete all Collections specified in the passed array. Returns a promise.
 function deleteAll(projectId, collectionIds){
@@ -135,7 +156,7 @@ function deleteAll(projectId, collectionIds){
   .fail(function(errorResponse){
     deferredDelete.reject(errorResponse);
   }).done();
-  return deferredDelete;
+  return deferredDelete.promise;
 }
 
 //Retuns a promise to check that a given Collection exists. Resolved result will be the retrieved Collection
@@ -14,6 +14,7 @@
  * limitations under the License.
  */
 var Q = require('q');
+var httpHelper = require('../../helpers/httpPromiseHelper.js');
 var policyHttpHelper = require('../../helpers/policyHttpHelper.js');
 var apiErrorFactory = require('../errors/apiErrorFactory.js');
 var pagingHelper = require('../../helpers/pagingHelper.js');
@@ -28,6 +29,7 @@ module.exports = {
     }
   },
   delete: deleteSequence,
+  deleteAll: deleteAll,
   get: get,
   getAllDetails: getAllDetails,
   getCollectionIdsFromEntries: getCollectionIdsFromEntries,
@@ -61,6 +63,24 @@ function deleteSequence(projectId, collectionSequenceId){
   .fail(function(errorResponse){
     deferredDelete.reject(errorResponse);
   }).done();
+  return deferredDelete.promise;
+}
+
+//deletes all collection sequences for the IDs passed. Returns a promise.
+function deleteAll(projectId, collectionSequenceIds){
+  var deleteCollectionSequenceParams = getDefaultParams(projectId);
+  deleteCollectionSequenceParams.id = collectionSequenceIds;
+
+  var deferredDelete = Q.defer();
+  var deletePromise = policyHttpHelper.genericPolicyAPIPostItemRequest("classification/delete", deleteCollectionSequenceParams);
+  deletePromise.then(function(result){
+    httpHelper.handleDeleteResponseAndThrow(result);
+    deferredDelete.resolve(result);
+  })
+  .fail(function(errorResponse){
+    deferredDelete.reject(errorResponse);
+  }).done();
+  return deferredDelete.promise;
 }
 //creates a collection sequence using the provided parameter object. Returns a promise.
 function create(projectId, collectionSequence){
@@ -162,7 +182,8 @@ function createCollectionEntry(collectionId, order){
 
 //Takes in an array of collection entries and removes any entries for the collection ids matching the passed in ID.
 function removeCollectionEntry(collectionEntries, collectionIdToRemove){
-  for(var entryIndex =0; entryIndex<collectionEntries.length; entryIndex++){
+  //iterate from the end so that removing an entry does not skip the entry after it
+  for(var entryIndex = collectionEntries.length - 1; entryIndex >= 0; entryIndex--){
     var collectionEntry = collectionEntries[entryIndex];
     //remove from the ids array on the entry
     var idofCollectionIdsEntry = collectionEntry.collection_ids.indexOf(collectionIdToRemove);
@@ -179,8 +200,8 @@ function removeCollectionEntry(collectionEntries, collectionIdToRemove){
 //Retuns an array of Collection IDs that are present on the Collection Sequence Collection Entries passed.
 function getCollectionIdsFromEntries(entries){
   var collectionIds = [];
-  for(var entryIndex =0; entryIndex<collectionEntries.length; entryIndex++){
-    var collectionEntry = collectionEntries[entryIndex];
+  for(var entryIndex =0; entryIndex<entries.length; entryIndex++){
+    var collectionEntry = entries[entryIndex];
     for(var collectionId of collectionEntry.collection_ids){
       if(collectionIds.indexOf(collectionId)===-1){
         collectionIds.push(collectionId);
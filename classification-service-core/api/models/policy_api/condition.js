@@ -15,6 +15,8 @@
  */
 var Q = require('q');
 var httpHelper = require('../../helpers/httpPromiseHelper.js');
+var policyBatchHelper = require('../../helpers/policyBatchHelper.js');
+var policyCacheHelper = require('../../helpers/policyCacheHelper.js');
 var policyHttpHelper = require('../../helpers/policyHttpHelper.js');
 var logger = require('../../logging/logging.js');
 var apiErrorFactory = require('../errors/apiErrorFactory.js');
@@ -31,19 +33,28 @@ module.exports = {
 };
 
 //returns a params object with common parameters for Collection. Takes in a project ID and uses that in the params.
+var conditionType = "condition";
 var getDefaultParams = function(projectId){
   return {
     project_id: projectId,
-    type: "condition"
+    type: conditionType
   };
 };
 
+//a change to a Condition can alter the children returned on its parent Conditions so all cached Conditions for the project are removed once the write completes. Returns the write promise.
+var invalidateConditionsOnSettle = function(projectId, writePromise){
+  return policyCacheHelper.invalidateOnSettle(writePromise, function(){
+    policyCacheHelper.flushType(projectId, conditionType);
+  });
+};
+
 function update(projectId, condition){
   var updateParams = getDefaultParams(projectId);
   updateParams.id = condition.id;
   updateParams.name = condition.name;
   updateParams.additional = condition.additional;
-  return policyHttpHelper.genericPolicyAPIPostItemRequest("classification/update", updateParams);
+  return invalidateConditionsOnSettle(projectId, 
+    policyHttpHelper.genericPolicyAPIPostItemRequest("classification/update", updateParams));
 }
 
 //create a condition using passed information. Returns a promise.
@@ -55,21 +66,19 @@ function create(projectId, condition){
     throw apiErrorFactory.createInvalidArgumentError("Invalid parameter passed for 'additional' property");
   }
   createConditionParams.additional = condition.additional;
-  return policyHttpHelper.genericPolicyAPIPostItemRequest("classification/create", createConditionParams);
+  return invalidateConditionsOnSettle(projectId,
+    policyHttpHelper.genericPolicyAPIPostItemRequest("classification/create", createConditionParams));
 }
 
-//get a condition with the specified ID. Returns a promise.
+//get a condition with the specified ID. Retrieves made at the same time are combined into a single request for multiple IDs. Returns a promise.
 function get(projectId, conditionId, includeChildren){
-  var getConditionParams = getDefaultParams(projectId);
-  getConditionParams.id = conditionId;
-  getConditionParams.additional = {};
-  if(includeChildren){
-    getConditionParams.additional.include_children = true;
-  }
-  else {
-    getConditionParams.additional.include_children = false;
-  }
-  return policyHttpHelper.genericPolicyAPIGetItemRequest("classification/retrieve", getConditionParams);
+  var additional = {
+    include_children: includeChildren ? true : false
+  };
+  return policyCacheHelper.readThrough(projectId, conditionType, conditionId,
+    additional.include_children ? "children" : "noChildren", function(){
+      return policyBatchHelper.getItem("classification/retrieve", projectId, conditionType, conditionId, additional);
+    });
 }
 
 //gets conditions with specified IDs. Returns a promise
@@ -102,7 +111,8 @@ function deleteCondition(projectId, conditionId){
   var deleteConditionParams = getDefaultParams(projectId);
   deleteConditionParams.id = conditionId;
   
-  var deletePromise = policyHttpHelper.genericPolicyAPIPostItemRequest("classification/delete", deleteConditionParams);
+  var deletePromise = invalidateConditionsOnSettle(projectId,
+    policyHttpHelper.genericPolicyAPIPostItemRequest("classification/delete", deleteConditionParams));
   var deferredDelete = Q.defer();
   deletePromise.then(function(resultOfDelete){
     httpHelper.handleDeleteResponseAndThrow(resultOfDelete);
@@ -119,7 +129,8 @@ function deleteAll(projectId, conditionIds){
   var deleteConditionParams = getDefaultParams(projectId);
   deleteConditionParams.id = conditionIds;
   
-  var deletePromise = policyHttpHelper.genericPolicyAPIPostItemRequest("classification/delete", deleteConditionParams);
+  var deletePromise = invalidateConditionsOnSettle(projectId,
+    policyHttpHelper.genericPolicyAPIPostItemRequest("classification/delete", deleteConditionParams));
   var deferredDelete = Q.defer();
   deletePromise.then(function(resultOfDelete){
     httpHelper.handleDeleteResponseAndThrow(resultOfDelete);
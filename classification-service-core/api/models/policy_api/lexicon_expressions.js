@@ -15,12 +15,15 @@
  */
 var Q = require('q');
 var apiErrorFactory = require('../errors/apiErrorFactory.js');
+var pagingHelper = require('../../helpers/pagingHelper.js');
 var policyHttpHelper = require('../../helpers/policyHttpHelper.js');
 
 module.exports = {
   delete: deleteExpression,
   deleteAll: deleteAll,
   get: get,
+  getByLexiconId: getByLexiconId,
+  getByLexiconIdFromStart: getByLexiconIdFromStart,
   getWithValidate: getWithValidate,
   update: update
 };
@@ -51,6 +54,37 @@ function get(projectId, id){
   return policyHttpHelper.genericPolicyAPIGetItemRequest("classification/retrieve", getParams);
 }
 
+//Returns a promise to retrieve a page of the Lexicon Expressions on a Lexicon. Paging is performed by Policy API so only the requested page is returned,
+//the result has a 'totalhits' property giving the total number of Lexicon Expressions on the Lexicon.
+//projectId   - project_id to use in retrieving expressions
+//lexiconId   - ID of the Lexicon that expressions must be on
+//pageNum     - Optional. The page number to return results from. Defaults to 1.
+//pageSize    - Optional. The max number of expressions to return. Defaults to 100.
+function getByLexiconId(projectId, lexiconId, pageNum, pageSize){
+  var pageOptions = pagingHelper.getValidatedPagingParams(pageNum, pageSize);
+  return getByLexiconIdFromStart(projectId, lexiconId, pageOptions.start, pageOptions.pageSize);
+}
+
+//Returns a promise to retrieve the Lexicon Expressions on a Lexicon beginning at a position in the full set, rather than a page number.
+//Used when reading through all expressions as Policy API may return fewer than the size requested, which would cause expressions to be
+//skipped if the next page number were requested. The result has a 'totalhits' property as for getByLexiconId.
+//projectId   - project_id to use in retrieving expressions
+//lexiconId   - ID of the Lexicon that expressions must be on
+//start       - The 1-based position of the first expression to return.
+//pageSize    - Optional. The max number of expressions to return. Defaults to 100.
+function getByLexiconIdFromStart(projectId, lexiconId, start, pageSize){
+  var pageOptions = pagingHelper.getValidatedPagingParams(1, pageSize);
+  var getExpressionsParams = getDefaultParams(projectId);
+  getExpressionsParams.additional = {
+    filter: {
+      lexicon_id: lexiconId
+    }
+  };
+  getExpressionsParams.max_page_results = pageOptions.pageSize;
+  getExpressionsParams.start = start;
+  return policyHttpHelper.genericPolicyAPIGetItemsRequest("classification/retrieve", getExpressionsParams);
+}
+
 var defaultNoMatchMessage = "Unable to find Lexicon Expression with ID: ";
 //Retuns a promise to check that a given Lexicon Expression exists. Resolved result will be the retrieved Lexicon Expression
 function getWithValidate(projectId, id, noMatchMessage){
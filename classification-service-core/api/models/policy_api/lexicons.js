@@ -15,6 +15,7 @@
  */
 var Q = require('q');
 var pagingHelper = require('../../helpers/pagingHelper.js');
+var policyCacheHelper = require('../../helpers/policyCacheHelper.js');
 var policyHttpHelper = require('../../helpers/policyHttpHelper.js');
 var apiErrorFactory = require('../errors/apiErrorFactory.js');
 
@@ -32,10 +33,11 @@ var defaultNoMatchMessage = "Unable to find Lexicon with ID: ";
 var defaultNotAllMatchedMessage = "Unable to find all Lexicons using IDs: ";
 
 //returns a params object with common parameters for Lexicons. Takes in a project ID and uses that in the params.
+var lexiconType = "lexicon";
 function getDefaultParams(projectId){
   return {
     project_id: projectId,
-    type: "lexicon"
+    type: lexiconType
   };
 }
 
@@ -53,25 +55,29 @@ function create(projectId, lexicon){
 function deleteLexicon(projectId, id){
   var deleteLexiconParams = getDefaultParams(projectId);
   deleteLexiconParams.id = id;
-  return policyHttpHelper.genericPolicyAPIPostItemRequest("classification/delete", deleteLexiconParams);
+  return policyCacheHelper.invalidateOnSettle(
+    policyHttpHelper.genericPolicyAPIPostItemRequest("classification/delete", deleteLexiconParams), function(){
+      policyCacheHelper.delete(projectId, lexiconType, id);
+    });
 }
 
 //returns a promise to retrieve a Lexicon based on ID passed in. By default the lexicon expressions will not be returned and can be controlled by the 'getExpressions' parameter.
+//Only Lexicons retrieved without expressions are cached, the expressions on a Lexicon may be too large to hold in the cache.
 function get(projectId, id, getExpressions){
   var getLexiconParams = getDefaultParams(projectId);
   if(getExpressions){
     getLexiconParams.id = id;  
+    return policyHttpHelper.genericPolicyAPIGetItemRequest("classification/retrieve", getLexiconParams);
   }
-  else{
-    //when using filter Lexicon expressions are not returned
-    getLexiconParams.additional = {
-      filter: {
-        "id": id
-      }
-    };
-  }
-  
-  return policyHttpHelper.genericPolicyAPIGetItemRequest("classification/retrieve", getLexiconParams);
+  //when using filter Lexicon expressions are not returned
+  getLexiconParams.additional = {
+    filter: {
+      "id": id
+    }
+  };
+  return policyCacheHelper.readThrough(projectId, lexiconType, id, null, function(){
+    return policyHttpHelper.genericPolicyAPIGetItemRequest("classification/retrieve", getLexiconParams);
+  });
 }
 
 function getLexicons(projectId, pageNum, pageSize){
@@ -161,5 +167,8 @@ function update(projectId, updatedLexicon, overwrite){
     updateParams.update_behaviour = updateBehaviour;
   }
 
-  return policyHttpHelper.genericPolicyAPIPostItemRequest("classification/update", updateParams);  
+  return policyCacheHelper.invalidateOnSettle(
+    policyHttpHelper.genericPolicyAPIPostItemRequest("classification/update", updateParams), function(){
+      policyCacheHelper.delete(projectId, lexiconType, updatedLexicon.id);
+    });
 }
\ No newline at end of file
@@ -14,11 +14,11 @@
  * limitations under the License.
  */
 var Q = require('q');
-var NodeCache = require( "node-cache" );
-var appConfig = require('../../config/classificationServiceConfig.js');
 var httpHelper = require('../../helpers/httpPromiseHelper.js');
+var policyBatchHelper = require('../../helpers/policyBatchHelper.js');
+var policyCacheHelper = require('../../helpers/policyCacheHelper.js');
 var policyHttpHelper = require('../../helpers/policyHttpHelper.js');
-var errorResponseHelper = require('../errors/errorResponse.js');
+var logger = require('../../logging/logging.js');
 var apiErrorFactory = require('../errors/apiErrorFactory.js');
 var pagingHelper = require('../../helpers/pagingHelper.js');
 
@@ -34,36 +34,21 @@ module.exports = {
 };
 
 //returns a params object with common parameters for Policy. Takes in a project ID and uses that in the params.
+var policyType = "policy";
 var getDefaultParams = function(projectId){
   return {
     project_id: projectId,
-    type: "policy"
+    type: policyType
   };
 };
 
-//setting up caches
-var policyCache = new NodeCache({
-  stdTTL: appConfig.cacheDuration
-});
-var buildCacheKey = function(projectId, typeId){
-  return projectId + typeId;
-};
-
 //get a policy with the specified ID. Returns a promise.
 function get(projectId, policyId){
-  //if this Policy is already in the cache then return it (wrapped in a promise)
-  var cachedPolicy = policyCache.get(buildCacheKey(projectId, policyId));
-  if(cachedPolicy!==undefined){
-    return Q(cachedPolicy);
-  }
-  var getPolicyParams = getDefaultParams(projectId);
-  getPolicyParams.id = policyId;
-  
-  var getPolicyPromise = policyHttpHelper.genericPolicyAPIGetItemRequest("policy/retrieve", getPolicyParams);
-  getPolicyPromise.then(function(result){
-    policyCache.set(buildCacheKey(projectId, policyId), result);
+  //if this Policy is already in the cache then it is returned (wrapped in a promise)
+  //retrieves made at the same time are combined into a single request for multiple IDs
+  return policyCacheHelper.readThrough(projectId, policyType, policyId, null, function(){
+    return policyBatchHelper.getItem("policy/retrieve", projectId, policyType, policyId);
   });
-  return getPolicyPromise;
 }
 
 //get policies using specified paging parameters. Returns a promise
@@ -85,7 +70,7 @@ function getPoliciesByIds(projectId, params){
   var policiesFromCache = [];
   //see if we have any of these Policies already in the cache to avoid requesting them again
   for(var policyId of params.ids){
-    var policyFromCache = policyCache.get(buildCacheKey(projectId, policyId));
+    var policyFromCache = policyCacheHelper.get(projectId, policyType, policyId);
     if(policyFromCache===undefined){
       idsToRequest.push(policyId);
     }
@@ -109,7 +94,7 @@ function getPoliciesByIds(projectId, params){
   .then(function(returnedPolicies){
     //add these retrieved entries to the cache
     for(var returnedPolicy of returnedPolicies.results){
-      policyCache.set(buildCacheKey(projectId, returnedPolicy.id), returnedPolicy);
+      policyCacheHelper.set(projectId, policyType, returnedPolicy.id, null, returnedPolicy);
     }
     //add those that were already in the cache to the results
     returnedPolicies.totalhits += policiesFromCache.length;
@@ -139,11 +124,7 @@ function create(projectId, policy){
   else{
     createPolicyParams.additional = policy.additional;
   }
-  var createPromise = policyHttpHelper.genericPolicyAPIPostItemRequest("policy/create", createPolicyParams);
-  createPromise.then(function(result){
-    policyCache.set(buildCacheKey(projectId, result.id), result);
-  });
-  return createPromise;
+  return policyHttpHelper.genericPolicyAPIPostItemRequest("policy/create", createPolicyParams);
 }
 
 //update a policy with the specified object passed
@@ -163,12 +144,10 @@ function update(projectId, policy){
     updatePolicyParams.additional = policy.additional;
   }
   var updatePromise = policyHttpHelper.genericPolicyAPIPostItemRequest("policy/update", updatePolicyParams);
-  //update the entry on the cache
-  updatePromise.then(function(result){
-    policyCache.set(buildCacheKey(projectId, policy.id), result);
+  //remove the previous version of the Policy from the cache
+  return policyCacheHelper.invalidateOnSettle(updatePromise, function(){
+    policyCacheHelper.delete(projectId, policyType, policy.id);
   });
-  
-  return updatePromise;
 }
 //delete a policy with specified ID. Returns a promise.
 function deletePolicy(projectId, policyId){
@@ -176,10 +155,10 @@ function deletePolicy(projectId, policyId){
   deletePolicyParams.id = policyId;
 
   var deferredDelete = Q.defer();
-  var deletePromise = policyHttpHelper.genericPolicyAPIPostItemRequest("policy/delete", deletePolicyParams);
-  deletePromise.then(function(result){
-    policyCache.del(buildCacheKey(projectId, policyId));
-  });
+  var deletePromise = policyCacheHelper.invalidateOnSettle(
+    policyHttpHelper.genericPolicyAPIPostItemRequest("policy/delete", deletePolicyParams), function(){
+      policyCacheHelper.delete(projectId, policyType, policyId);
+    });
   deletePromise.then(function(result){
     //if Policy API can't delete it returns 200 status and a body conveying error.
     httpHelper.handleDeleteResponseAndThrow(result);
@@ -197,16 +176,12 @@ function deleteAll(projectId, policyIds){
   deletePolicyParams.id = policyIds;
 
   var deletePromise = policyHttpHelper.genericPolicyAPIPostItemRequest("policy/delete", deletePolicyParams);
-  deletePromise.then(function(result){
-    for(var policyId of policyIds){
-      policyCache.del(buildCacheKey(projectId, policyId));
-    }
-  })
-  .fail(function(errorResponse){
-    errorResponseHelper.writeErrorToLog(errorResponse);
-  })
-  .done();
-  return deletePromise;
+  deletePromise.fail(function(errorResponse){
+    logger.error("Failure deleting Policies with IDs: "+policyIds+". "+JSON.stringify(errorResponse));
+  });
+  return policyCacheHelper.invalidateOnSettle(deletePromise, function(){
+    policyCacheHelper.delete(projectId, policyType, policyIds);
+  });
 }
 
 function validatePolicyExists(projectId, policyId, notFoundMessage){
@@ -16,8 +16,8 @@
 var Q = require('q');
 var logger = require('../../logging/logging.js');
 var pagingHelper = require('../../helpers/pagingHelper.js');
+var policyCacheHelper = require('../../helpers/policyCacheHelper.js');
 var policyHttpHelper = require('../../helpers/policyHttpHelper.js');
-var promiseHelper = require('../../helpers/httpPromiseHelper.js');
 var apiErrorFactory = require('../errors/apiErrorFactory.js');
 
 module.exports = {
@@ -30,10 +30,11 @@ module.exports = {
 };
 
 //returns a params object with common parameters for a Workflow. Takes in a project ID and uses that in the params.
+var workflowType = "sequence_workflow";
 var getDefaultWorkflowParams = function(projectId){
   return {
     project_id: projectId,
-    type: "sequence_workflow"
+    type: workflowType
   };
 };
 
@@ -52,12 +53,21 @@ function deleteWorkflowById(project_id, workflowId){
   var deleteParams = getDefaultWorkflowParams(project_id);
   deleteParams.id = workflowId;
   
-  return policyHttpHelper.genericPolicyAPIPostItemRequest("workflow/delete", deleteParams);
+  return policyCacheHelper.invalidateOnSettle(
+    policyHttpHelper.genericPolicyAPIPostItemRequest("workflow/delete", deleteParams), function(){
+      policyCacheHelper.delete(project_id, workflowType, workflowId);
+    });
 }
 
 //Returns a promise to retrieve a Workflow by it's ID. Returns a promise.
 function getWorkflowById(project_id, workflowId){
-  var deferredGet = Q.defer();
+  return policyCacheHelper.readThrough(project_id, workflowType, workflowId, null, function(){
+    return retrieveWorkflowById(project_id, workflowId);
+  });
+}
+
+//retrieves a Workflow by its ID from Policy API. Returns a promise.
+function retrieveWorkflowById(project_id, workflowId){
   var getParams = getDefaultWorkflowParams(project_id);
   getParams.id = workflowId;
   
@@ -67,18 +77,17 @@ function getWorkflowById(project_id, workflowId){
       workflowRetrieveResult.totalhits === 0 || 
       workflowRetrieveResult.results === null || workflowRetrieveResult.results === undefined ){
       //the API should complain and throw an error if Workflow not found but we will handle it just in case.
-      logger.logError('No match returned for the Workflow requested. ID: '+getWorkflowParams.workflowId);
-      throw new Error('No match returned for the Workflow requested. ID: '+getWorkflowParams.workflowId);
+      logger.error('No match returned for the Workflow requested. ID: '+workflowId);
+      throw new Error('No match returned for the Workflow requested. ID: '+workflowId);
     }
     if(workflowRetrieveResult.totalhits > 1){
-      logger.logWarn('More than one result returned when retrieving a Workflow by ID: '+ getWorkflowParams.workflowId);
+      logger.warn('More than one result returned when retrieving a Workflow by ID: '+ workflowId);
     }
     return workflowRetrieveResult.results[0];
   };
   
-  policyHttpHelper.policyAPIGetRequest("workflow/retrieve", getParams, 
-    promiseHelper.handlePotentialSuccess(deferredGet, workflowExtract), promiseHelper.handleFailure(deferredGet));
-  return deferredGet.promise;
+  return policyHttpHelper.genericPolicyAPIGetItemsRequest("workflow/retrieve", getParams)
+    .then(workflowExtract);
 }
 
 function getWorkflows(project_id, pageNum, pageSize){
@@ -98,7 +107,10 @@ function update(project_id, updatedWorkflow){
   updateParams.id = updatedWorkflow.id;
   updateParams.name = updatedWorkflow.name;
     
-  return policyHttpHelper.genericPolicyAPIPostItemRequest("workflow/update", updateParams);
+  return policyCacheHelper.invalidateOnSettle(
+    policyHttpHelper.genericPolicyAPIPostItemRequest("workflow/update", updateParams), function(){
+      policyCacheHelper.delete(project_id, workflowType, updatedWorkflow.id);
+    });
 }
 
 //Retuns a promise to check that a given Policy Workflow exists. Resolved result will be the retrieved Policy Workflow. Allows passing in a custom message to return when the specified Workflow is not found.
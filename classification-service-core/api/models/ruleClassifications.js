@@ -16,6 +16,7 @@
 //represents operations that can be performed on Classification Service "Rule Classifications"
 var Q = require('q');
 var logger = require('../logging/logging.js');
+var appConfig = require('../config/classificationServiceConfig.js');
 //ERRORS
 var apiErrorFactory = require('./errors/apiErrorFactory.js');
 //HELPERS
@@ -104,6 +105,8 @@ function create(createParams){
   return deferredCreate.promise;
 }
 
+//deletes all Rule Classifications on a Classification Rule. The Collections are removed from the Sequence, updated to not refer to Policies with a bounded
+//number of updates in flight, then the Collections and their Conditions are each deleted in a single request for multiple IDs.
 function deleteAll(deleteParams){
   var deferredDelete = Q.defer();
   
@@ -122,18 +125,13 @@ function deleteAll(deleteParams){
     
     logger.debug("Checking Collection entries on validated Collection Sequence for Rule Classification deletion.");
     colSeq = validateResult.collectionSequence;
-    ruleClassTotalHits = colSeq.additional.collection_sequence_entries.length;
-    if(ruleClassTotalHits===0){
+    var collectionEntries = colSeq.additional.collection_sequence_entries;
+    if(collectionEntries===undefined || collectionEntries===null || collectionEntries.length===0){
       logger.debug("No Rule Classifications to delete on the Classification Rule: "+deleteParams.classificationRuleId);
-      deferredDelete.resolve({});
       return Q({complete: true});
     }
     logger.debug("Extracting Collection IDs to delete from retrieved Collection Sequence ID: "+colSeq.id);
-    for(var collectionEntry of colSeq.additional.collection_sequence_entries){
-      for(var collectionId of collectionEntry.collection_ids){
-        collectionIdsToDelete.push(collectionId);
-      }
-    }
+    collectionIdsToDelete = colSeqModel.getCollectionIdsFromEntries(collectionEntries);
     logger.debug("Removing Collection entries from Collection Sequence: "+colSeq.id);
     policyApiObjectsHelper.removeAllCollectionEntriesFromCollectionSequence(colSeq);
     //save the collection sequence
@@ -143,61 +141,45 @@ function deleteAll(deleteParams){
       name: colSeq.name,
       description: colSeq.description
     };    
-    return colSeqModel.update(deleteParams.project_id, updateCollectionSequenceParams);
-  })
-  .then(function(updateResult){
-    if(updateResult.complete===true){
-      return Q({complete: true});
-    }
-    logger.debug("Removed Collection Entries from Collection Sequence ID: "+colSeq.id);
-    //need to retrieve Collection details to get the Condition in use on each (so we can remove it later)
-    logger.debug("Retrieving Collection details to get Conditions on each.");
-    var getCollectionsByIdsParams = {
-      ids: collectionIdsToDelete,
-      includeCondition: true
-    };
-    return collectionModel.getCollectionsByIds(deleteParams.project_id, getCollectionsByIdsParams);
-  })
-  .then(function(retrievedCollections){
-    logger.debug("Retrieved Collections. Extracting Condition IDs for deletion.");
-        
-    var updatePromises = [];
-    for(var collection of retrievedCollections.results){
-      var updateCollectionParams = {
-        policyIds: [],
-        id: collection.id,
-        name: "DELETE_PLACEHOLDER"
+    return colSeqModel.update(deleteParams.project_id, updateCollectionSequenceParams)
+    .then(function(){
+      logger.debug("Removed Collection Entries from Collection Sequence ID: "+colSeq.id);
+      //need to retrieve Collection details to get the Condition in use on each (so we can remove it later)
+      logger.debug("Retrieving Collection details to get Conditions on each.");
+      var getCollectionsByIdsParams = {
+        ids: collectionIdsToDelete,
+        includeCondition: true
       };
-      updatePromises.push(collectionModel.update(deleteParams.project_id, updateCollectionParams));
-      
-      if(collection.additional.condition){
-        conditionsToDelete.push(collection.additional.condition.id);
-      }      
-    }
-    logger.debug("Updating Collections to not have references to Policies.");
-    return updatePromises;
-  })
-  .all()
-  .then(function(updateResult){
-    if(updateResult.complete===true){
-      return Q({complete: true});
-    }
-    logger.debug("Updated Collections to not refer to Policies as part of deleting Rule Classifications under Classification Rule: "+colSeq.id);
-    logger.debug("Attempting to delete Collections that were part of Collection Sequence: "+colSeq.id);
-    return collectionModel.deleteAll(deleteParams.project_id, collectionIdsToDelete);
-  })
-  .then(function(deleteResult){
-    if(deleteResult.complete===true){
-      return Q({complete: true});
-    }
-    logger.debug("Deleted Collections under Collection Sequence ID: "+deleteParams.classificationRuleId);
-    return conditionModel.deleteAll(deleteParams.project_id, conditionsToDelete);
+      return collectionModel.getCollectionsByIds(deleteParams.project_id, getCollectionsByIdsParams);
+    })
+    .then(function(retrievedCollections){
+      logger.debug("Retrieved Collections. Extracting Condition IDs for deletion.");
+      for(var collection of retrievedCollections.results){
+        if(collection.additional.condition){
+          conditionsToDelete.push(collection.additional.condition.id);
+        }
+      }
+      logger.debug("Updating "+collectionIdsToDelete.length+" Collections to not have references to Policies.");
+      return collectionModel.removePoliciesFromAll(deleteParams.project_id, collectionIdsToDelete, appConfig.bulkConcurrency);
+    })
+    .then(function(){
+      logger.debug("Updated Collections to not refer to Policies as part of deleting Rule Classifications under Classification Rule: "+colSeq.id);
+      logger.debug("Attempting to delete Collections that were part of Collection Sequence: "+colSeq.id);
+      return collectionModel.deleteAll(deleteParams.project_id, collectionIdsToDelete);
+    })
+    .then(function(){
+      logger.debug("Deleted Collections under Collection Sequence ID: "+deleteParams.classificationRuleId);
+      if(conditionsToDelete.length===0){
+        return;
+      }
+      return conditionModel.deleteAll(deleteParams.project_id, conditionsToDelete);
+    })
+    .then(function(){
+      logger.debug("Removed Root Conditions for Rule Classifications.");
+      return {};
+    });
   })
-  .then(function(deleteResult){
-    if(deleteResult.complete===true){
-      return Q({complete: true});
-    }
-    logger.debug("Removed Root Conditions for Rule Classifications.");
+  .then(function(){
     logger.debug("Rule Classifications removed from Classification Rule.");
     deferredDelete.resolve({});
   })
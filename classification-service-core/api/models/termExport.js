@@ -0,0 +1,82 @@
+/*
+ * Copyright 2015-2017 EntIT Software LLC, a Micro Focus company.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+//exports all of the Terms on a Term List as a stream of newline delimited JSON. Terms are retrieved from Policy API a page at a time as the
+//stream is read, so only a page of Terms is held in memory regardless of the size of the Term List.
+var Readable = require('stream').Readable;
+var appConfig = require('../config/classificationServiceConfig.js');
+var lexiconModel = require('./policy_api/lexicons.js');
+var lexiconExpressionsModel = require('./policy_api/lexicon_expressions.js');
+var policyToProcessingHelper = require('../helpers/policyApiToClassificationApiHelper.js');
+var logger = require('../logging/logging.js');
+
+module.exports = {
+  exportTerms: exportTerms
+};
+
+//returns a readable stream of the Terms on the Lexicon, one JSON object per line. The next page is only retrieved once the
+//consumer of the stream has read the previous page. The stream emits 'error' if a page cannot be retrieved.
+var createTermStream = function(projectId, termListId){
+  var pageSize = appConfig.exportPageSize;
+  var termsRetrieved = 0;
+  var retrieving = false;
+  var finished = false;
+  var termStream = new Readable({
+    read: function(){
+      if(retrieving || finished){
+        return;
+      }
+      retrieving = true;
+      var start = termsRetrieved + 1;
+      //request from the position after the last Term retrieved, Policy API may return fewer Terms than the page size so a page number would skip Terms
+      lexiconExpressionsModel.getByLexiconIdFromStart(projectId, termListId, start, pageSize)
+      .then(function(retrievedExpressions){
+        retrieving = false;
+        var expressions = retrievedExpressions.results ? retrievedExpressions.results : [];
+        logger.debug(function(){return "Retrieved Terms from position "+start+" for export from Term List "+termListId+", "+expressions.length+" Terms.";});
+        termsRetrieved += expressions.length;
+        //stop on the total reported or an empty page rather than a partial page
+        finished = expressions.length === 0 || termsRetrieved >= retrievedExpressions.totalhits;
+        var pageOutput = "";
+        for(var expression of expressions){
+          pageOutput += JSON.stringify(policyToProcessingHelper.buildTermFromLexiconExpression(expression)) + "\n";
+        }
+        if(pageOutput.length > 0){
+          termStream.push(pageOutput);
+        }
+        if(finished){
+          termStream.push(null);
+        }
+      })
+      .fail(function(errorResponse){
+        retrieving = false;
+        finished = true;
+        termStream.emit('error', errorResponse);
+      }).done();
+    }
+  });
+  return termStream;
+};
+
+//Returns a promise resolving, once the Term List is verified to exist, with a readable stream of the Terms on it as newline delimited JSON.
+//exportParams should have the properties;
+//project_id  - the project the Term List belongs to
+//termListId  - the ID of the Term List to export
+function exportTerms(exportParams){
+  return lexiconModel.getWithValidate(exportParams.project_id, exportParams.termListId, false, "Unable to find Term List with ID: " + exportParams.termListId)
+  .then(function(){
+    return createTermStream(exportParams.project_id, exportParams.termListId);
+  });
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2015-2017 EntIT Software LLC, a Micro Focus company.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+//imports Terms onto a Term List from a stream. Terms are read a line at a time and added to the Term List in chunks as they are read,
+//so that the full set of Terms is never held in memory or sent to Policy API in a single request.
+var util = require('util');
+var appConfig = require('../config/classificationServiceConfig.js');
+var lexiconModel = require('./policy_api/lexicons.js');
+var classificationApiToPolicyHelper = require('../helpers/classificationApiToPolicyHelper.js');
+var termImportHelper = require('../helpers/termImportHelper.js');
+var jobs = require('../libs/jobs.js');
+var logger = require('../logging/logging.js');
+
+module.exports = {
+  importTerms: importTerms
+};
+
+var termImportJobType = "TERM_IMPORT";
+//limit on the length of a single line, protects against input with no line breaks being buffered in full
+var maxLineLength = 1048576;
+
+var describeError = function(errorResponse){
+  return typeof(errorResponse) === 'string' ? errorResponse : util.inspect(errorResponse);
+};
+
+//reads Terms from the stream and adds them to the Lexicon, updating the progress on the job as it goes.
+//The stream is paused while the maximum number of chunks are being written so that Terms are not read faster than they can be written.
+var runImport = function(job, retrievedLexicon, importParams, inputStream){
+  var progress = job.progress;
+  var currentChunk = [];
+  var pendingChunks = [];
+  var inFlightChunks = 0;
+  var inputEnded = false;
+  var stopped = false;
+  var finished = false;
+
+  var finishIfDone = function(){
+    if(finished || !inputEnded || inFlightChunks > 0 || pendingChunks.length > 0){
+      return;
+    }
+    finished = true;
+    jobs.complete(job);
+    logger.info(function(){return "Term import job "+job.id+" for Term List "+importParams.termListId+" finished with status "+job.status+
+      ". Progress: "+JSON.stringify(progress);});
+  };
+
+  //no further Terms are written after a failure. The rest of the input is read and discarded so that the request completes.
+  var stopImport = function(message){
+    if(stopped){
+      return;
+    }
+    stopped = true;
+    currentChunk = [];
+    pendingChunks = [];
+    jobs.addError(job, message);
+    if(!inputEnded){
+      inputStream.resume();
+    }
+  };
+
+  var dispatchChunks;
+  var writeChunk = function(terms){
+    inFlightChunks++;
+    var updateLexiconParams = {
+      description: retrievedLexicon.description,
+      id: importParams.termListId,
+      lexiconExpressions: classificationApiToPolicyHelper.buildLexiconExpressionsFromTerms(terms, importParams.termListId),
+      name: retrievedLexicon.name
+    };
+    //do not overwrite, add the Terms to those already on the Term List
+    lexiconModel.update(importParams.project_id, updateLexiconParams, false)
+    .then(function(){
+      progress.chunksWritten++;
+      progress.termsImported += terms.length;
+    })
+    .fail(function(errorResponse){
+      progress.termsFailed += terms.length;
+      stopImport("Failed to add Terms to Term List: "+describeError(errorResponse));
+    })
+    .fin(function(){
+      inFlightChunks--;
+      dispatchChunks();
+    }).done();
+  };
+
+  dispatchChunks = function(){
+    while(!stopped && pendingChunks.length > 0 && inFlightChunks < appConfig.importMaxInFlightChunks){
+      writeChunk(pendingChunks.shift());
+    }
+    if(!inputEnded && !stopped){
+      if(pendingChunks.length > 0){
+        inputStream.pause();
+      }
+      else {
+        inputStream.resume();
+      }
+    }
+    finishIfDone();
+  };
+
+  var lineReader = termImportHelper.createLineReader(function(line, lineNumber){
+    if(stopped){
+      return;
+    }
+    progress.linesRead++;
+    var term;
+    try{
+      term = termImportHelper.parseTerm(importParams.format, line, lineNumber);
+    }
+    catch(e){
+      progress.invalidLines++;
+      jobs.addError(job, "Line "+lineNumber+": "+e.message);
+      return;
+    }
+    if(term===null){
+      return;
+    }
+    currentChunk.push(term);
+    if(currentChunk.length >= appConfig.importChunkSize){
+      pendingChunks.push(currentChunk);
+      currentChunk = [];
+    }
+  }, function(error){
+    stopImport(error.message);
+  }, maxLineLength);
+
+  var endInput = function(){
+    inputEnded = true;
+    dispatchChunks();
+  };
+  inputStream.on('data', function(data){
+    if(stopped){
+      return;
+    }
+    lineReader.write(data);
+    dispatchChunks();
+  });
+  inputStream.on('end', function(){
+    if(!stopped){
+      lineReader.end();
+      if(currentChunk.length > 0){
+        pendingChunks.push(currentChunk);
+        currentChunk = [];
+      }
+    }
+    endInput();
+  });
+  inputStream.on('aborted', function(){
+    stopImport("Request was aborted before all Terms were received.");
+    endInput();
+  });
+  inputStream.on('error', function(error){
+    stopImport("Error reading Terms from request: "+error);
+    endInput();
+  });
+};
+
+//Starts importing Terms from a stream onto a Term List. Returns a promise resolving, once the Term List is verified to exist, with a job
+//that may be used to check the progress of the import. Terms continue to be read from the stream and added to the Term List after the promise resolves.
+//importParams should have the properties;
+//format      - the format of the Terms in the stream, 'NDJSON' or 'CSV' as defined on termImportHelper
+//project_id  - the project the Term List belongs to
+//termListId  - the ID of the Term List to add the Terms to
+function importTerms(importParams, inputStream){
+  return lexiconModel.getWithValidate(importParams.project_id, importParams.termListId, false, "Unable to find Term List with ID: " + importParams.termListId)
+  .then(function(retrievedLexicon){
+    var job = jobs.create(termImportJobType, importParams.project_id);
+    job.progress = {
+      chunksWritten: 0,
+      invalidLines: 0,
+      linesRead: 0,
+      termsFailed: 0,
+      termsImported: 0
+    };
+    logger.info("Starting Term import job "+job.id+" for Term List "+importParams.termListId+" in format "+importParams.format);
+    runImport(job, retrievedLexicon, importParams, inputStream);
+    return jobs.toOutput(job);
+  })
+  .fail(function(errorResponse){
+    //discard the request body as no Terms will be imported
+    inputStream.resume();
+    throw errorResponse;
+  });
+}
@@ -19,7 +19,6 @@ var lexiconModel = require('./policy_api/lexicons.js');
 var lexiconExpressionsModel = require('./policy_api/lexicon_expressions.js');
 var policyToProcessingHelper = require('../helpers/policyApiToClassificationApiHelper.js');
 var classificationApiToPolicyHelper = require('../helpers/classificationApiToPolicyHelper.js');
-var pagingHelper = require('../helpers/pagingHelper.js');
 var policyObjectsHelper = require('../helpers/policyApiObjectsHelper.js');
 var apiErrorFactory = require('./errors/apiErrorFactory.js');
 var apiError = require('./errors/apiError.js');
@@ -169,34 +168,21 @@ function get(getTermParams){
 function getTerms(getTermsParams){
   var deferredGet = Q.defer();
   
-  //verify that the term list exists and retrieve the terms on it
-  lexiconModel.getWithValidate(getTermsParams.project_id, getTermsParams.termListId, true, getNoTermListMatchMessage(getTermsParams.termListId))
-  .then(function(retrievedLexicon){
-    //only retrieve as many Terms as requested by paging parameters
-    var pagingParams = pagingHelper.getValidatedPagingParams(getTermsParams.pageNum, getTermsParams.pageSize);    
-    if(retrievedLexicon.additional.lexicon_expressions===null){
-      deferredGet.resolve({
-        terms: [],
-        totalHits: 0
-      });
-    }
+  //verify that the term list exists while retrieving only the requested page of terms on it
+  Q.all([
+    lexiconModel.getWithValidate(getTermsParams.project_id, getTermsParams.termListId, false, getNoTermListMatchMessage(getTermsParams.termListId)),
+    lexiconExpressionsModel.getByLexiconId(getTermsParams.project_id, getTermsParams.termListId, getTermsParams.pageNum, getTermsParams.pageSize)
+  ])
+  .spread(function(retrievedLexicon, retrievedExpressions){
     var termsToReturn = [];
-    var expressionCounter = 0;
-    for(var expression of retrievedLexicon.additional.lexicon_expressions){
-      expressionCounter++;      
-      //check if we have reached max pageSize, if so then we just need to get the total number of expressions
-      if(termsToReturn.length >= pagingParams.pageSize){
-        continue;
-      }      
-      //only return those entries from paging start index onwards
-      if(expressionCounter < pagingParams.start){
-        continue;
+    if(retrievedExpressions.results){
+      for(var expression of retrievedExpressions.results){
+        termsToReturn.push(policyToProcessingHelper.buildTermFromLexiconExpression(expression));
       }
-      termsToReturn.push(policyToProcessingHelper.buildTermFromLexiconExpression(expression));
     }
     deferredGet.resolve({
       terms: termsToReturn,
-      totalHits: expressionCounter
+      totalHits: retrievedExpressions.totalhits
     });
   })
   .fail(function(errorResponse){
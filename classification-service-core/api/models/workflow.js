@@ -51,8 +51,8 @@ function deleteWorkflow(deleteWorkflowParams){
   .then(function(retrievedWorkflow){
     //having retrieved the workflow, check for any Collection Sequence Entries on it (Rules).
     if(retrievedWorkflow.additional.sequence_entries !== undefined && retrievedWorkflow.additional.sequence_entries.length > 0){
-      //TODO current implementation is set to throw an Error when Workflow has Rules, rather than delete Rules and Actions, until CAF-1436 completed.
-      deferredDelete.reject("Unable to Delete. There are Classification Rules on the Workflow.");
+      //Rules are only deleted along with the Workflow through a delete job, which is handled by the workflowDelete model.
+      deferredDelete.reject("Unable to Delete. There are Classification Rules on the Workflow. Use the delete-jobs operation on the Workflow to delete them with it.");
       return Q({complete: true});
     }
     return Q({});
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2015-2017 EntIT Software LLC, a Micro Focus company.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+//deletes a Workflow along with all of its Classification Rules, their Conditions and their Rule Classifications as a background job.
+//Everything to delete is found before anything is deleted, then each type of object is deleted for all the Rules at once using
+//requests for multiple IDs rather than deleting each Rule in turn.
+var Q = require('q');
+var util = require('util');
+var appConfig = require('../config/classificationServiceConfig.js');
+var policyApiToClassification = require('../helpers/policyApiToClassificationApiHelper.js');
+var jobs = require('../libs/jobs.js');
+var logger = require('../logging/logging.js');
+var workflowExpandedModel = require('./workflowExpanded.js');
+var collectionModel = require('./policy_api/collection.js');
+var colSeqModel = require('./policy_api/collectionSequence.js');
+var conditionModel = require('./policy_api/condition.js');
+var workflowModel = require('./policy_api/workflow.js');
+
+module.exports = {
+  deleteWorkflow: deleteWorkflow
+};
+
+var workflowDeleteJobType = "WORKFLOW_DELETE";
+//maximum number of IDs passed to Policy API in a single delete
+var maxIdsPerDelete = 100;
+
+var describeError = function(errorResponse){
+  return typeof(errorResponse) === 'string' ? errorResponse : util.inspect(errorResponse);
+};
+
+//calls 'deleteBatch' for each batch of the IDs passed, one batch at a time. Returns a promise resolving once every batch is deleted.
+var deleteInBatches = function(ids, deleteBatch){
+  var deletePromise = Q();
+  for(var batchStart = 0; batchStart < ids.length; batchStart += maxIdsPerDelete){
+    deletePromise = deletePromise.then(deleteBatch.bind(null, ids.slice(batchStart, batchStart + maxIdsPerDelete)));
+  }
+  return deletePromise;
+};
+
+//retrieves the Rules on the Workflow and everything under them, returning a promise resolving with the IDs of each type of object to delete
+var planDeletion = function(projectId, retrievedWorkflow){
+  var plan = {
+    collectionConditionIds: [],
+    collectionIds: [],
+    ruleIds: [],
+    rootConditionIds: []
+  };
+  var sequenceEntries = retrievedWorkflow.additional.sequence_entries;
+  if(sequenceEntries===undefined || sequenceEntries===null || sequenceEntries.length===0){
+    return Q(plan);
+  }
+  for(var sequenceEntry of sequenceEntries){
+    plan.ruleIds.push(policyApiToClassification.buildClassificationRuleFromWorkflowEntry(sequenceEntry).id);
+  }
+  var retrievedSeqs;
+  return workflowExpandedModel.retrieveInBatches(plan.ruleIds, function(idsBatch){
+    return colSeqModel.getCollectionSequencesByIds(projectId, idsBatch, 1, idsBatch.length, true);
+  })
+  .then(function(seqs){
+    retrievedSeqs = seqs;
+    if(retrievedSeqs.length !== plan.ruleIds.length){
+      throw "Unable to retrieve all Classification Rules on Workflow with ID: "+retrievedWorkflow.id;
+    }
+    for(var retrievedSeq of retrievedSeqs){
+      var collectionEntries = retrievedSeq.additional.collection_sequence_entries;
+      if(collectionEntries!==undefined && collectionEntries!==null){
+        plan.collectionIds = plan.collectionIds.concat(colSeqModel.getCollectionIdsFromEntries(collectionEntries));
+      }
+    }
+    return workflowExpandedModel.getRuleRootConditionIds(projectId, retrievedSeqs);
+  })
+  .then(function(rootConditionIdsMap){
+    plan.rootConditionIds = Object.keys(rootConditionIdsMap).map(function(ruleId){
+      return rootConditionIdsMap[ruleId];
+    });
+    return workflowExpandedModel.retrieveInBatches(plan.collectionIds, function(idsBatch){
+      return collectionModel.getCollectionsByIds(projectId, {
+        ids: idsBatch,
+        includeCondition: true
+      });
+    });
+  })
+  .then(function(retrievedCollections){
+    for(var retrievedCollection of retrievedCollections){
+      if(retrievedCollection.additional.condition){
+        plan.collectionConditionIds.push(retrievedCollection.additional.condition.id);
+      }
+    }
+    return plan;
+  });
+};
+
+//deletes the objects in the plan one type at a time, each type in batches of IDs. A type is only deleted once everything referring to it has
+//been: the Rules are removed from the Workflow and deleted, then the Rule Classifications, their Conditions, the Rule root Conditions and the Workflow.
+var runDeletion = function(job, projectId, retrievedWorkflow, plan){
+  var progress = job.progress;
+  var deletePromise = Q();
+  if(plan.ruleIds.length > 0){
+    deletePromise = deletePromise.then(function(){
+      logger.debug("Removing "+plan.ruleIds.length+" Classification Rules from Workflow with ID: "+retrievedWorkflow.id);
+      retrievedWorkflow.additional.sequence_entries = [];
+      return workflowModel.update(projectId, retrievedWorkflow);
+    })
+    .then(function(){
+      return deleteInBatches(plan.ruleIds, function(idsBatch){
+        return colSeqModel.deleteAll(projectId, idsBatch)
+        .then(function(){
+          progress.classificationRulesDeleted += idsBatch.length;
+        });
+      });
+    });
+  }
+  if(plan.collectionIds.length > 0){
+    deletePromise = deletePromise.then(function(){
+      return collectionModel.removePoliciesFromAll(projectId, plan.collectionIds, appConfig.bulkConcurrency);
+    })
+    .then(function(){
+      return deleteInBatches(plan.collectionIds, function(idsBatch){
+        return collectionModel.deleteAll(projectId, idsBatch)
+        .then(function(){
+          progress.ruleClassificationsDeleted += idsBatch.length;
+        });
+      });
+    });
+  }
+  //Rule Classification Conditions refer to the Rule root Conditions so are deleted first
+  [plan.collectionConditionIds, plan.rootConditionIds].forEach(function(conditionIds){
+    if(conditionIds.length===0){
+      return;
+    }
+    deletePromise = deletePromise.then(function(){
+      return deleteInBatches(conditionIds, function(idsBatch){
+        return conditionModel.deleteAll(projectId, idsBatch)
+        .then(function(){
+          progress.conditionsDeleted += idsBatch.length;
+        });
+      });
+    });
+  });
+  return deletePromise.then(function(){
+    return workflowModel.deleteWorkflowById(projectId, retrievedWorkflow.id);
+  });
+};
+
+//Starts deleting a Workflow and everything on it. Returns a promise resolving, once the Workflow is verified to exist, with a job that may be used
+//to check the progress of the deletion. If the deletion fails part way through, objects already deleted are not restored and the job reports the failure.
+//deleteParams should have the properties;
+//id          - the ID of the Workflow to delete
+//project_id  - the project the Workflow belongs to
+function deleteWorkflow(deleteParams){
+  return workflowModel.validateWorkflowExists(deleteParams.project_id, deleteParams.id)
+  .then(function(retrievedWorkflow){
+    var job = jobs.create(workflowDeleteJobType, deleteParams.project_id);
+    job.progress = {
+      classificationRules: 0,
+      classificationRulesDeleted: 0,
+      conditions: 0,
+      conditionsDeleted: 0,
+      ruleClassifications: 0,
+      ruleClassificationsDeleted: 0
+    };
+    logger.info("Starting Workflow delete job "+job.id+" for Workflow "+deleteParams.id);
+
+    planDeletion(deleteParams.project_id, retrievedWorkflow)
+    .then(function(plan){
+      job.progress.classificationRules = plan.ruleIds.length;
+      job.progress.conditions = plan.collectionConditionIds.length + plan.rootConditionIds.length;
+      job.progress.ruleClassifications = plan.collectionIds.length;
+      logger.debug(function(){return "Planned deletion of Workflow "+deleteParams.id+" for job "+job.id+": "+JSON.stringify(plan);});
+      return runDeletion(job, deleteParams.project_id, retrievedWorkflow, plan);
+    })
+    .then(function(){
+      jobs.complete(job);
+      logger.info(function(){return "Workflow delete job "+job.id+" for Workflow "+deleteParams.id+" finished. Progress: "+JSON.stringify(job.progress);});
+    })
+    .fail(function(errorResponse){
+      logger.error("Workflow delete job "+job.id+" for Workflow "+deleteParams.id+" failed: "+describeError(errorResponse));
+      jobs.fail(job, "Failed to delete Workflow: "+describeError(errorResponse));
+    }).done();
+
+    return jobs.toOutput(job);
+  });
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2015-2017 EntIT Software LLC, a Micro Focus company.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+//retrieves a Workflow together with all of its Classification Rules, their Conditions and their Rule Classifications in a single operation.
+//Each type of object is retrieved for all the Rules at once, in requests for multiple IDs, rather than calling Policy API for each Rule.
+var Q = require('q');
+var logger = require('../logging/logging.js');
+var strUtils = require('../libs/stringUtils.js');
+var apiErrorFactory = require('./errors/apiErrorFactory.js');
+var concurrencyHelper = require('../helpers/concurrencyHelper.js');
+var policyApiToClassification = require('../helpers/policyApiToClassificationApiHelper.js');
+var classificationObjectsHelper = require('../helpers/classificationObjectsHelper.js');
+var classificationsModel = require('./classifications.js');
+var collectionModel = require('./policy_api/collection.js');
+var colSeqModel = require('./policy_api/collectionSequence.js');
+var conditionModel = require('./policy_api/condition.js');
+var workflowModel = require('./policy_api/workflow.js');
+
+module.exports = {
+  get: get,
+  getRuleRootConditionIds: getRuleRootConditionIds,
+  retrieveInBatches: retrieveInBatches
+};
+
+//maximum number of IDs passed to Policy API in a single retrieve
+var maxIdsPerRequest = 100;
+//maximum number of Rule root Conditions looked up individually at one time, for Rules whose Sequence does not refer to the root Condition
+var maxRootConditionLookups = 10;
+
+//splits the IDs passed into batches, calling 'retrieveBatch' for each batch. Returns a promise resolving with the 'results' of every batch combined.
+function retrieveInBatches(ids, retrieveBatch){
+  var batchPromises = [];
+  for(var batchStart = 0; batchStart < ids.length; batchStart += maxIdsPerRequest){
+    batchPromises.push(retrieveBatch(ids.slice(batchStart, batchStart + maxIdsPerRequest)));
+  }
+  return Q.all(batchPromises)
+  .then(function(batchResults){
+    var combinedResults = [];
+    for(var batchResult of batchResults){
+      combinedResults = combinedResults.concat(batchResult.results);
+    }
+    return combinedResults;
+  });
+}
+
+//returns a promise resolving with a map from Rule ID to the ID of its root Condition. 'retrievedSeqs' should be the detailed Collection Sequences of the Rules.
+//The root Condition is on the detailed Sequence when a Rule Classification refers to it, otherwise it is found using the notes set on it.
+function getRuleRootConditionIds(projectId, retrievedSeqs){
+  var rootConditionIds = {};
+  var seqsToLookup = [];
+  for(var retrievedSeq of retrievedSeqs){
+    var ruleCondition = classificationObjectsHelper.conditions.getRuleConditionFromDetailedCollectionSequence(retrievedSeq);
+    if(ruleCondition===null){
+      seqsToLookup.push(retrievedSeq);
+      continue;
+    }
+    rootConditionIds[retrievedSeq.id] = ruleCondition.id;
+  }
+  if(seqsToLookup.length===0){
+    return Q(rootConditionIds);
+  }
+  logger.debug("Looking up root Conditions for "+seqsToLookup.length+" Classification Rules not referring to them on their Collection Sequence.");
+  return concurrencyHelper.settleWithConcurrency(seqsToLookup, maxRootConditionLookups, function(retrievedSeq){
+    return conditionModel.getSingleConditionByNotes(projectId, classificationObjectsHelper.rules.getClassificationRuleNotesValue(retrievedSeq.id));
+  })
+  .then(function(outcomes){
+    outcomes.forEach(function(outcome, index){
+      if(outcome.state==='rejected'){
+        throw outcome.reason;
+      }
+      rootConditionIds[seqsToLookup[index].id] = outcome.value.id;
+    });
+    return rootConditionIds;
+  });
+}
+
+//adds the Conditions of each Rule, built from its root Condition retrieved with children
+function addConditionsToRules(projectId, retrievedSeqs, rulesMap){
+  var rootConditionIdsMap;
+  return getRuleRootConditionIds(projectId, retrievedSeqs)
+  .then(function(retrievedRootConditionIds){
+    rootConditionIdsMap = retrievedRootConditionIds;
+    var rootConditionIds = Object.keys(rootConditionIdsMap).map(function(ruleId){
+      return rootConditionIdsMap[ruleId];
+    });
+    return retrieveInBatches(rootConditionIds, function(idsBatch){
+      return conditionModel.validateConditionExists(projectId, idsBatch, true);
+    });
+  })
+  .then(function(rootConditions){
+    var rootConditionsMap = {};
+    for(var rootCondition of rootConditions){
+      rootConditionsMap[rootCondition.id] = rootCondition;
+    }
+    Object.keys(rootConditionIdsMap).forEach(function(ruleId){
+      var rootCondition = rootConditionsMap[rootConditionIdsMap[ruleId]];
+      if(rootCondition===undefined){
+        logger.error("Root Condition with ID: "+rootConditionIdsMap[ruleId]+" was not returned when retrieving Conditions for Classification Rule: "+ruleId);
+        throw apiErrorFactory.createError("Unable to retrieve Conditions for Classification Rule with ID: "+ruleId);
+      }
+      rulesMap[ruleId].conditions = policyApiToClassification.buildRuleConditionsFromRootRulePolicyCondition(rootCondition);
+    });
+  });
+}
+
+//adds the Rule Classifications of each Rule, with the details of the Classification each refers to
+function addRuleClassificationsToRules(projectId, retrievedSeqs, rulesMap){
+  var collectionIds = [];
+  var ruleIdsForCollections = {};
+  for(var retrievedSeq of retrievedSeqs){
+    rulesMap[retrievedSeq.id].ruleClassifications = [];
+    var collectionEntries = retrievedSeq.additional.collection_sequence_entries;
+    if(collectionEntries===undefined || collectionEntries===null){
+      continue;
+    }
+    for(var collectionId of colSeqModel.getCollectionIdsFromEntries(collectionEntries)){
+      collectionIds.push(collectionId);
+      ruleIdsForCollections[collectionId] = retrievedSeq.id;
+    }
+  }
+  if(collectionIds.length===0){
+    return Q();
+  }
+  var builtRuleClassifications = [];
+  return retrieveInBatches(collectionIds, function(idsBatch){
+    return collectionModel.getCollectionsByIds(projectId, {
+      ids: idsBatch
+    });
+  })
+  .then(function(retrievedCollections){
+    var classificationIds = [];
+    var classificationIdsSeen = {};
+    for(var retrievedCollection of retrievedCollections){
+      var builtRuleClassification = policyApiToClassification.buildRuleClassificationFromCollection(retrievedCollection);
+      rulesMap[ruleIdsForCollections[retrievedCollection.id]].ruleClassifications.push(builtRuleClassification);
+      builtRuleClassifications.push(builtRuleClassification);
+      var classificationId = builtRuleClassification.classificationId;
+      if(classificationId!==undefined && classificationIdsSeen[classificationId]===undefined){
+        classificationIdsSeen[classificationId] = true;
+        classificationIds.push(classificationId);
+      }
+    }
+    return retrieveInBatches(classificationIds, function(idsBatch){
+      return classificationsModel.getClassifications({
+        ids: idsBatch,
+        project_id: projectId
+      })
+      .then(function(retrievedClassifications){
+        return {
+          results: retrievedClassifications.classifications
+        };
+      });
+    });
+  })
+  .then(function(retrievedClassifications){
+    var classificationsMap = {};
+    for(var retrievedClassification of retrievedClassifications){
+      classificationsMap[retrievedClassification.id] = retrievedClassification;
+    }
+    for(var builtRuleClassification of builtRuleClassifications){
+      var classification = classificationsMap[builtRuleClassification.classificationId];
+      if(classification!==undefined){
+        builtRuleClassification.classification = classification;
+      }
+    }
+  });
+}
+
+//returns the Workflow with the ID passed, including its Classification Rules in priority order. Each Rule has its Conditions and its Rule Classifications,
+//with the details of the Classification each Rule Classification refers to.
+//getParams should have the properties;
+//id          - the ID of the Workflow
+//project_id  - the project the Workflow belongs to
+function get(getParams){
+  var deferredGet = Q.defer();
+  var builtWorkflow;
+  var rulesMap = {};
+
+  workflowModel.validateWorkflowExists(getParams.project_id, getParams.id)
+  .then(function(retrievedWorkflow){
+    builtWorkflow = policyApiToClassification.buildWorkflowFromPolicyWorkflow(retrievedWorkflow);
+    builtWorkflow.classificationRules = [];
+    var sequenceEntries = retrievedWorkflow.additional.sequence_entries;
+    if(sequenceEntries===undefined || sequenceEntries===null || sequenceEntries.length===0){
+      logger.debug("No Classification Rules on Workflow with ID: "+getParams.id+" to expand.");
+      return [];
+    }
+    var ruleIds = [];
+    for(var sequenceEntry of sequenceEntries){
+      var builtRule = policyApiToClassification.buildClassificationRuleFromWorkflowEntry(sequenceEntry);
+      builtWorkflow.classificationRules.push(builtRule);
+      rulesMap[builtRule.id] = builtRule;
+      ruleIds.push(builtRule.id);
+    }
+    builtWorkflow.classificationRules.sort(function(firstRule, secondRule){
+      return firstRule.priority - secondRule.priority;
+    });
+    logger.debug(function(){return "Retrieving details of Classification Rules for expanded Workflow. Rule IDs: "+ruleIds;});
+    return retrieveInBatches(ruleIds, function(idsBatch){
+      return colSeqModel.getCollectionSequencesByIds(getParams.project_id, idsBatch, 1, idsBatch.length, true);
+    });
+  })
+  .then(function(retrievedSeqs){
+    if(retrievedSeqs.length !== builtWorkflow.classificationRules.length){
+      throw apiErrorFactory.createError("Unable to retrieve all Classification Rules on Workflow with ID: "+getParams.id);
+    }
+    for(var retrievedSeq of retrievedSeqs){
+      policyApiToClassification.buildClassificationRuleFromCollectionSequence(retrievedSeq, rulesMap[retrievedSeq.id]);
+    }
+    return Q.all([
+      addConditionsToRules(getParams.project_id, retrievedSeqs, rulesMap),
+      addRuleClassificationsToRules(getParams.project_id, retrievedSeqs, rulesMap)
+    ]);
+  })
+  .then(function(){
+    deferredGet.resolve(builtWorkflow);
+  })
+  .fail(function(errorResponse){
+    logger.error("Failed to retrieve expanded Workflow with ID: "+getParams.id+". "+strUtils.getString(errorResponse));
+    deferredGet.reject(errorResponse);
+  }).done();
+
+  return deferredGet.promise;
+}
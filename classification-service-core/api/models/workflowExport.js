@@ -0,0 +1,289 @@
+/*
+ * Copyright 2015-2017 EntIT Software LLC, a Micro Focus company.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+//exports a Workflow, with the Classifications and Term Lists it uses, as a document in the form read by the classification-service-creation-util
+//and accepted by the Workflow import. Term Lists and Classifications are referred to by name in the document. The Terms on each Term List are
+//retrieved a page at a time as the document is streamed, so only a page of Terms is held in memory regardless of the size of the Term Lists.
+var Readable = require('stream').Readable;
+var logger = require('../logging/logging.js');
+var appConfig = require('../config/classificationServiceConfig.js');
+var policyToProcessingHelper = require('../helpers/policyApiToClassificationApiHelper.js');
+var apiErrorFactory = require('./errors/apiErrorFactory.js');
+var workflowExpandedModel = require('./workflowExpanded.js');
+var lexiconModel = require('./policy_api/lexicons.js');
+var lexiconExpressionsModel = require('./policy_api/lexicon_expressions.js');
+
+module.exports = {
+  exportWorkflow: exportWorkflow
+};
+
+//properties of Condition 'additional' kept in the export for each type of Condition, in addition to type, order and notes
+var exportedAdditionalProperties = {
+  boolean: ['operator'],
+  date: ['field', 'operator', 'value'],
+  exists: ['field'],
+  number: ['field', 'operator', 'value'],
+  regex: ['field', 'value'],
+  string: ['field', 'operator', 'value'],
+  termlist: ['field', 'value']
+};
+
+//returns a name for an object that is not already in use in 'namesInUse', adding the ID to names that are repeated so that references by name are not ambiguous
+function getUniqueName(name, id, namesInUse){
+  var uniqueName = namesInUse[name]===undefined ? name : name + " [" + id + "]";
+  namesInUse[uniqueName] = true;
+  return uniqueName;
+}
+
+//calls 'visitFunction' for each Term List Condition in the Condition 'additional' passed, including those nested in boolean and not Conditions
+function visitTermListConditions(additional, visitFunction){
+  if(additional===undefined || additional===null){
+    return;
+  }
+  if(additional.type==='termlist' || additional.type==='lexicon'){
+    visitFunction(additional);
+    return;
+  }
+  if(additional.type==='boolean' && Array.isArray(additional.children)){
+    for(var childCondition of additional.children){
+      visitTermListConditions(childCondition.additional, visitFunction);
+    }
+    return;
+  }
+  if(additional.type==='not' && additional.condition!==undefined && additional.condition!==null){
+    visitTermListConditions(additional.condition.additional, visitFunction);
+  }
+}
+
+//builds the exported form of a Condition, keeping only the properties that can be passed when creating it and replacing Term List IDs with names
+function buildExportedCondition(condition, termListNamesById){
+  var exportedCondition = {
+    additional: buildExportedAdditional(condition.additional, termListNamesById)
+  };
+  if(condition.name!==undefined && condition.name!==null){
+    exportedCondition.name = condition.name;
+  }
+  return exportedCondition;
+}
+
+function buildExportedAdditional(additional, termListNamesById){
+  var exportedType = additional.type==='lexicon' ? 'termlist' : additional.type;
+  var exportedAdditional = {
+    type: exportedType
+  };
+  var propertiesToCopy = ['order', 'notes'].concat(exportedAdditionalProperties[exportedType] || []);
+  for(var propertyName of propertiesToCopy){
+    if(additional[propertyName]!==undefined && additional[propertyName]!==null){
+      exportedAdditional[propertyName] = additional[propertyName];
+    }
+  }
+  if(exportedType==='termlist'){
+    var termListName = termListNamesById[String(additional.value)];
+    if(termListName!==undefined){
+      exportedAdditional.value = termListName;
+    }
+  }
+  else if(exportedType==='boolean'){
+    exportedAdditional.children = (additional.children || []).map(function(childCondition){
+      return buildExportedCondition(childCondition, termListNamesById);
+    });
+  }
+  else if(exportedType==='not' && additional.condition!==undefined && additional.condition!==null){
+    exportedAdditional.condition = buildExportedCondition(additional.condition, termListNamesById);
+  }
+  return exportedAdditional;
+}
+
+//returns a promise resolving with the Term Lists used by the Conditions passed, each with the name it is given in the export. The Term Lists
+//are retrieved using requests for multiple IDs. These return the Terms on each Term List, only the name and description are kept from them.
+function getTermListsUsed(projectId, conditionAdditionals){
+  var termListIds = [];
+  var termListIdsSeen = {};
+  for(var additional of conditionAdditionals){
+    visitTermListConditions(additional, function(termListAdditional){
+      var termListId = String(termListAdditional.value);
+      if(termListIdsSeen[termListId]===undefined){
+        termListIdsSeen[termListId] = true;
+        termListIds.push(termListId);
+      }
+    });
+  }
+  return workflowExpandedModel.retrieveInBatches(termListIds, function(idsBatch){
+    return lexiconModel.getWithValidate(projectId, idsBatch, false);
+  })
+  .then(function(retrievedLexicons){
+    var lexiconsById = {};
+    for(var retrievedLexicon of retrievedLexicons){
+      lexiconsById[String(retrievedLexicon.id)] = retrievedLexicon;
+    }
+    var namesInUse = {};
+    return termListIds.map(function(termListId){
+      var lexicon = lexiconsById[termListId];
+      if(lexicon===undefined){
+        throw apiErrorFactory.createNotFoundError("Unable to find Term List with ID: " + termListId);
+      }
+      return {
+        description: lexicon.description,
+        id: termListId,
+        name: getUniqueName(lexicon.name, termListId, namesInUse)
+      };
+    });
+  });
+}
+
+//builds the Workflow and Classifications in the exported form from the expanded Workflow
+function buildExportedDefinition(expandedWorkflow, termListNamesById){
+  var exportedClassifications = [];
+  var classificationNamesById = {};
+  var namesInUse = {};
+  var exportedRules = expandedWorkflow.classificationRules.map(function(rule){
+    return {
+      description: rule.description,
+      name: rule.name,
+      priority: rule.priority,
+      ruleClassifications: rule.ruleClassifications.map(function(ruleClassification){
+        var classification = ruleClassification.classification;
+        if(classificationNamesById[classification.id]===undefined){
+          classificationNamesById[classification.id] = getUniqueName(classification.name, classification.id, namesInUse);
+          exportedClassifications.push({
+            additional: buildExportedAdditional(classification.additional, termListNamesById),
+            classificationTarget: classification.classificationTarget,
+            description: classification.description,
+            name: classificationNamesById[classification.id],
+            type: classification.type
+          });
+        }
+        return {
+          classificationName: classificationNamesById[classification.id]
+        };
+      }),
+      ruleConditions: rule.conditions.map(function(condition){
+        return buildExportedCondition(condition, termListNamesById);
+      })
+    };
+  });
+  return {
+    classifications: exportedClassifications,
+    workflow: {
+      classificationRules: exportedRules,
+      description: expandedWorkflow.description,
+      name: expandedWorkflow.name,
+      notes: expandedWorkflow.notes
+    }
+  };
+}
+
+//returns a readable stream of the export document. The Workflow and Classifications are output first, followed by each Term List
+//with its Terms retrieved a page at a time as the stream is read. The stream emits 'error' if a page cannot be retrieved.
+function createExportStream(projectId, exportedDefinition, termLists){
+  var pageSize = appConfig.exportPageSize;
+  var termListIndex = -1;
+  var termsOutput = 0;
+  var retrieving = false;
+  var finished = false;
+
+  var exportStream = new Readable({
+    read: function(){
+      if(retrieving || finished){
+        return;
+      }
+      if(termListIndex===-1){
+        termListIndex = 0;
+        var definitionOutput = JSON.stringify(exportedDefinition);
+        //leave the document open so that the Term Lists can be added to it
+        exportStream.push(definitionOutput.substring(0, definitionOutput.length - 1) + ',"termLists":[');
+        return;
+      }
+      if(termListIndex >= termLists.length){
+        finished = true;
+        exportStream.push(']}');
+        exportStream.push(null);
+        return;
+      }
+      var termList = termLists[termListIndex];
+      retrieving = true;
+      //request from the position after the last Term output, Policy API may return fewer Terms than the page size so a page number would skip Terms
+      lexiconExpressionsModel.getByLexiconIdFromStart(projectId, termList.id, termsOutput + 1, pageSize)
+      .then(function(retrievedExpressions){
+        retrieving = false;
+        var expressions = retrievedExpressions.results ? retrievedExpressions.results : [];
+        var pageOutput = "";
+        if(termsOutput===0){
+          pageOutput += (termListIndex > 0 ? ',' : '') + JSON.stringify({
+            description: termList.description,
+            name: termList.name
+          }).slice(0, -1) + ',"terms":[';
+        }
+        for(var expression of expressions){
+          var term = policyToProcessingHelper.buildTermFromLexiconExpression(expression);
+          pageOutput += (termsOutput > 0 ? ',' : '') + JSON.stringify({
+            expression: term.expression,
+            type: term.type
+          });
+          termsOutput++;
+        }
+        //the Term List is complete once the total reported or an empty page is reached
+        if(expressions.length === 0 || termsOutput >= retrievedExpressions.totalhits){
+          pageOutput += ']}';
+          termListIndex++;
+          termsOutput = 0;
+        }
+        exportStream.push(pageOutput);
+      })
+      .fail(function(errorResponse){
+        retrieving = false;
+        finished = true;
+        exportStream.emit('error', errorResponse);
+      }).done();
+    }
+  });
+  return exportStream;
+}
+
+//Returns a promise resolving, once the definition of the Workflow has been retrieved, with a readable stream of the export document as JSON.
+//The Workflow, its Classification Rules and the Classifications they use are retrieved through the expanded Workflow, using requests for
+//multiple IDs. The Terms of each Term List used are then retrieved as the stream is read.
+//exportParams should have the properties;
+//id          - the ID of the Workflow to export
+//project_id  - the project the Workflow belongs to
+function exportWorkflow(exportParams){
+  var expandedWorkflow;
+  var termLists;
+  return workflowExpandedModel.get(exportParams)
+  .then(function(retrievedWorkflow){
+    expandedWorkflow = retrievedWorkflow;
+    var conditionAdditionals = [];
+    for(var rule of expandedWorkflow.classificationRules){
+      for(var condition of rule.conditions){
+        conditionAdditionals.push(condition.additional);
+      }
+      for(var ruleClassification of rule.ruleClassifications){
+        conditionAdditionals.push(ruleClassification.classification.additional);
+      }
+    }
+    return getTermListsUsed(exportParams.project_id, conditionAdditionals);
+  })
+  .then(function(retrievedTermLists){
+    termLists = retrievedTermLists;
+    var termListNamesById = {};
+    for(var termList of termLists){
+      termListNamesById[termList.id] = termList.name;
+    }
+    var exportedDefinition = buildExportedDefinition(expandedWorkflow, termListNamesById);
+    logger.info("Exporting Workflow "+exportParams.id+" with "+exportedDefinition.workflow.classificationRules.length+" Classification Rules, "+
+      exportedDefinition.classifications.length+" Classifications and "+termLists.length+" Term Lists.");
+    return createExportStream(exportParams.project_id, exportedDefinition, termLists);
+  });
+}
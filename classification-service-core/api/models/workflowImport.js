@@ -0,0 +1,491 @@
+/*
+ * Copyright 2015-2017 EntIT Software LLC, a Micro Focus company.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+//creates a complete Workflow, along with the Term Lists and Classifications it uses, from a single document. The document has the same form as
+//that read by the classification-service-creation-util. Term Lists and Classifications may be referred to by name within the document.
+var Q = require('q');
+var logger = require('../logging/logging.js');
+var strUtils = require('../libs/stringUtils.js');
+var appConfig = require('../config/classificationServiceConfig.js');
+var ApiError = require('./errors/apiError.js');
+var apiErrorFactory = require('./errors/apiErrorFactory.js');
+var concurrencyHelper = require('../helpers/concurrencyHelper.js');
+var classificationApiToPolicyHelper = require('../helpers/classificationApiToPolicyHelper.js');
+var classificationObjectsHelper = require('../helpers/classificationObjectsHelper.js');
+var policyApiObjectsHelper = require('../helpers/policyApiObjectsHelper.js');
+var classificationsModel = require('./classifications.js');
+var collectionModel = require('./policy_api/collection.js');
+var colSeqModel = require('./policy_api/collectionSequence.js');
+var conditionModel = require('./policy_api/condition.js');
+var lexiconModel = require('./policy_api/lexicons.js');
+var policyModel = require('./policy_api/policy.js');
+var workflowModel = require('./policy_api/workflow.js');
+
+module.exports = {
+  importWorkflow: importWorkflow
+};
+
+var termListsNotFoundMessage = "Unable to find all Term List IDs specified in the Workflow to import.";
+//maximum number of IDs passed to Policy API in a single retrieve
+var maxIdsPerRequest = 100;
+
+//returns the value of each settled promise outcome passed, in order, or throws the reason of the first that was rejected
+function getValuesOrThrow(outcomes){
+  return outcomes.map(function(outcome){
+    if(outcome.state==='rejected'){
+      throw outcome.reason;
+    }
+    return outcome.value;
+  });
+}
+
+//calls 'taskFunction' for each item, limited to the configured bulk concurrency. Returns a promise resolving with the result of each task
+//in order, or rejecting with the first failure once all the tasks have settled.
+function runAllWithConcurrency(items, taskFunction){
+  return concurrencyHelper.settleWithConcurrency(items, appConfig.bulkConcurrency, taskFunction)
+  .then(getValuesOrThrow);
+}
+
+//calls 'visitFunction' for each Term List Condition in the Condition 'additional' passed, including those nested in boolean and not Conditions
+function visitTermListConditions(additional, visitFunction){
+  if(additional===undefined || additional===null){
+    return;
+  }
+  if(additional.type==='termlist' || additional.type==='lexicon'){
+    visitFunction(additional);
+    return;
+  }
+  if(additional.type==='boolean' && Array.isArray(additional.children)){
+    for(var childCondition of additional.children){
+      visitTermListConditions(childCondition.additional, visitFunction);
+    }
+    return;
+  }
+  if(additional.type==='not' && additional.condition!==undefined && additional.condition!==null){
+    visitTermListConditions(additional.condition.additional, visitFunction);
+  }
+}
+
+//returns all the 'additional' properties of Classifications and Rule Conditions in the document
+function getAllConditionAdditionals(importDocument){
+  var additionals = [];
+  for(var classification of importDocument.classifications){
+    additionals.push(classification.additional);
+  }
+  for(var rule of importDocument.workflow.classificationRules){
+    for(var ruleCondition of rule.ruleConditions){
+      additionals.push(ruleCondition.additional);
+    }
+  }
+  return additionals;
+}
+
+//checks that the Term Lists and Classifications referred to in the document can be resolved before anything is created. Term List Conditions may
+//use the name of a Term List in the document or the ID of an existing Term List. Rule Classifications may use the name of a Classification in the document
+//or the ID of an existing Classification. Returns a promise resolving once the IDs used have been verified to exist.
+function validateReferences(projectId, importDocument){
+  var termListNames = {};
+  for(var termList of importDocument.termLists){
+    termListNames[termList.name] = true;
+  }
+  var existingTermListIds = [];
+  var existingTermListIdsSeen = {};
+  for(var additional of getAllConditionAdditionals(importDocument)){
+    visitTermListConditions(additional, function(termListAdditional){
+      var termListValue = String(termListAdditional.value);
+      if(termListNames[termListValue]!==undefined || existingTermListIdsSeen[termListValue]!==undefined){
+        return;
+      }
+      existingTermListIdsSeen[termListValue] = true;
+      existingTermListIds.push(termListValue);
+    });
+  }
+
+  var classificationNames = {};
+  for(var classification of importDocument.classifications){
+    classificationNames[classification.name] = true;
+  }
+  for(var rule of importDocument.workflow.classificationRules){
+    for(var ruleClassification of rule.ruleClassifications){
+      if(ruleClassification.classificationId!==undefined && ruleClassification.classificationId!==null){
+        continue;
+      }
+      if(ruleClassification.classificationName===undefined || ruleClassification.classificationName===null){
+        return Q.reject(apiErrorFactory.createInvalidArgumentError("'classificationName' or 'classificationId' must be set on each Rule Classification of Classification Rule: "+rule.name));
+      }
+      if(classificationNames[ruleClassification.classificationName]===undefined){
+        return Q.reject(apiErrorFactory.createInvalidArgumentError("Unable to find a Classification named '"+ruleClassification.classificationName+"' in the Workflow to import."));
+      }
+    }
+  }
+  if(existingTermListIds.length===0){
+    return Q();
+  }
+  logger.debug(function(){return "Verifying existing Term Lists referred to in Workflow to import. Term List IDs: "+existingTermListIds;});
+  return lexiconModel.getWithValidate(projectId, existingTermListIds, null, termListsNotFoundMessage)
+  .fail(function(errorResponse){
+    if(errorResponse!==null && errorResponse!==undefined && errorResponse.message===termListsNotFoundMessage){
+      throw apiErrorFactory.createInvalidArgumentError(termListsNotFoundMessage);
+    }
+    throw errorResponse;
+  });
+}
+
+//creates the Term List and adds its Terms in chunks. The Term List is recorded on 'createdBeforeFailure' as soon as it is created.
+//Returns a promise resolving with the created Lexicon.
+function createTermList(projectId, termList, createdBeforeFailure){
+  var createdLexicon;
+  return lexiconModel.create(projectId, {
+    description: termList.description,
+    name: termList.name
+  })
+  .then(function(lexicon){
+    createdLexicon = lexicon;
+    createdBeforeFailure.termLists.push({
+      id: createdLexicon.id,
+      name: createdLexicon.name
+    });
+    var terms = termList.terms;
+    var chunkStart = 0;
+    //chunks of a Term List are added one after the other, Term Lists themselves are created in parallel
+    var addNextChunk = function(){
+      if(chunkStart >= terms.length){
+        return Q(createdLexicon);
+      }
+      var chunkTerms = terms.slice(chunkStart, chunkStart + appConfig.importChunkSize);
+      chunkStart += chunkTerms.length;
+      return lexiconModel.update(projectId, {
+        description: createdLexicon.description,
+        id: createdLexicon.id,
+        lexiconExpressions: classificationApiToPolicyHelper.buildLexiconExpressionsFromTerms(chunkTerms, createdLexicon.id),
+        name: createdLexicon.name
+      }, false)
+      .then(addNextChunk);
+    };
+    return addNextChunk();
+  });
+}
+
+//replaces the names of Term Lists created by the import with their IDs on Term List Conditions
+function resolveTermListNames(importDocument, termListIdsByName){
+  for(var additional of getAllConditionAdditionals(importDocument)){
+    visitTermListConditions(additional, function(termListAdditional){
+      var resolvedId = termListIdsByName[termListAdditional.value];
+      if(resolvedId!==undefined){
+        termListAdditional.value = String(resolvedId);
+      }
+    });
+  }
+}
+
+//creates the Classifications in the document, recording each one created on 'createdBeforeFailure'. Returns a promise resolving with the
+//created Classifications in the order passed.
+function createClassifications(projectId, classifications, createdBeforeFailure){
+  if(classifications.length===0){
+    return Q([]);
+  }
+  return classificationsModel.createClassifications({
+    classifications: classifications.map(function(classification){
+      return {
+        additional: classification.additional,
+        classificationTarget: classification.classificationTarget,
+        description: classification.description,
+        name: classification.name,
+        type: classification.type
+      };
+    }),
+    project_id: projectId
+  })
+  .then(function(createResult){
+    for(var result of createResult.results){
+      if(result.status==="CREATED"){
+        createdBeforeFailure.classifications.push({
+          id: result.classification.id,
+          name: result.classification.name
+        });
+      }
+    }
+    return createResult.results.map(function(result){
+      if(result.status!=="CREATED"){
+        logger.error("Failed to create Classification '"+classifications[result.index].name+"' during Workflow import: "+strUtils.getString(result.error));
+        throw apiErrorFactory.createError("Unable to create Classification '"+classifications[result.index].name+"': "+result.error.message);
+      }
+      return result.classification;
+    });
+  });
+}
+
+//returns a promise resolving with a map of the ID of each Classification passed to the ID of the Condition that represents it
+function getClassificationConditionIds(projectId, classificationIds){
+  var batchPromises = [];
+  for(var batchStart = 0; batchStart < classificationIds.length; batchStart += maxIdsPerRequest){
+    batchPromises.push(policyModel.getPoliciesByIds(projectId, {
+      ids: classificationIds.slice(batchStart, batchStart + maxIdsPerRequest)
+    }));
+  }
+  return Q.all(batchPromises)
+  .then(function(retrievedBatches){
+    var conditionIdsMap = {};
+    for(var retrievedBatch of retrievedBatches){
+      for(var retrievedPolicy of retrievedBatch.results){
+        var conditionId = classificationObjectsHelper.classifications.getConditionIdFromPolicy(retrievedPolicy);
+        if(conditionId!==null){
+          conditionIdsMap[retrievedPolicy.id] = conditionId;
+        }
+      }
+    }
+    for(var classificationId of classificationIds){
+      if(conditionIdsMap[classificationId]===undefined){
+        throw apiErrorFactory.createInvalidArgumentError("Unable to find Classification with ID: "+classificationId+" used by a Rule Classification in the Workflow to import.");
+      }
+    }
+    return conditionIdsMap;
+  })
+  .fail(function(errorResponse){
+    if(errorResponse.response && errorResponse.response.message === "Could not retrieve Policy"){
+      throw apiErrorFactory.createInvalidArgumentError("Unable to find all Classifications used by Rule Classifications in the Workflow to import.");
+    }
+    throw errorResponse;
+  });
+}
+
+//creates a Classification Rule with its Conditions and Rule Classifications. The Rule is not added to the Workflow. Returns a promise resolving
+//with the created Collection Sequence and a description of the created Rule.
+function createClassificationRule(projectId, workflowId, rule, classificationIdsByName, classificationConditionIds){
+  var createdSeq;
+  var rootConditionId;
+  var createdRule;
+  return colSeqModel.create(projectId, {
+    description: rule.description,
+    name: rule.name
+  })
+  .then(function(colSeq){
+    createdSeq = colSeq;
+    createdRule = {
+      id: createdSeq.id,
+      name: createdSeq.name,
+      ruleClassifications: [],
+      ruleConditions: []
+    };
+    return conditionModel.create(projectId, classificationObjectsHelper.rules.getNewRuleRootLevelCondition(createdSeq.id));
+  })
+  .then(function(rootCondition){
+    rootConditionId = rootCondition.id;
+    var conditionPromises = rule.ruleConditions.map(function(ruleCondition){
+      var createConditionParams = {
+        additional: ruleCondition.additional,
+        name: ruleCondition.name
+      };
+      classificationApiToPolicyHelper.updateClassificationConditionAdditionalToPolicyForm(createConditionParams);
+      createConditionParams.additional.parent_condition_id = rootConditionId;
+      return conditionModel.create(projectId, createConditionParams);
+    });
+    var collectionPromises = rule.ruleClassifications.map(function(ruleClassification){
+      var classificationId = ruleClassification.classificationId!==undefined && ruleClassification.classificationId!==null ?
+        ruleClassification.classificationId : classificationIdsByName[ruleClassification.classificationName];
+      var createCollectionParams = {
+        condition: classificationObjectsHelper.ruleClassifications.getNewRootLevelCondition(),
+        name: classificationObjectsHelper.ruleClassifications.buildNameFromIds(workflowId, createdSeq.id, classificationId),
+        policyIds: [classificationId]
+      };
+      policyApiObjectsHelper.addChildToCondition(createCollectionParams.condition,
+        classificationObjectsHelper.ruleClassifications.getRuleClassificationCondition(classificationConditionIds[classificationId]));
+      policyApiObjectsHelper.addChildToCondition(createCollectionParams.condition,
+        classificationObjectsHelper.ruleClassifications.getRuleRootFragmentCondition(rootConditionId));
+      return collectionModel.create(projectId, createCollectionParams)
+      .then(function(createdCollection){
+        return {
+          classificationId: classificationId,
+          id: createdCollection.id
+        };
+      });
+    });
+    return Q.all([Q.all(conditionPromises), Q.all(collectionPromises)]);
+  })
+  .spread(function(createdConditions, createdRuleClassifications){
+    createdRule.ruleConditions = createdConditions.map(function(createdCondition){
+      return {
+        id: createdCondition.id,
+        name: createdCondition.name
+      };
+    });
+    createdRule.ruleClassifications = createdRuleClassifications;
+    if(createdRuleClassifications.length===0){
+      return Q();
+    }
+    //add all the Collections to the Sequence in one update
+    return colSeqModel.update(projectId, {
+      additional: {
+        collection_sequence_entries: createdRuleClassifications.map(function(createdRuleClassification, index){
+          return colSeqModel.createCollectionEntry(createdRuleClassification.id, index + 1);
+        })
+      },
+      description: createdSeq.description,
+      enabled: createdSeq.additional ? createdSeq.additional.evaluation_enabled : undefined,
+      id: createdSeq.id,
+      name: createdSeq.name
+    }, colSeqModel.defaults.updateBehaviour.add);
+  })
+  .then(function(){
+    logger.debug("Created Classification Rule "+createdRule.id+" during Workflow import with "+createdRule.ruleConditions.length+
+      " Conditions and "+createdRule.ruleClassifications.length+" Rule Classifications.");
+    return createdRule;
+  });
+}
+
+//Creates the Term Lists, Classifications and Workflow described by the document passed. Term Lists are created first so that Conditions
+//may refer to them by name, then Classifications so that Rule Classifications may refer to them by name. Each type of object is created in parallel,
+//limited by the configured bulk concurrency, and the Classification Rules are added to the Workflow in a single update once they have all been created.
+//Objects created before a failure are not removed. Instead the error the promise rejects with has a 'created' property giving the IDs and names
+//of the Term Lists, Classifications and Workflow created, so that the caller is able to remove them. Classification Rules are only added to the
+//Workflow once they have all been created, so any created before a failure are not on the Workflow.
+//Returns a promise resolving with the IDs and names of everything created.
+//importParams should have the properties;
+//importDocument  - object with 'termLists', 'classifications' and 'workflow' properties
+//project_id      - the project to create everything under
+function importWorkflow(importParams){
+  var deferredImport = Q.defer();
+  var projectId = importParams.project_id;
+  var importDocument = importParams.importDocument;
+  importDocument.termLists = importDocument.termLists ? importDocument.termLists : [];
+  importDocument.classifications = importDocument.classifications ? importDocument.classifications : [];
+  importDocument.workflow.classificationRules = importDocument.workflow.classificationRules ? importDocument.workflow.classificationRules : [];
+  for(var termList of importDocument.termLists){
+    termList.terms = termList.terms ? termList.terms : [];
+  }
+  for(var rule of importDocument.workflow.classificationRules){
+    rule.ruleConditions = rule.ruleConditions ? rule.ruleConditions : [];
+    rule.ruleClassifications = rule.ruleClassifications ? rule.ruleClassifications : [];
+  }
+
+  var creationResult = {};
+  var createdBeforeFailure = {
+    classifications: [],
+    termLists: []
+  };
+  var termListIdsByName = {};
+  var classificationIdsByName = {};
+  var classificationConditionIds;
+  var createdWorkflow;
+
+  logger.info("Importing Workflow '"+importDocument.workflow.name+"' with "+importDocument.termLists.length+" Term Lists, "+
+    importDocument.classifications.length+" Classifications and "+importDocument.workflow.classificationRules.length+" Classification Rules.");
+  validateReferences(projectId, importDocument)
+  .then(function(){
+    return runAllWithConcurrency(importDocument.termLists, function(termList){
+      return createTermList(projectId, termList, createdBeforeFailure);
+    });
+  })
+  .then(function(createdLexicons){
+    creationResult.termLists = createdLexicons.map(function(createdLexicon){
+      termListIdsByName[createdLexicon.name] = createdLexicon.id;
+      return {
+        id: createdLexicon.id,
+        name: createdLexicon.name
+      };
+    });
+    logger.debug("Created "+createdLexicons.length+" Term Lists during Workflow import.");
+    resolveTermListNames(importDocument, termListIdsByName);
+    return createClassifications(projectId, importDocument.classifications, createdBeforeFailure);
+  })
+  .then(function(createdClassifications){
+    creationResult.classifications = createdClassifications.map(function(createdClassification){
+      classificationIdsByName[createdClassification.name] = createdClassification.id;
+      return {
+        id: createdClassification.id,
+        name: createdClassification.name
+      };
+    });
+    logger.debug("Created "+createdClassifications.length+" Classifications during Workflow import.");
+    var usedClassificationIds = [];
+    var usedClassificationIdsSeen = {};
+    for(var rule of importDocument.workflow.classificationRules){
+      for(var ruleClassification of rule.ruleClassifications){
+        var classificationId = ruleClassification.classificationId!==undefined && ruleClassification.classificationId!==null ?
+          ruleClassification.classificationId : classificationIdsByName[ruleClassification.classificationName];
+        if(usedClassificationIdsSeen[classificationId]===undefined){
+          usedClassificationIdsSeen[classificationId] = true;
+          usedClassificationIds.push(classificationId);
+        }
+      }
+    }
+    //both are allowed to settle so that the Workflow is recorded as created even if retrieving the Conditions fails
+    return Q.allSettled([
+      getClassificationConditionIds(projectId, usedClassificationIds),
+      workflowModel.create(projectId, {
+        description: importDocument.workflow.description,
+        name: importDocument.workflow.name,
+        notes: importDocument.workflow.notes
+      })
+      .then(function(workflow){
+        createdBeforeFailure.workflow = {
+          id: workflow.id,
+          name: workflow.name
+        };
+        return workflow;
+      })
+    ])
+    .then(getValuesOrThrow);
+  })
+  .spread(function(retrievedConditionIds, workflow){
+    classificationConditionIds = retrievedConditionIds;
+    createdWorkflow = workflow;
+    logger.debug("Created Workflow "+createdWorkflow.id+" during Workflow import.");
+    return runAllWithConcurrency(importDocument.workflow.classificationRules, function(rule){
+      return createClassificationRule(projectId, createdWorkflow.id, rule, classificationIdsByName, classificationConditionIds);
+    });
+  })
+  .then(function(createdRules){
+    creationResult.workflow = {
+      classificationRules: createdRules,
+      id: createdWorkflow.id,
+      name: createdWorkflow.name
+    };
+    if(createdRules.length===0){
+      return Q();
+    }
+    //entries are inserted in document order so that priorities are applied as they would be creating each Rule in turn
+    var workflowWithEntries = {
+      additional: {
+        sequence_entries: []
+      },
+      id: createdWorkflow.id
+    };
+    importDocument.workflow.classificationRules.forEach(function(rule, index){
+      policyApiObjectsHelper.insertCollectionSequenceIntoWorkflowEntries(workflowWithEntries, createdRules[index].id, rule.priority);
+    });
+    return workflowModel.update(projectId, {
+      additional: {
+        notes: importDocument.workflow.notes,
+        sequence_entries: workflowWithEntries.additional.sequence_entries
+      },
+      description: importDocument.workflow.description,
+      id: createdWorkflow.id,
+      name: importDocument.workflow.name
+    });
+  })
+  .then(function(){
+    logger.info("Imported Workflow '"+importDocument.workflow.name+"' as Workflow ID: "+createdWorkflow.id);
+    deferredImport.resolve(creationResult);
+  })
+  .fail(function(errorResponse){
+    logger.error("Failed to import Workflow '"+importDocument.workflow.name+"': "+strUtils.getString(errorResponse));
+    var importError = errorResponse instanceof ApiError ? errorResponse : apiErrorFactory.createError(String(strUtils.getString(errorResponse)));
+    importError.created = createdBeforeFailure;
+    deferredImport.reject(importError);
+  }).done();
+
+  return deferredImport.promise;
+}
@@ -18,7 +18,10 @@ var SwaggerExpress = require('swagger-express-mw');
 var app = require('express')();
 var logger = require('./api/logging/logging.js');
 var appConfig = require('./api/config/classificationServiceConfig.js');
+var clusterManager = require('./api/libs/clusterManager.js');
+var metrics = require('./api/libs/metrics.js');
 var requestProcessing = require('./api/libs/requestProcessing.js');
+var requestTrace = require('./api/libs/requestTrace.js');
 var swaggerHelper = require('./api/helpers/swaggerHelper.js');
 
 module.exports = app; // for testing
@@ -50,69 +53,85 @@ var logErrorToConsole = function(err, statusCode, statusMessage){
   logger.error(errorOutputString);
 };
 
-SwaggerExpress.create(config, function(err, swaggerExpress) { 
-  if (err) { throw err; }
+//when running with multiple workers this process starts the workers, which each run the service, rather than serving requests itself
+if(clusterManager.isMaster()){
+  clusterManager.startMaster();
+}
+else {
+  SwaggerExpress.create(config, function(err, swaggerExpress) { 
+    if (err) { throw err; }
   
-  //log all non 2xx JSON responses, need access to response message so overriding the res.json method with an implementation to call the logger
-  //then proceed as normal
-  app.use(function(req, res, next){
-    var origJson = res.json;
-    res.json = function(jsonObject){
-      res.json = origJson;
-      if(jsonObject && (res.statusCode < 200 || res.statusCode > 299)){
-        logErrorToConsole(jsonObject, res.statusCode, res.statusMessage);
+    //begin recording event loop, memory and garbage collection metrics
+    metrics.startProcessMetrics();
+  
+    //create a trace for each request recording the calls it makes to Policy API, the rest of the request is handled within the context of the trace
+    app.use(function(req, res, next){
+      requestTrace.start(req, res, next);
+    });
+  
+    //log all non 2xx JSON responses, need access to response message so overriding the res.json method with an implementation to call the logger
+    //then proceed as normal
+    app.use(function(req, res, next){
+      var origJson = res.json;
+      res.json = function(jsonObject){
+        res.json = origJson;
+        if(jsonObject && (res.statusCode < 200 || res.statusCode > 299)){
+          logErrorToConsole(jsonObject, res.statusCode, res.statusMessage);
+        }
+        res.json(jsonObject);
       }
-      res.json(jsonObject);
-    }
-    next();
-  });
+      next();
+    });
     
   
-  //plug in point for any additional pre-processing required
-  app.use(function(req, res, next){
-    requestProcessing.preProcess(req, res);      
-    next();
-  });
+    //plug in point for any additional pre-processing required
+    app.use(function(req, res, next){
+      requestProcessing.preProcess(req, res);      
+      next();
+    });
   
-  // install middleware
-  swaggerExpress.register(app);
-  //set up additional swagger paths not in contract
-  swaggerHelper.register(config, app, swaggerExpress);
+    // install middleware
+    swaggerExpress.register(app);
+    //set up additional swagger paths not in contract
+    swaggerHelper.register(config, app, swaggerExpress);
     
-  //plug in point for any additional post-processing required
-  app.use(function(req, res, next){
-    requestProcessing.postProcess(req, res);      
-    next();
-  });
+    //plug in point for any additional post-processing required
+    app.use(function(req, res, next){
+      requestProcessing.postProcess(req, res);      
+      next();
+    });
   
-  // Custom error handler that returns JSON in line with validation requirements
-  app.use(function(err, req, res, next) {
-    var outputErrorMessage;
+    // Custom error handler that returns JSON in line with validation requirements
+    app.use(function(err, req, res, next) {
+      var outputErrorMessage;
     
-    if (typeof err !== 'object') {
-      // If the object is not an Error, create a representation that appears to be
-      err = {
-        message: String(err) // Coerce to string
-      };
-      outputErrorMessage = err.message;
-    } else {
-      // Ensure that err.message is enumerable (It is not by default)
-      Object.defineProperty(err, 'message', { enumerable: true });
+      if (typeof err !== 'object') {
+        // If the object is not an Error, create a representation that appears to be
+        err = {
+          message: String(err) // Coerce to string
+        };
+        outputErrorMessage = err.message;
+      } else {
+        // Ensure that err.message is enumerable (It is not by default)
+        Object.defineProperty(err, 'message', { enumerable: true });
       
-      //if this was a swagger schema validation issue output all messages in results
-      outputErrorMessage = err.message;
-      if(err.code === 'SCHEMA_VALIDATION_FAILED' && err.results !== undefined && err.results.errors!==undefined){
-        for(var validationError of err.results.errors){
-          outputErrorMessage += ". "+ validationError.message;
+        //if this was a swagger schema validation issue output all messages in results
+        outputErrorMessage = err.message;
+        if(err.code === 'SCHEMA_VALIDATION_FAILED' && err.results !== undefined && err.results.errors!==undefined){
+          for(var validationError of err.results.errors){
+            outputErrorMessage += ". "+ validationError.message;
+          }
         }
-      }
-    }     
-    logErrorToConsole(err);
-    // Return a JSON representation of #/definitions/ErrorResponse
-    res.setHeader('Content-Type', 'application/json');
-    res.json({message: outputErrorMessage});
-  });
+      }     
+      logErrorToConsole(err);
+      // Return a JSON representation of #/definitions/ErrorResponse
+      res.setHeader('Content-Type', 'application/json');
+      res.json({message: outputErrorMessage});
+    });
   
-  app.listen(config.serverPort);
-  logger.info('Service listening on port: '+config.serverPort);
-});
+    var server = app.listen(config.serverPort);
+    //stop accepting connections and allow requests in progress to complete when asked to shut down
+    clusterManager.registerServer(server);
+    logger.info('Service listening on port: '+config.serverPort);
+  });
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2015-2017 EntIT Software LLC, a Micro Focus company.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+//benchmark for ruleClassifications.js deleteAll against a stub Policy API, checking that the multi-ID requests stay constant and that Collection
+//updates are bounded as the number of Rule Classifications on the Rule grows. Set BENCHMARK_REPORT to output the requests made and the time taken.
+var Q = require("q");
+var assert = require("../helpers/assertHelper.js");
+var sinon = require("sinon");
+var appConfig = require("../../api/config/classificationServiceConfig.js");
+var policyHttpHelper = require("../../api/helpers/policyHttpHelper.js");
+var collectionModel = require("../../api/models/policy_api/collection.js");
+var validation = require("../../api/models/validation.js");
+var ruleClassificationsModel = require("../../api/models/ruleClassifications.js");
+
+//time the stub Policy API takes to respond to each request
+var stubLatency = 5;
+var ruleClassificationCounts = [10, 100, 500];
+var reportResults = process.env.BENCHMARK_REPORT !== undefined && process.env.BENCHMARK_REPORT !== "";
+
+//builds a Collection Sequence with a Collection entry for each Rule Classification
+var buildCollectionSequence = function(ruleClassificationCount){
+  var collectionEntries = [];
+  for(var index = 0; index < ruleClassificationCount; index++){
+    collectionEntries.push({
+      collection_ids: [1000 + index],
+      order: index
+    });
+  }
+  return {
+    additional: {
+      collection_sequence_entries: collectionEntries
+    },
+    description: "benchmark rule",
+    id: 1,
+    name: "benchmark rule"
+  };
+};
+
+//replaces the Policy API requests made by deleteAll with a stub that records each request and how many are in flight at once
+var stubPolicyApi = function(sandbox, ruleClassificationCount){
+  var stats = {
+    collectionUpdates: 0,
+    maxInFlight: 0,
+    otherRequests: 0
+  };
+  var inFlight = 0;
+  var respond = function(result){
+    inFlight++;
+    stats.maxInFlight = Math.max(stats.maxInFlight, inFlight);
+    return Q.delay(stubLatency).then(function(){
+      inFlight--;
+      return result;
+    });
+  };
+  sandbox.stub(validation, "validateWorkflowAndSeqForRule", function(){
+    stats.otherRequests++;
+    return respond({
+      collectionSequence: buildCollectionSequence(ruleClassificationCount)
+    });
+  });
+  sandbox.stub(collectionModel, "getCollectionsByIds", function(projectId, getParams){
+    stats.otherRequests++;
+    return respond({
+      results: getParams.ids.map(function(collectionId){
+        return {
+          additional: {
+            condition: {
+              id: collectionId + 1000
+            }
+          },
+          id: collectionId
+        };
+      })
+    });
+  });
+  sandbox.stub(policyHttpHelper, "genericPolicyAPIPostItemRequest", function(path, params){
+    if(path==="classification/update" && params.type==="collection"){
+      stats.collectionUpdates++;
+    }
+    else {
+      stats.otherRequests++;
+    }
+    return respond({});
+  });
+  return stats;
+};
+
+describe('models - ruleClassifications deleteAll benchmark', function(){
+  this.timeout(30000);
+  var sandbox;
+  var results = [];
+
+  beforeEach(function(){
+    sandbox = sinon.sandbox.create();
+  });
+  afterEach(function(){
+    sandbox.restore();
+  });
+  after(function(){
+    if(!reportResults){
+      return;
+    }
+    console.log("      Rule Classifications | multi-ID requests | Collection updates | max in flight | time (ms)");
+    for(var result of results){
+      console.log("      "+result.count+" | "+result.stats.otherRequests+" | "+result.stats.collectionUpdates+" | "+result.stats.maxInFlight+" | "+result.time);
+    }
+  });
+
+  ruleClassificationCounts.forEach(function(ruleClassificationCount){
+    it('Should delete '+ruleClassificationCount+' Rule Classifications with a constant number of multi-ID requests and bounded updates', function(done){
+      var stats = stubPolicyApi(sandbox, ruleClassificationCount);
+      var startTime = Date.now();
+      ruleClassificationsModel.deleteAll({
+        classificationRuleId: 1,
+        project_id: "benchmark",
+        workflowId: 1
+      })
+      .then(function(){
+        results.push({
+          count: ruleClassificationCount,
+          stats: stats,
+          time: Date.now() - startTime
+        });
+        //validate, Sequence update, Collections retrieve, Collections delete and Conditions delete
+        assert.equal(stats.otherRequests, 5, "Expecting the same number of requests other than Collection updates regardless of Rule Classification count.");
+        assert.equal(stats.collectionUpdates, ruleClassificationCount, "Expecting a single update for each Collection.");
+        assert(stats.maxInFlight <= appConfig.bulkConcurrency, "Expecting no more than "+appConfig.bulkConcurrency+" requests in flight at once, was "+stats.maxInFlight);
+        done();
+      })
+      .fail(function(error){
+        done(error);
+      }).done();
+    });
+  });
+});
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2015-2017 EntIT Software LLC, a Micro Focus company.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+//tests for termExport.js against a stub Policy API that returns fewer Terms than the page size requested
+var Q = require("q");
+var assert = require("../helpers/assertHelper.js");
+var sinon = require("sinon");
+var appConfig = require("../../api/config/classificationServiceConfig.js");
+var lexiconModel = require("../../api/models/policy_api/lexicons.js");
+var lexiconExpressionsModel = require("../../api/models/policy_api/lexicon_expressions.js");
+var termExportModel = require("../../api/models/termExport.js");
+
+var termCount = 23;
+var requestedPageSize = 10;
+var cappedPageSize = 4;
+
+//replaces the Lexicon Expression retrieve with a stub holding termCount expressions that never returns more than cappedPageSize at once
+var stubPolicyApi = function(sandbox){
+  sandbox.stub(lexiconModel, "getWithValidate", function(){
+    return Q({id: 1});
+  });
+  sandbox.stub(lexiconExpressionsModel, "getByLexiconIdFromStart", function(projectId, lexiconId, start, pageSize){
+    var results = [];
+    for(var position = start; position < start + Math.min(pageSize, cappedPageSize) && position <= termCount; position++){
+      results.push({
+        additional: {
+          expression: "term "+position,
+          type: "text"
+        },
+        id: position
+      });
+    }
+    return Q({
+      results: results,
+      totalhits: termCount
+    });
+  });
+};
+
+describe('models - termExport', function(){
+  var sandbox;
+  var configuredPageSize;
+
+  beforeEach(function(){
+    sandbox = sinon.sandbox.create();
+    configuredPageSize = appConfig.exportPageSize;
+    appConfig.exportPageSize = requestedPageSize;
+  });
+  afterEach(function(){
+    sandbox.restore();
+    appConfig.exportPageSize = configuredPageSize;
+  });
+
+  it('Should export every Term exactly once when Policy API returns fewer Terms than the page size', function(done){
+    stubPolicyApi(sandbox);
+    termExportModel.exportTerms({
+      project_id: "export",
+      termListId: 1
+    })
+    .then(function(termStream){
+      var output = "";
+      termStream.on('data', function(data){
+        output += data;
+      });
+      termStream.on('error', done);
+      termStream.on('end', function(){
+        var exportedIds = output.split("\n").filter(function(line){
+          return line.length > 0;
+        }).map(function(line){
+          return JSON.parse(line).id;
+        });
+        assert.equal(exportedIds.length, termCount, "Expecting each Term to be exported once.");
+        for(var index = 0; index < termCount; index++){
+          assert.equal(exportedIds[index], index + 1, "Expecting Terms to be exported in order with none skipped or repeated.");
+        }
+        done();
+      });
+    })
+    .fail(function(error){
+      done(error);
+    }).done();
+  });
+});
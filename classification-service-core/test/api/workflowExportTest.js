@@ -0,0 +1,178 @@
+/*
+ * Copyright 2015-2017 EntIT Software LLC, a Micro Focus company.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+//tests for workflowExport.js against a stub Policy API that returns fewer Terms than the page size requested
+var Q = require("q");
+var assert = require("../helpers/assertHelper.js");
+var sinon = require("sinon");
+var appConfig = require("../../api/config/classificationServiceConfig.js");
+var apiErrorTypes = require("../../api/models/errors/apiErrorTypes.js");
+var lexiconModel = require("../../api/models/policy_api/lexicons.js");
+var lexiconExpressionsModel = require("../../api/models/policy_api/lexicon_expressions.js");
+var workflowExpandedModel = require("../../api/models/workflowExpanded.js");
+var workflowExportModel = require("../../api/models/workflowExport.js");
+
+//number of Terms on each Term List used by the Workflow, keyed by Term List ID
+var termCounts = {
+  "11": 23,
+  "12": 0,
+  "13": 9
+};
+var requestedPageSize = 10;
+var cappedPageSize = 4;
+
+var buildTermListCondition = function(termListId, order){
+  return {
+    additional: {
+      field: "CONTENT",
+      order: order,
+      type: "termlist",
+      value: termListId
+    },
+    name: "condition "+termListId
+  };
+};
+
+//an expanded Workflow with a single Classification Rule using each of the Term Lists in termCounts
+var buildExpandedWorkflow = function(){
+  return {
+    classificationRules: [{
+      conditions: [buildTermListCondition(11, 100), buildTermListCondition(12, 200)],
+      description: "rule",
+      name: "rule",
+      priority: 1,
+      ruleClassifications: [{
+        classification: {
+          additional: buildTermListCondition(13).additional,
+          classificationTarget: "*",
+          description: "classification",
+          id: 21,
+          name: "classification",
+          type: "simple"
+        }
+      }]
+    }],
+    description: "workflow",
+    name: "workflow",
+    notes: "notes"
+  };
+};
+
+//replaces the Policy API requests made by the export with stubs. Lexicon Expression retrieves never return more than cappedPageSize at once.
+//Term List IDs passed in 'missingTermListIds' are left out of the Term Lists returned.
+var stubPolicyApi = function(sandbox, missingTermListIds){
+  var stats = {
+    termListRequests: 0
+  };
+  sandbox.stub(workflowExpandedModel, "get", function(){
+    return Q(buildExpandedWorkflow());
+  });
+  sandbox.stub(lexiconModel, "getWithValidate", function(projectId, lexiconIds){
+    stats.termListRequests++;
+    return Q({
+      results: lexiconIds.filter(function(lexiconId){
+        return (missingTermListIds || []).indexOf(lexiconId) === -1;
+      }).map(function(lexiconId){
+        return {
+          description: "term list "+lexiconId,
+          id: Number(lexiconId),
+          name: "term list "+lexiconId
+        };
+      })
+    });
+  });
+  sandbox.stub(lexiconExpressionsModel, "getByLexiconIdFromStart", function(projectId, lexiconId, start, pageSize){
+    var termCount = termCounts[String(lexiconId)];
+    var results = [];
+    for(var position = start; position < start + Math.min(pageSize, cappedPageSize) && position <= termCount; position++){
+      results.push({
+        additional: {
+          expression: lexiconId+" term "+position,
+          type: "text"
+        },
+        id: position
+      });
+    }
+    return Q({
+      results: results,
+      totalhits: termCount
+    });
+  });
+  return stats;
+};
+
+describe('models - workflowExport', function(){
+  var sandbox;
+  var configuredPageSize;
+
+  beforeEach(function(){
+    sandbox = sinon.sandbox.create();
+    configuredPageSize = appConfig.exportPageSize;
+    appConfig.exportPageSize = requestedPageSize;
+  });
+  afterEach(function(){
+    sandbox.restore();
+    appConfig.exportPageSize = configuredPageSize;
+  });
+
+  it('Should export every Term of each Term List exactly once when Policy API returns fewer Terms than the page size', function(done){
+    var stats = stubPolicyApi(sandbox);
+    workflowExportModel.exportWorkflow({
+      id: 1,
+      project_id: "export"
+    })
+    .then(function(exportStream){
+      var output = "";
+      exportStream.on('data', function(data){
+        output += data;
+      });
+      exportStream.on('error', done);
+      exportStream.on('end', function(){
+        var exportedDocument = JSON.parse(output);
+        assert.equal(exportedDocument.termLists.length, Object.keys(termCounts).length, "Expecting each Term List used to be exported.");
+        for(var termList of exportedDocument.termLists){
+          var termListId = termList.name.replace("term list ", "");
+          var termCount = termCounts[termListId];
+          assert.equal(termList.terms.length, termCount, "Expecting each Term on Term List "+termListId+" to be exported once.");
+          for(var index = 0; index < termCount; index++){
+            assert.equal(termList.terms[index].expression, termListId+" term "+(index + 1),
+              "Expecting Terms to be exported in order with none skipped or repeated.");
+          }
+        }
+        assert.equal(stats.termListRequests, 1, "Expecting the Term Lists to be retrieved in a single request for multiple IDs.");
+        done();
+      });
+    })
+    .fail(function(error){
+      done(error);
+    }).done();
+  });
+
+  it('Should fail with a not found error when a Term List used is missing from those retrieved', function(done){
+    stubPolicyApi(sandbox, ["12"]);
+    workflowExportModel.exportWorkflow({
+      id: 1,
+      project_id: "export"
+    })
+    .then(function(){
+      done(new Error("Expecting export to fail when a Term List cannot be found."));
+    })
+    .fail(function(error){
+      assert.equal(error.type, apiErrorTypes.ITEM_NOT_FOUND, "Expecting a not found error for the missing Term List.");
+      assert(error.message.indexOf("12") !== -1, "Expecting the error message to give the ID of the missing Term List.");
+      done();
+    }).done();
+  });
+});
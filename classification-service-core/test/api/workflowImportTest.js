@@ -0,0 +1,188 @@
+/*
+ * Copyright 2015-2017 EntIT Software LLC, a Micro Focus company.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+//tests for workflowImport.js reporting the objects created before a failure, against stubs of the models it uses to create them
+var Q = require("q");
+var assert = require("../helpers/assertHelper.js");
+var sinon = require("sinon");
+var classificationObjectsHelper = require("../../api/helpers/classificationObjectsHelper.js");
+var errorResponseHelper = require("../../api/models/errors/errorResponse.js");
+var classificationsModel = require("../../api/models/classifications.js");
+var colSeqModel = require("../../api/models/policy_api/collectionSequence.js");
+var lexiconModel = require("../../api/models/policy_api/lexicons.js");
+var policyModel = require("../../api/models/policy_api/policy.js");
+var workflowModel = require("../../api/models/policy_api/workflow.js");
+var workflowImportModel = require("../../api/models/workflowImport.js");
+
+var ruleFailureMessage = "Stub failure creating Classification Rule.";
+
+//a document with two Term Lists, two Classifications using them by name and a Classification Rule using both Classifications by name
+var buildImportDocument = function(){
+  var buildClassification = function(name, termListName){
+    return {
+      additional: {
+        field: "CONTENT",
+        type: "termlist",
+        value: termListName
+      },
+      classificationTarget: "File",
+      name: name,
+      type: "simple"
+    };
+  };
+  return {
+    classifications: [buildClassification("first classification", "first term list"), buildClassification("second classification", "second term list")],
+    termLists: [{
+      name: "first term list",
+      terms: [{expression: "first", type: "text"}]
+    }, {
+      name: "second term list",
+      terms: [{expression: "second", type: "text"}]
+    }],
+    workflow: {
+      classificationRules: [{
+        name: "rule",
+        priority: 1,
+        ruleClassifications: [{classificationName: "first classification"}, {classificationName: "second classification"}],
+        ruleConditions: []
+      }],
+      name: "imported workflow"
+    }
+  };
+};
+
+//replaces the creation of each type of object with stubs assigning IDs. Classifications named in 'failedClassificationNames' fail to be created
+//and creating a Classification Rule always fails. Returns the calls made to create a Workflow.
+var stubModels = function(sandbox, failedClassificationNames){
+  var nextId = 1;
+  var workflowCreates = [];
+  sandbox.stub(lexiconModel, "create", function(projectId, lexicon){
+    return Q({
+      description: lexicon.description,
+      id: nextId++,
+      name: lexicon.name
+    });
+  });
+  sandbox.stub(lexiconModel, "update", function(){
+    return Q({});
+  });
+  sandbox.stub(classificationsModel, "createClassifications", function(bulkParams){
+    return Q({
+      results: bulkParams.classifications.map(function(classification, index){
+        if(failedClassificationNames.indexOf(classification.name) !== -1){
+          return {
+            error: {
+              message: "Stub failure creating Classification."
+            },
+            index: index,
+            status: "FAILED",
+            statusCode: 500
+          };
+        }
+        return {
+          classification: {
+            id: nextId++,
+            name: classification.name
+          },
+          index: index,
+          status: "CREATED"
+        };
+      })
+    });
+  });
+  sandbox.stub(policyModel, "getPoliciesByIds", function(projectId, getParams){
+    return Q({
+      results: getParams.ids.map(function(policyId){
+        return {
+          id: policyId
+        };
+      })
+    });
+  });
+  sandbox.stub(classificationObjectsHelper.classifications, "getConditionIdFromPolicy", function(policy){
+    return policy.id + 1000;
+  });
+  sandbox.stub(workflowModel, "create", function(projectId, workflow){
+    workflowCreates.push(workflow);
+    return Q({
+      id: nextId++,
+      name: workflow.name
+    });
+  });
+  sandbox.stub(colSeqModel, "create", function(){
+    return Q.reject(ruleFailureMessage);
+  });
+  return workflowCreates;
+};
+
+var getCreatedNames = function(createdObjects){
+  return createdObjects.map(function(createdObject){
+    return createdObject.name;
+  }).sort();
+};
+
+describe('models - workflowImport', function(){
+  var sandbox;
+
+  beforeEach(function(){
+    sandbox = sinon.sandbox.create();
+  });
+  afterEach(function(){
+    sandbox.restore();
+  });
+
+  it('Should report the Term Lists, Classifications and Workflow created when creating a Classification Rule fails', function(done){
+    stubModels(sandbox, []);
+    workflowImportModel.importWorkflow({
+      importDocument: buildImportDocument(),
+      project_id: "import"
+    })
+    .then(function(){
+      done(new Error("Expecting import to fail when a Classification Rule cannot be created."));
+    })
+    .fail(function(error){
+      assert(error.message.indexOf(ruleFailureMessage) !== -1, "Expecting the error to give the reason the import failed.");
+      assert.equal(JSON.stringify(getCreatedNames(error.created.termLists)), JSON.stringify(["first term list", "second term list"]),
+        "Expecting both Term Lists to be reported as created.");
+      assert.equal(JSON.stringify(getCreatedNames(error.created.classifications)), JSON.stringify(["first classification", "second classification"]),
+        "Expecting both Classifications to be reported as created.");
+      assert.equal(error.created.workflow.name, "imported workflow", "Expecting the Workflow to be reported as created.");
+      var builtError = errorResponseHelper.create(error);
+      assert.equal(builtError.statusCode, 500, "Expecting the failure to be returned as an internal error.");
+      assert.equal(builtError.response.created, error.created, "Expecting the created objects to be returned on the error response.");
+      done();
+    }).done();
+  });
+
+  it('Should report only the objects created when creating a Classification fails', function(done){
+    var workflowCreates = stubModels(sandbox, ["second classification"]);
+    workflowImportModel.importWorkflow({
+      importDocument: buildImportDocument(),
+      project_id: "import"
+    })
+    .then(function(){
+      done(new Error("Expecting import to fail when a Classification cannot be created."));
+    })
+    .fail(function(error){
+      assert.equal(JSON.stringify(getCreatedNames(error.created.termLists)), JSON.stringify(["first term list", "second term list"]),
+        "Expecting both Term Lists to be reported as created.");
+      assert.equal(JSON.stringify(getCreatedNames(error.created.classifications)), JSON.stringify(["first classification"]),
+        "Expecting only the Classification that was created to be reported.");
+      assert.equal(error.created.workflow, undefined, "Expecting no Workflow to be reported as it was not created.");
+      assert.equal(workflowCreates.length, 0, "Expecting the Workflow not to be created after a Classification failed.");
+      done();
+    }).done();
+  });
+});
@@ -28,6 +28,7 @@ public class ClassificationApisProvider {
     private final RuleConditionsApi ruleConditionsApi;
     private final TermsApi termsApi;
     private final ClassificationsApi classificationsApi;
+    private final JobsApi jobsApi;
 
     public ClassificationApisProvider(final ApiClient apiClient){
         workflowsApi = new WorkflowsApi(apiClient);
@@ -36,6 +37,7 @@ public class ClassificationApisProvider {
         ruleConditionsApi = new RuleConditionsApi(apiClient);
         termsApi = new TermsApi(apiClient);
         classificationsApi = new ClassificationsApi(apiClient);
+        jobsApi = new JobsApi(apiClient);
     }
 
     public ClassificationsApi getClassificationsApi(){
@@ -46,6 +48,10 @@ public class ClassificationApisProvider {
         return this.classificationRulesApi;
     }
 
+    public JobsApi getJobsApi(){
+        return this.jobsApi;
+    }
+
     public RuleClassificationsApi getRuleClassificationsApi(){
         return this.ruleClassificationsApi;
     }
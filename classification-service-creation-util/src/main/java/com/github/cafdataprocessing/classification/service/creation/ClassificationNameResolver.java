@@ -18,6 +18,7 @@ package com.github.cafdataprocessing.classification.service.creation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -26,7 +27,10 @@ import java.util.Map;
  */
 public class ClassificationNameResolver {
     private static final Logger LOGGER = LoggerFactory.getLogger(ClassificationNameResolver.class);
-    private final Map<String, Long> classificationNamesToIds = new LinkedHashMap<>();
+    /**
+     * Names may be added from multiple threads when a workflow is created in parallel.
+     */
+    private final Map<String, Long> classificationNamesToIds = Collections.synchronizedMap(new LinkedHashMap<>());
 
     /**
      * Adds the provided map of entries to the existing map of names to IDs.
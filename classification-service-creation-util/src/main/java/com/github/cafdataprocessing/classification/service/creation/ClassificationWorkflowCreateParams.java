@@ -37,6 +37,32 @@ public class ClassificationWorkflowCreateParams {
      * Whether existing workflows under the {@code projectId} with the same name as the provided workflow should be removed.
      */
     private boolean overwriteExisting = true;
+    /**
+     * Maximum number of objects that may be created at the same time. A value of 1 creates the objects one at a time.
+     */
+    private int parallelism = 1;
+    /**
+     * Whether existing objects under the {@code projectId} with the same names as those in the workflow definition should be
+     * updated to match the definition, rather than removed and created again.
+     */
+    private boolean syncExisting = false;
+    /**
+     * Whether the workflow file should be read as a stream, creating term lists as they are read rather than reading the whole
+     * file into memory first.
+     */
+    private boolean streamInput = false;
+    /**
+     * Maximum number of terms sent to the Classification API in a single request.
+     */
+    private int termChunkSize = TermUploader.DEFAULT_CHUNK_SIZE;
+    /**
+     * Maximum number of chunks of terms sent to the Classification API at the same time.
+     */
+    private int termUploadConcurrency = TermUploader.DEFAULT_CONCURRENCY;
+    /**
+     * Number of times a chunk of terms that failed to be sent is retried.
+     */
+    private int termUploadRetries = TermUploader.DEFAULT_RETRIES;
 
     /**
      * Create the parameter object with required properties providing a path to file containing the workflow definition.
@@ -62,10 +88,34 @@ public class ClassificationWorkflowCreateParams {
         return overwriteExisting;
     }
 
+    public int getParallelism(){
+        return parallelism;
+    }
+
     public String getProjectId(){
         return projectId;
     }
 
+    public boolean getStreamInput(){
+        return streamInput;
+    }
+
+    public boolean getSyncExisting(){
+        return syncExisting;
+    }
+
+    public int getTermChunkSize(){
+        return termChunkSize;
+    }
+
+    public int getTermUploadConcurrency(){
+        return termUploadConcurrency;
+    }
+
+    public int getTermUploadRetries(){
+        return termUploadRetries;
+    }
+
     public String getWorkflowBaseDataFileName(){
         return workflowBaseDataFileName;
     }
@@ -77,4 +127,76 @@ public class ClassificationWorkflowCreateParams {
     public void setOverwriteExisting(boolean overwriteExisting){
         this.overwriteExisting = overwriteExisting;
     }
+
+    /**
+     * Sets the maximum number of objects that may be created at the same time. Term lists and classifications are created in
+     * parallel, as are the conditions and rule classifications of each classification rule.
+     * @param parallelism Maximum number of concurrent creation requests to the Classification API. Must be at least 1.
+     * @throws IllegalArgumentException If {@code parallelism} is less than 1.
+     */
+    public void setParallelism(int parallelism){
+        if(parallelism < 1){
+            throw new IllegalArgumentException("Parallelism must be at least 1, was: "+parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Sets whether existing term lists, classifications and the workflow with names matching the workflow definition should be
+     * synchronized with the definition, applying only the changes needed for them to match. When set {@code overwriteExisting}
+     * and {@code parallelism} are not used.
+     * @param syncExisting Whether existing objects should be synchronized with the workflow definition.
+     */
+    public void setSyncExisting(boolean syncExisting){
+        this.syncExisting = syncExisting;
+    }
+
+    /**
+     * Sets whether the workflow file should be read as a stream. Term lists are created as they are read, with their terms
+     * sent in chunks of {@code termChunkSize}, so that memory used does not grow with the number of terms in the file. The
+     * name and description of each term list must appear before its terms in the file. When set {@code parallelism} and
+     * {@code syncExisting} are not used.
+     * @param streamInput Whether the workflow file should be read as a stream.
+     */
+    public void setStreamInput(boolean streamInput){
+        this.streamInput = streamInput;
+    }
+
+    /**
+     * Sets the maximum number of terms sent to the Classification API in a single request. The terms of a term list are
+     * split into chunks of this size.
+     * @param termChunkSize Maximum number of terms per request. Must be at least 1.
+     * @throws IllegalArgumentException If {@code termChunkSize} is less than 1.
+     */
+    public void setTermChunkSize(int termChunkSize){
+        if(termChunkSize < 1){
+            throw new IllegalArgumentException("Term chunk size must be at least 1, was: "+termChunkSize);
+        }
+        this.termChunkSize = termChunkSize;
+    }
+
+    /**
+     * Sets the maximum number of chunks of terms sent to the Classification API at the same time. Chunks are sent while
+     * further terms are read, with at most twice this number of chunks waiting to be sent for each term list.
+     * @param termUploadConcurrency Maximum number of concurrent requests adding terms. Must be at least 1.
+     * @throws IllegalArgumentException If {@code termUploadConcurrency} is less than 1.
+     */
+    public void setTermUploadConcurrency(int termUploadConcurrency){
+        if(termUploadConcurrency < 1){
+            throw new IllegalArgumentException("Term upload concurrency must be at least 1, was: "+termUploadConcurrency);
+        }
+        this.termUploadConcurrency = termUploadConcurrency;
+    }
+
+    /**
+     * Sets the number of times a chunk of terms is retried when sending it fails with a server or connection error.
+     * @param termUploadRetries Number of retries for each chunk. Must not be negative.
+     * @throws IllegalArgumentException If {@code termUploadRetries} is negative.
+     */
+    public void setTermUploadRetries(int termUploadRetries){
+        if(termUploadRetries < 0){
+            throw new IllegalArgumentException("Term upload retries must not be negative, was: "+termUploadRetries);
+        }
+        this.termUploadRetries = termUploadRetries;
+    }
 }
@@ -18,6 +18,7 @@ package com.github.cafdataprocessing.classification.service.creation;
 import com.github.cafdataprocessing.classification.service.client.ApiException;
 import com.github.cafdataprocessing.classification.service.client.api.ClassificationRulesApi;
 import com.github.cafdataprocessing.classification.service.client.api.ClassificationsApi;
+import com.github.cafdataprocessing.classification.service.client.api.JobsApi;
 import com.github.cafdataprocessing.classification.service.client.api.TermsApi;
 import com.github.cafdataprocessing.classification.service.client.api.WorkflowsApi;
 import com.github.cafdataprocessing.classification.service.client.model.*;
@@ -28,8 +29,12 @@ import com.github.cafdataprocessing.classification.service.creation.jsonobjects.
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -38,6 +43,15 @@ import java.util.stream.Collectors;
  */
 public class ClassificationWorkflowRemover {
     private static final Logger LOGGER = LoggerFactory.getLogger(ClassificationWorkflowRemover.class);
+    private static final int PAGE_SIZE = 100;
+    /**
+     * Time to wait between checks on the progress of a cascading workflow delete.
+     */
+    private static final long JOB_POLL_INTERVAL_MILLIS = 500;
+    /**
+     * Time to wait for a cascading workflow delete to finish before the removal fails.
+     */
+    private static final long JOB_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(10);
 
     /**
      * Removes existing workflows (including classification rules etc under the workflow), classifications and termlists
@@ -51,23 +65,41 @@ public class ClassificationWorkflowRemover {
      */
     public static void removeMatching(final ClassificationApisProvider apisProvider, final String projectId,
                               final CreationJson creationJson) throws ApiException {
+        removeMatching(apisProvider, projectId, creationJson, 1);
+    }
+
+    /**
+     * Removes existing workflows (including classification rules etc under the workflow), classifications and termlists
+     * that have names matching those in the provided CreationJson. With a {@code parallelism} greater than 1, pages of
+     * existing objects after the first are retrieved at the same time and matching objects are removed at the same time,
+     * with workflows removed using a cascading delete.
+     * @param apisProvider Provides access to classification service APIs so retrieval and delete requests may be sent via
+     *                     the appropriate API.
+     * @param projectId ProjectId that items to check are under.
+     * @param creationJson Definition of classification workflow, classifications and term lists to create. The names to check
+     *                     will be taken from these elements.
+     * @param parallelism Maximum number of requests sent to the classification service at the same time.
+     * @throws ApiException If an error occurs contacting the classification service via the APIs.
+     */
+    public static void removeMatching(final ClassificationApisProvider apisProvider, final String projectId,
+                                      final CreationJson creationJson, final int parallelism) throws ApiException {
         final WorkflowJson workflowToCheck = creationJson.workflow;
         if(workflowToCheck!=null) {
-            removeMatchingWorkflows(apisProvider, projectId, workflowToCheck.name);
+            removeMatchingWorkflows(apisProvider, projectId, workflowToCheck.name, parallelism);
         }
         final List<ClassificationJson> classificationsToCheck = creationJson.classifications;
         if(classificationsToCheck!=null && !classificationsToCheck.isEmpty()){
             removeMatchingClassifications(apisProvider, projectId, classificationsToCheck
                     .stream()
                     .map(cl -> cl.name)
-                    .collect(Collectors.toList()));
+                    .collect(Collectors.toList()), parallelism);
         }
         final List<TermListJson> termListsToCheck = creationJson.termLists;
         if(termListsToCheck!=null && !termListsToCheck.isEmpty()){
             removeMatchingTermlists(apisProvider, projectId, termListsToCheck
                     .stream()
                     .map(tl -> tl.name)
-                    .collect(Collectors.toList()));
+                    .collect(Collectors.toList()), parallelism);
         }
     }
 
@@ -84,40 +116,55 @@ public class ClassificationWorkflowRemover {
      */
     public static void removeMatchingTermlists(final ClassificationApisProvider apisProvider, final String projectId,
                                                final List<String> termListNamesToRemove) throws ApiException {
+        removeMatchingTermlists(apisProvider, projectId, termListNamesToRemove, 1);
+    }
+
+    /**
+     * Removes any existing term lists that match the names provided
+     * under the projectId.
+     * @param apisProvider Provides access to classification service APIs so retrieval and delete requests may be sent via
+     *                     the appropriate API.
+     * @param projectId ProjectId that term lists to check are under.
+     * @param termListNamesToRemove Names to check existing term lists against. If an existing term list matches
+     *                                    any of these names it will be removed.
+     * @param parallelism Maximum number of requests sent to the classification service at the same time.
+     * @throws ApiException If an error occurs contacting the classification API. Will occur if a term list that is to be removed
+     * is in use on a classification.
+     */
+    public static void removeMatchingTermlists(final ClassificationApisProvider apisProvider, final String projectId,
+                                               final List<String> termListNamesToRemove, final int parallelism)
+            throws ApiException {
         LOGGER.info("Checking for existing termlists that should be removed.");
         if(termListNamesToRemove==null || termListNamesToRemove.isEmpty()){
             LOGGER.info("No term list names to check have been provided. Term lists will not be checked.");
             return;
         }
         final TermsApi termsApi = apisProvider.getTermsApi();
-        final List<ExistingTermList> existingTermLists = new ArrayList<>();
-        {
-            int pageNum = 1;
-            final int pageSize = 100;
+        final Set<String> namesToRemove = new HashSet<>(termListNamesToRemove);
+        final ExecutorService executor = createExecutor(parallelism);
+        try {
             LOGGER.debug("Retrieving existing term lists to check their names.");
-            while(true){
-                final ExistingTermLists retrieveTermListsResult = termsApi.getTermLists(projectId, pageNum, pageSize);
-                existingTermLists.addAll(retrieveTermListsResult.getTermLists());
-                if(retrieveTermListsResult.getTotalHits() <= pageNum*pageSize){
-                    break;
-                }
-                pageNum++;
-            }
+            final List<ExistingTermList> existingTermLists = PagedResults.retrieveAll(
+                    (pageNum, pageSize) -> termsApi.getTermLists(projectId, pageNum, pageSize),
+                    ExistingTermLists::getTermLists, ExistingTermLists::getTotalHits, PAGE_SIZE, executor);
             LOGGER.debug("Retrieved all existing term lists.");
-        }
-        if(existingTermLists.isEmpty()){
-            LOGGER.info("There are no existing term lists to remove.");
-            return;
-        }
-        for(ExistingTermList existingTermList: existingTermLists){
-            String existingTermListName = existingTermList.getName();
-            if(termListNamesToRemove.contains(existingTermListName)){
-                final Long existingTermListId = existingTermList.getId();
-                LOGGER.debug("Existing term list matches name: "+existingTermListName+", has ID: "+
+            if(existingTermLists.isEmpty()){
+                LOGGER.info("There are no existing term lists to remove.");
+                return;
+            }
+            final List<ExistingTermList> termListsToRemove = existingTermLists.stream()
+                    .filter(existingTermList -> namesToRemove.contains(existingTermList.getName()))
+                    .collect(Collectors.toList());
+            PagedResults.runForAll(termListsToRemove, termListToRemove -> {
+                final Long existingTermListId = termListToRemove.getId();
+                LOGGER.debug("Existing term list matches name: "+termListToRemove.getName()+", has ID: "+
                 existingTermListId+". Term list will be removed.");
                 termsApi.deleteTermList(projectId, existingTermListId);
                 LOGGER.debug("Removed term list with ID: "+existingTermListId);
-            }
+            }, executor);
+        }
+        finally {
+            shutdownExecutor(executor);
         }
         LOGGER.info("Removed any existing term lists with matching names.");
     }
@@ -135,42 +182,56 @@ public class ClassificationWorkflowRemover {
      */
     public static void removeMatchingClassifications(final ClassificationApisProvider apisProvider, final String projectId,
                                                      final List<String> classificationNamesToRemove) throws ApiException {
+        removeMatchingClassifications(apisProvider, projectId, classificationNamesToRemove, 1);
+    }
+
+    /**
+     * Removes any existing classifications that match the names provided
+     * under the projectId.
+     * @param apisProvider Provides access to classification service APIs so retrieval and delete requests may be sent via
+     *                     the appropriate API.
+     * @param projectId ProjectId that classifications to check are under.
+     * @param classificationNamesToRemove Names to check existing classifications against. If an existing classification matches
+     *                                    any of these names it will be removed.
+     * @param parallelism Maximum number of requests sent to the classification service at the same time.
+     * @throws ApiException If an error occurs contacting the classification API. Will occur if a classification that is to be removed
+     * is in use on a workflow rule classification.
+     */
+    public static void removeMatchingClassifications(final ClassificationApisProvider apisProvider, final String projectId,
+                                                     final List<String> classificationNamesToRemove, final int parallelism)
+            throws ApiException {
         LOGGER.info("Checking for existing classifications that should be removed.");
         if(classificationNamesToRemove==null || classificationNamesToRemove.isEmpty()){
             LOGGER.info("No classification names to check have been provided. Classifications will not be checked.");
             return;
         }
         final ClassificationsApi classificationsApi = apisProvider.getClassificationsApi();
-        final List<ExistingClassification> existingClassifications = new ArrayList<>();
-        {
-            int pageNum = 1;
-            final int pageSize = 100;
+        final Set<String> namesToRemove = new HashSet<>(classificationNamesToRemove);
+        final ExecutorService executor = createExecutor(parallelism);
+        try {
             LOGGER.debug("Retrieving existing classifications to check their names.");
-            while(true){
-                final ExistingClassifications retrieveClassificationsResult =
-                        classificationsApi.getClassifications(projectId, pageNum, pageSize);
-                existingClassifications.addAll(retrieveClassificationsResult.getClassifications());
-                if(retrieveClassificationsResult.getTotalHits() <= pageNum*pageSize){
-                    break;
-                }
-                pageNum++;
-            }
+            final List<ExistingClassification> existingClassifications = PagedResults.retrieveAll(
+                    (pageNum, pageSize) -> classificationsApi.getClassifications(projectId, pageNum, pageSize),
+                    ExistingClassifications::getClassifications, ExistingClassifications::getTotalHits, PAGE_SIZE, executor);
             LOGGER.debug("Retrieved all existing classifications.");
-        }
-        if(existingClassifications.isEmpty()){
-            LOGGER.info("There are no existing classifications to remove.");
-            return;
-        }
-        for(ExistingClassification existingClassification: existingClassifications){
-            final String existingClassificationName = existingClassification.getName();
-            if(classificationNamesToRemove.contains(existingClassificationName)){
-                final Long existingClassificationId = existingClassification.getId();
-                LOGGER.debug("Existing classification matches name: "+existingClassificationName+", has ID: "
+            if(existingClassifications.isEmpty()){
+                LOGGER.info("There are no existing classifications to remove.");
+                return;
+            }
+            final List<ExistingClassification> classificationsToRemove = existingClassifications.stream()
+                    .filter(existingClassification -> namesToRemove.contains(existingClassification.getName()))
+                    .collect(Collectors.toList());
+            PagedResults.runForAll(classificationsToRemove, classificationToRemove -> {
+                final Long existingClassificationId = classificationToRemove.getId();
+                LOGGER.debug("Existing classification matches name: "+classificationToRemove.getName()+", has ID: "
                         +existingClassificationId+
                         ". Classification will be removed.");
                 classificationsApi.deleteClassification(projectId, existingClassificationId);
                 LOGGER.debug("Removed classification with ID: "+existingClassificationId);
-            }
+            }, executor);
+        }
+        finally {
+            shutdownExecutor(executor);
         }
         LOGGER.info("Removed any existing classifications with matching names.");
     }
@@ -186,6 +247,25 @@ public class ClassificationWorkflowRemover {
      */
     public static void removeMatchingWorkflows(final ClassificationApisProvider apisProvider, final String projectId,
                                                final String workflowNameToRemove) throws ApiException {
+        removeMatchingWorkflows(apisProvider, projectId, workflowNameToRemove, 1);
+    }
+
+    /**
+     * Removes any existing workflows (including classification rules etc under the workflow) under the specified projectId
+     * that match the name provided. With a {@code parallelism} greater than 1 each matching workflow is removed using a
+     * cascading delete, which removes all classification rules on the workflow in the classification service, rather than
+     * removing each rule in turn. Removing rules of the same workflow at the same time is not safe as each removal updates
+     * the workflow.
+     * @param apisProvider Provides access to classification service APIs so retrieval and delete requests may be sent via
+     *                     the appropriate API.
+     * @param projectId ProjectId that checked workflows should be under.
+     * @param workflowNameToRemove If any workflows have a name that matches this value they will be removed.
+     * @param parallelism Maximum number of requests sent to the classification service at the same time.
+     * @throws ApiException If an error occurs contacting the classification API.
+     */
+    public static void removeMatchingWorkflows(final ClassificationApisProvider apisProvider, final String projectId,
+                                               final String workflowNameToRemove, final int parallelism)
+            throws ApiException {
         LOGGER.info("Checking for existing classification workflows that should be removed using name: "
                 +workflowNameToRemove);
         if(workflowNameToRemove==null){
@@ -194,56 +274,83 @@ public class ClassificationWorkflowRemover {
             return;
         }
         final WorkflowsApi workflowsApi = apisProvider.getWorkflowsApi();
-        final List<ExistingWorkflow> existingWorkflows = new ArrayList<>();
-        {
-            int pageNum = 1;
-            final int pageSize = 100;
+        final ExecutorService executor = createExecutor(parallelism);
+        try {
             LOGGER.debug("Retrieving existing classification workflows to check their names.");
-            while(true) {
-                final ExistingWorkflows retrieveWorkflowsResult = workflowsApi.getWorkflows(projectId, pageNum, pageSize);
-                existingWorkflows.addAll(retrieveWorkflowsResult.getWorkflows());
-                //check if there are more workflows to retrieve
-                if(retrieveWorkflowsResult.getTotalHits() <= pageNum*pageSize){
-                    break;
-                }
-                pageNum++;
-            }
+            final List<ExistingWorkflow> existingWorkflows = PagedResults.retrieveAll(
+                    (pageNum, pageSize) -> workflowsApi.getWorkflows(projectId, pageNum, pageSize),
+                    ExistingWorkflows::getWorkflows, ExistingWorkflows::getTotalHits, PAGE_SIZE, executor);
             LOGGER.debug("Retrieved all existing classification workflows.");
-        }
 
-        if(existingWorkflows.isEmpty()){
-            LOGGER.info("There are no existing classification workflows to remove.");
-            return;
-        }
-        final ClassificationRulesApi classificationRulesApi = apisProvider.getClassificationRulesApi();
-        for(ExistingWorkflow existingWorkflow: existingWorkflows){
-            final Long existingWorkflowId = existingWorkflow.getId();
-            if(existingWorkflow.getName().equals(workflowNameToRemove)){
+            if(existingWorkflows.isEmpty()){
+                LOGGER.info("There are no existing classification workflows to remove.");
+                return;
+            }
+            final List<ExistingWorkflow> workflowsToRemove = existingWorkflows.stream()
+                    .filter(existingWorkflow -> existingWorkflow.getName().equals(workflowNameToRemove))
+                    .collect(Collectors.toList());
+            PagedResults.runForAll(workflowsToRemove, workflowToRemove -> {
+                final Long existingWorkflowId = workflowToRemove.getId();
                 LOGGER.debug("Existing classification workflow matches name: "+workflowNameToRemove+", has ID: "
                         +existingWorkflowId+
                         ". Workflow will be removed.");
-                final List<ExistingClassificationRule> classificationRulesToRemove = new ArrayList<>();
-                int pageNum = 1;
-                final int pageSize = 100;
-                while(true) {
-                    final ClassificationRules retrieveClassificationRulesResult =
-                            classificationRulesApi.getClassificationRules(projectId, existingWorkflowId, pageNum, pageSize);
-                    classificationRulesToRemove.addAll(retrieveClassificationRulesResult.getClassificationRules());
-                    if(retrieveClassificationRulesResult.getTotalHits() <= pageNum*pageSize){
-                        break;
-                    }
-                    pageNum++;
+                if(executor==null){
+                    removeWorkflow(apisProvider, projectId, existingWorkflowId);
+                }
+                else {
+                    removeWorkflowWithCascade(apisProvider, projectId, existingWorkflowId);
                 }
-
-                removeClassificationRules(classificationRulesApi, projectId, existingWorkflowId, classificationRulesToRemove);
-                LOGGER.debug("Removed all classification rules for workflow: "+existingWorkflowId);
-                workflowsApi.deleteWorkflow(projectId, existingWorkflowId);
                 LOGGER.debug("Removed classification workflow: "+existingWorkflowId);
-            }
+            }, executor);
+        }
+        finally {
+            shutdownExecutor(executor);
         }
         LOGGER.info("Removed any existing classification workflows with name: "+workflowNameToRemove);
     }
 
+    private static void removeWorkflow(final ClassificationApisProvider apisProvider, final String projectId,
+                                       final Long workflowId) throws ApiException {
+        final ClassificationRulesApi classificationRulesApi = apisProvider.getClassificationRulesApi();
+        final List<ExistingClassificationRule> classificationRulesToRemove = PagedResults.retrieveAll(
+                (pageNum, pageSize) -> classificationRulesApi.getClassificationRules(projectId, workflowId, pageNum, pageSize),
+                ClassificationRules::getClassificationRules, ClassificationRules::getTotalHits, PAGE_SIZE);
+        removeClassificationRules(classificationRulesApi, projectId, workflowId, classificationRulesToRemove);
+        LOGGER.debug("Removed all classification rules for workflow: "+workflowId);
+        apisProvider.getWorkflowsApi().deleteWorkflow(projectId, workflowId);
+    }
+
+    /**
+     * Removes a workflow along with its classification rules using a cascading delete, waiting for the deletion to finish.
+     * @throws ApiException If the deletion fails or has not finished within {@link #JOB_TIMEOUT_MILLIS}. A deletion that
+     * times out may still be running on the classification service.
+     */
+    private static void removeWorkflowWithCascade(final ClassificationApisProvider apisProvider, final String projectId,
+                                                  final Long workflowId) throws ApiException {
+        final JobsApi jobsApi = apisProvider.getJobsApi();
+        Job deleteJob = apisProvider.getWorkflowsApi().createWorkflowDeleteJob(projectId, workflowId);
+        LOGGER.debug("Started removal of workflow: "+workflowId+" with job: "+deleteJob.getId());
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(JOB_TIMEOUT_MILLIS);
+        while(deleteJob.getStatus()==Job.StatusEnum.RUNNING){
+            if(System.nanoTime() - deadline > 0){
+                throw new ApiException("Timed out waiting for removal of classification workflow with ID: "+workflowId
+                        +" by job: "+deleteJob.getId()+". Progress: "+deleteJob.getProgress());
+            }
+            try {
+                Thread.sleep(JOB_POLL_INTERVAL_MILLIS);
+            }
+            catch(InterruptedException e){
+                Thread.currentThread().interrupt();
+                throw new ApiException(e);
+            }
+            deleteJob = jobsApi.getJob(projectId, deleteJob.getId());
+        }
+        if(deleteJob.getStatus()==Job.StatusEnum.FAILED){
+            throw new ApiException("Failed to remove classification workflow with ID: "+workflowId+". Errors: "
+                    +deleteJob.getErrors());
+        }
+    }
+
     private static void removeClassificationRules(final ClassificationRulesApi classificationRulesApi,
                                                   final String projectId,
                                                   final Long workflowId,
@@ -257,4 +364,17 @@ public class ClassificationWorkflowRemover {
             LOGGER.debug("Removed classification rule with ID: "+ruleToRemoveId);
         }
     }
+
+    private static ExecutorService createExecutor(final int parallelism){
+        if(parallelism < 1){
+            throw new IllegalArgumentException("Parallelism must be at least 1, was: "+parallelism);
+        }
+        return parallelism > 1 ? Executors.newFixedThreadPool(parallelism) : null;
+    }
+
+    private static void shutdownExecutor(final ExecutorService executor){
+        if(executor!=null){
+            executor.shutdownNow();
+        }
+    }
 }
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2015-2017 EntIT Software LLC, a Micro Focus company.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cafdataprocessing.classification.service.creation;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.cafdataprocessing.classification.service.client.ApiException;
+import com.github.cafdataprocessing.classification.service.creation.jsonobjects.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a workflow input file as a stream, passing term lists, classifications and classification rules to a handler as they
+ * are read rather than holding the whole definition in memory. Terms are passed in chunks of a fixed size so that the memory
+ * used does not depend on the number of terms in the file. The name and description of a term list must appear before its
+ * terms in the file.
+ */
+public class CreationInputJsonStreamReader {
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    /**
+     * Receives the objects read from a workflow input file, in the order they appear in the file.
+     */
+    public interface Handler {
+        /**
+         * Called when a term list is read, before any of its terms.
+         * @param termList The term list read, without its terms.
+         * @throws ApiException If an error occurs contacting the classification API.
+         */
+        default void startTermList(TermListJson termList) throws ApiException {}
+
+        /**
+         * Called with each chunk of terms read for the current term list.
+         * @param terms The terms read, no more than the chunk size passed to the reader.
+         * @throws ApiException If an error occurs contacting the classification API.
+         */
+        default void addTerms(List<TermJson> terms) throws ApiException {}
+
+        /**
+         * Called once all terms on the current term list have been read.
+         * @throws ApiException If an error occurs contacting the classification API.
+         */
+        default void endTermList() throws ApiException {}
+
+        /**
+         * Called when a classification is read.
+         * @param classification The classification read.
+         * @throws ApiException If an error occurs contacting the classification API.
+         */
+        default void addClassification(ClassificationJson classification) throws ApiException {}
+
+        /**
+         * Called when a classification rule on the workflow is read.
+         * @param classificationRule The classification rule read, with its conditions and rule classifications.
+         * @throws ApiException If an error occurs contacting the classification API.
+         */
+        default void addClassificationRule(ClassificationRuleJson classificationRule) throws ApiException {}
+
+        /**
+         * Called once the workflow has been read, after all of its classification rules.
+         * @param workflow The workflow read, without its classification rules.
+         * @throws ApiException If an error occurs contacting the classification API.
+         */
+        default void setWorkflow(WorkflowJson workflow) throws ApiException {}
+    }
+
+    /**
+     * Read the file provided, passing the objects read to {@code handler}.
+     * @param inputFile File that should be read.
+     * @param termChunkSize Maximum number of terms passed to the handler at one time.
+     * @param handler Receives the objects read from the file.
+     * @throws IOException If file contents could not be read as a workflow definition.
+     * @throws ApiException If the handler encounters an error contacting the classification API.
+     */
+    public static void readInputFile(File inputFile, int termChunkSize, Handler handler) throws IOException, ApiException {
+        if(termChunkSize < 1){
+            throw new IllegalArgumentException("Term chunk size must be at least 1, was: "+termChunkSize);
+        }
+        try(JsonParser parser = mapper.getFactory().createParser(inputFile)){
+            expectToken(parser, parser.nextToken(), JsonToken.START_OBJECT);
+            boolean workflowRead = false;
+            while(parser.nextToken()==JsonToken.FIELD_NAME){
+                String fieldName = parser.getCurrentName();
+                JsonToken valueToken = parser.nextToken();
+                switch(fieldName){
+                    case "termLists":
+                        readArray(parser, valueToken, () -> readTermList(parser, termChunkSize, handler));
+                        break;
+                    case "classifications":
+                        readArray(parser, valueToken,
+                                () -> handler.addClassification(mapper.readValue(parser, ClassificationJson.class)));
+                        break;
+                    case "workflow":
+                        expectToken(parser, valueToken, JsonToken.START_OBJECT);
+                        readWorkflow(parser, handler);
+                        workflowRead = true;
+                        break;
+                    default:
+                        throw JsonMappingException.from(parser, "Unrecognized field \""+fieldName+"\" in workflow input file.");
+                }
+            }
+            if(!workflowRead){
+                throw JsonMappingException.from(parser, "Missing required property 'workflow' in workflow input file.");
+            }
+        }
+        catch(IOException e){
+            throw new IOException("Failure trying to deserialize the workflow input file. Please check the format of the file contents.",
+                    e);
+        }
+    }
+
+    /**
+     * Reads an element of an array in the input file, with the parser positioned at the start of the element.
+     */
+    @FunctionalInterface
+    private interface ElementReader {
+        void read() throws IOException, ApiException;
+    }
+
+    private static void readArray(JsonParser parser, JsonToken arrayToken, ElementReader elementReader)
+            throws IOException, ApiException {
+        if(arrayToken==JsonToken.VALUE_NULL){
+            return;
+        }
+        expectToken(parser, arrayToken, JsonToken.START_ARRAY);
+        while(parser.nextToken()!=JsonToken.END_ARRAY){
+            elementReader.read();
+        }
+    }
+
+    private static void readTermList(JsonParser parser, int termChunkSize, Handler handler) throws IOException, ApiException {
+        expectToken(parser, parser.getCurrentToken(), JsonToken.START_OBJECT);
+        String name = null;
+        String description = null;
+        boolean started = false;
+        while(parser.nextToken()==JsonToken.FIELD_NAME){
+            String fieldName = parser.getCurrentName();
+            JsonToken valueToken = parser.nextToken();
+            switch(fieldName){
+                case "name":
+                    name = parser.getValueAsString();
+                    break;
+                case "description":
+                    description = parser.getValueAsString();
+                    break;
+                case "terms":
+                    if(!started){
+                        handler.startTermList(buildTermList(parser, name, description));
+                        started = true;
+                    }
+                    final List<TermJson> termsChunk = new ArrayList<>(termChunkSize);
+                    readArray(parser, valueToken, () -> {
+                        termsChunk.add(mapper.readValue(parser, TermJson.class));
+                        if(termsChunk.size()==termChunkSize){
+                            handler.addTerms(new ArrayList<>(termsChunk));
+                            termsChunk.clear();
+                        }
+                    });
+                    if(!termsChunk.isEmpty()){
+                        handler.addTerms(termsChunk);
+                    }
+                    break;
+                default:
+                    throw JsonMappingException.from(parser, "Unrecognized field \""+fieldName+"\" on term list in workflow input file.");
+            }
+        }
+        if(!started){
+            handler.startTermList(buildTermList(parser, name, description));
+        }
+        handler.endTermList();
+    }
+
+    private static TermListJson buildTermList(JsonParser parser, String name, String description) throws JsonMappingException {
+        if(name==null){
+            throw JsonMappingException.from(parser,
+                    "Missing required property 'name' on term list. The name of a term list must appear before its terms.");
+        }
+        return new TermListJson(name, description, null);
+    }
+
+    private static void readWorkflow(JsonParser parser, Handler handler) throws IOException, ApiException {
+        String name = null;
+        String description = null;
+        String notes = null;
+        while(parser.nextToken()==JsonToken.FIELD_NAME){
+            String fieldName = parser.getCurrentName();
+            JsonToken valueToken = parser.nextToken();
+            switch(fieldName){
+                case "name":
+                    name = parser.getValueAsString();
+                    break;
+                case "description":
+                    description = parser.getValueAsString();
+                    break;
+                case "notes":
+                    notes = parser.getValueAsString();
+                    break;
+                case "classificationRules":
+                    readArray(parser, valueToken,
+                            () -> handler.addClassificationRule(mapper.readValue(parser, ClassificationRuleJson.class)));
+                    break;
+                default:
+                    throw JsonMappingException.from(parser, "Unrecognized field \""+fieldName+"\" on workflow in workflow input file.");
+            }
+        }
+        if(name==null){
+            throw JsonMappingException.from(parser, "Missing required property 'name' on workflow.");
+        }
+        handler.setWorkflow(new WorkflowJson(name, description, notes, null));
+    }
+
+    private static void expectToken(JsonParser parser, JsonToken actual, JsonToken expected) throws JsonMappingException {
+        if(actual!=expected){
+            throw JsonMappingException.from(parser, "Expected "+expected+" but found "+actual+" in workflow input file.");
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2015-2017 EntIT Software LLC, a Micro Focus company.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cafdataprocessing.classification.service.creation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.math.BigDecimal;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Compares the definitions read from a workflow input file with objects retrieved from the Classification API, to decide
+ * whether an existing object needs to be updated.
+ */
+final class DefinitionComparer {
+    /**
+     * Enums are written using toString so that they take the same value as sent to and returned by the Classification API.
+     */
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .disable(SerializationFeature.FAIL_ON_EMPTY_BEANS)
+            .enable(SerializationFeature.WRITE_ENUMS_USING_TO_STRING);
+
+    private DefinitionComparer(){}
+
+    /**
+     * Check whether an expected text value matches the existing value. Null and empty values are considered the same.
+     * @param expected Value from the definition.
+     * @param actual Value on the existing object.
+     * @return True if the values match. False otherwise.
+     */
+    static boolean textMatches(String expected, String actual){
+        if(StringUtils.isNullOrEmpty(expected)){
+            return StringUtils.isNullOrEmpty(actual);
+        }
+        return expected.equals(actual);
+    }
+
+    /**
+     * Check whether each property on an expected value has the same value on the existing object. Properties only present on
+     * the existing object, such as IDs assigned by the Classification API, are ignored. Numbers are compared by value as
+     * retrieved properties may be returned as a different numeric type or as text, e.g. the ID of a term list.
+     * @param expected Value from the definition, e.g. the 'additional' of a condition.
+     * @param actual Value on the existing object.
+     * @return True if every property on {@code expected} matches {@code actual}. False otherwise.
+     */
+    static boolean propertiesMatch(Object expected, Object actual){
+        return nodesMatch(MAPPER.valueToTree(expected), MAPPER.valueToTree(actual));
+    }
+
+    private static boolean nodesMatch(JsonNode expected, JsonNode actual){
+        if(expected==null || expected.isNull()){
+            return actual==null || actual.isNull() || actual.isMissingNode();
+        }
+        if(actual==null || actual.isNull() || actual.isMissingNode()){
+            return false;
+        }
+        if(expected.isObject()){
+            if(!actual.isObject()){
+                return false;
+            }
+            Iterator<Map.Entry<String, JsonNode>> expectedFields = expected.fields();
+            while(expectedFields.hasNext()){
+                Map.Entry<String, JsonNode> expectedField = expectedFields.next();
+                if(!nodesMatch(expectedField.getValue(), actual.path(expectedField.getKey()))){
+                    return false;
+                }
+            }
+            return true;
+        }
+        if(expected.isArray()){
+            if(!actual.isArray() || actual.size()!=expected.size()){
+                return false;
+            }
+            for(int index = 0; index < expected.size(); index++){
+                if(!nodesMatch(expected.get(index), actual.get(index))){
+                    return false;
+                }
+            }
+            return true;
+        }
+        if(expected.isNumber() || actual.isNumber()){
+            BigDecimal expectedNumber = toNumber(expected);
+            BigDecimal actualNumber = toNumber(actual);
+            return expectedNumber!=null && actualNumber!=null && expectedNumber.compareTo(actualNumber)==0;
+        }
+        return expected.asText().equals(actual.asText());
+    }
+
+    private static BigDecimal toNumber(JsonNode node){
+        if(node.isNumber()){
+            return node.decimalValue();
+        }
+        if(!node.isTextual()){
+            return null;
+        }
+        try {
+            return new BigDecimal(node.asText());
+        }
+        catch(NumberFormatException e){
+            return null;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2015-2017 EntIT Software LLC, a Micro Focus company.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cafdataprocessing.classification.service.creation;
+
+import com.github.cafdataprocessing.classification.service.client.ApiException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
+
+/**
+ * Retrieves all results of a paged request to the Classification API and runs calls for multiple objects, one at a time or
+ * on a pool of threads.
+ */
+final class PagedResults {
+    private PagedResults(){}
+
+    /**
+     * Retrieves a page of results from the Classification API.
+     */
+    @FunctionalInterface
+    interface PageRequest<R> {
+        R retrieve(int pageNum, int pageSize) throws ApiException;
+    }
+
+    /**
+     * A call to the Classification API for a single object.
+     */
+    @FunctionalInterface
+    interface ApiAction<T> {
+        void run(T item) throws ApiException;
+    }
+
+    /**
+     * Retrieves every page of results, one page at a time.
+     * @param pageRequest Retrieves a single page.
+     * @param getResults Returns the results on a page.
+     * @param getTotalHits Returns the total number of results from a page.
+     * @param pageSize Number of results to retrieve on each page.
+     * @return All results, in page order.
+     * @throws ApiException If an error occurs contacting the classification API.
+     */
+    static <R, T> List<T> retrieveAll(PageRequest<R> pageRequest, Function<R, List<T>> getResults,
+                                      Function<R, Integer> getTotalHits, int pageSize) throws ApiException {
+        return retrieveAll(pageRequest, getResults, getTotalHits, pageSize, null);
+    }
+
+    /**
+     * Retrieves every page of results. The first page is retrieved to find the total number of results, after which the
+     * remaining pages are retrieved at the same time on {@code executor}.
+     * @param pageRequest Retrieves a single page.
+     * @param getResults Returns the results on a page.
+     * @param getTotalHits Returns the total number of results from a page.
+     * @param pageSize Number of results to retrieve on each page.
+     * @param executor Used to retrieve pages after the first. If null pages are retrieved one at a time.
+     * @return All results, in page order.
+     * @throws ApiException If an error occurs contacting the classification API.
+     */
+    static <R, T> List<T> retrieveAll(PageRequest<R> pageRequest, Function<R, List<T>> getResults,
+                                      Function<R, Integer> getTotalHits, int pageSize, ExecutorService executor)
+            throws ApiException {
+        final R firstPage = pageRequest.retrieve(1, pageSize);
+        final List<T> results = new ArrayList<>(getResults.apply(firstPage));
+        final int totalHits = getTotalHits.apply(firstPage);
+        final int pageCount = (totalHits + pageSize - 1) / pageSize;
+        if(executor==null){
+            for(int pageNum = 2; pageNum <= pageCount; pageNum++){
+                results.addAll(getResults.apply(pageRequest.retrieve(pageNum, pageSize)));
+            }
+            return results;
+        }
+        final List<CompletableFuture<R>> pageFutures = new ArrayList<>();
+        for(int pageNum = 2; pageNum <= pageCount; pageNum++){
+            final int pageToRetrieve = pageNum;
+            pageFutures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return pageRequest.retrieve(pageToRetrieve, pageSize);
+                }
+                catch(ApiException e){
+                    throw new CompletionException(e);
+                }
+            }, executor));
+        }
+        for(CompletableFuture<R> pageFuture: pageFutures){
+            results.addAll(getResults.apply(join(pageFuture)));
+        }
+        return results;
+    }
+
+    /**
+     * Runs {@code action} for each item, waiting until it has been run for all items.
+     * @param items Items to run the action for.
+     * @param action Call to the Classification API to make for each item.
+     * @param executor Used to run the action for multiple items at the same time. If null the action is run for each item
+     *                 in turn.
+     * @throws ApiException If an error occurs contacting the classification API. When run on {@code executor} the action is
+     * still run for the other items.
+     */
+    static <T> void runForAll(List<T> items, ApiAction<T> action, ExecutorService executor) throws ApiException {
+        if(executor==null){
+            for(T item: items){
+                action.run(item);
+            }
+            return;
+        }
+        final List<CompletableFuture<Void>> actionFutures = new ArrayList<>();
+        for(T item: items){
+            actionFutures.add(CompletableFuture.runAsync(() -> {
+                try {
+                    action.run(item);
+                }
+                catch(ApiException e){
+                    throw new CompletionException(e);
+                }
+            }, executor));
+        }
+        join(CompletableFuture.allOf(actionFutures.toArray(new CompletableFuture<?>[actionFutures.size()])));
+    }
+
+    private static <T> T join(CompletableFuture<T> future) throws ApiException {
+        try {
+            return future.join();
+        }
+        catch(CompletionException e){
+            if(e.getCause() instanceof ApiException){
+                throw (ApiException) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
@@ -31,7 +31,10 @@ import java.util.*;
  */
 public class TermListNameResolver {
     private static final Logger LOGGER = LoggerFactory.getLogger(TermListNameResolver.class);
-    private final Map<String, Long> termListNamesToIds = new LinkedHashMap<>();
+    /**
+     * Names may be added from multiple threads when a workflow is created in parallel.
+     */
+    private final Map<String, Long> termListNamesToIds = Collections.synchronizedMap(new LinkedHashMap<>());
 
     /**
      * Adds the provided map of entries to the existing map of names to IDs.
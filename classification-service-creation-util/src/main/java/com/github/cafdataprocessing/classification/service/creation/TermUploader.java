@@ -0,0 +1,251 @@
+/*
+ * Copyright 2015-2017 EntIT Software LLC, a Micro Focus company.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cafdataprocessing.classification.service.creation;
+
+import com.github.cafdataprocessing.classification.service.client.ApiException;
+import com.github.cafdataprocessing.classification.service.client.api.TermsApi;
+import com.github.cafdataprocessing.classification.service.client.model.NewTerms;
+import com.github.cafdataprocessing.classification.service.creation.jsonobjects.TermJson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * Adds terms to term lists through the Classification API in chunks. Chunks are sent from a pool of threads so that further
+ * terms may be read while earlier chunks are sent, with a limit on the number of chunks waiting to be sent for each term list
+ * so that the memory used stays bounded. A chunk that fails with a server or connection error is retried before the upload
+ * is reported as failed. As a retried chunk may have been added before the failure was reported, a retry can add a term
+ * that is already on the term list. The uploader should be closed once all uploads have finished so that its threads are stopped.
+ */
+class TermUploader implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TermUploader.class);
+    static final int DEFAULT_CHUNK_SIZE = 1000;
+    static final int DEFAULT_CONCURRENCY = 4;
+    static final int DEFAULT_RETRIES = 3;
+    /**
+     * Delay before the first retry of a chunk, doubled for each further retry.
+     */
+    private static final long INITIAL_RETRY_DELAY_MILLIS = 500;
+
+    private final TermsApi termsApi;
+    private final int chunkSize;
+    private final int maxPendingChunks;
+    private final int maxRetries;
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Creates an instance of TermUploader.
+     * @param termsApi API to add terms through.
+     * @param chunkSize Maximum number of terms sent in a single request.
+     * @param concurrency Maximum number of chunks sent at the same time, across all term lists.
+     * @param maxRetries Number of times a failed chunk is retried.
+     */
+    TermUploader(TermsApi termsApi, int chunkSize, int concurrency, int maxRetries){
+        this.termsApi = termsApi;
+        this.chunkSize = chunkSize;
+        this.maxPendingChunks = concurrency * 2;
+        this.maxRetries = maxRetries;
+        final AtomicInteger threadCount = new AtomicInteger();
+        //threads are also stopped when idle so that an uploader used for the lifetime of its owner does not need to be closed
+        this.executor = new ThreadPoolExecutor(concurrency, concurrency, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "term-uploader-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Stops the threads used to send chunks once any chunks already passed have been sent.
+     */
+    @Override
+    public void close(){
+        executor.shutdown();
+    }
+
+    /**
+     * Starts adding terms to a term list.
+     * @param projectId ProjectId that the term list is under.
+     * @param termListId ID of the term list to add terms to.
+     * @return Upload that terms may be passed to.
+     */
+    Upload start(String projectId, long termListId){
+        return new Upload(projectId, termListId);
+    }
+
+    /**
+     * Terms being added to a single term list. Terms passed are sent once a chunk is filled, {@link #finish()} sends any
+     * remaining terms and waits for all chunks to be sent.
+     */
+    final class Upload {
+        private final String projectId;
+        private final long termListId;
+        private final Semaphore pendingChunks = new Semaphore(maxPendingChunks);
+        private final List<CompletableFuture<Void>> chunkFutures = new ArrayList<>();
+        private final AtomicReference<ApiException> failure = new AtomicReference<>();
+        private List<TermJson> currentChunk = new ArrayList<>();
+        private final long startTime = System.nanoTime();
+        private long elapsedNanos;
+        private int termsAdded;
+
+        private Upload(String projectId, long termListId){
+            this.projectId = projectId;
+            this.termListId = termListId;
+        }
+
+        /**
+         * Passes terms to be added to the term list. Blocks while the maximum number of chunks for the term list are
+         * waiting to be sent.
+         * @param terms Terms to add.
+         * @throws ApiException If an earlier chunk failed to be added.
+         */
+        void addTerms(List<TermJson> terms) throws ApiException {
+            for(TermJson term: terms){
+                currentChunk.add(term);
+                if(currentChunk.size()==chunkSize){
+                    submitChunk();
+                }
+            }
+        }
+
+        /**
+         * Sends any remaining terms and waits for all chunks to be added to the term list.
+         * @throws ApiException If a chunk failed to be added after retrying.
+         */
+        void finish() throws ApiException {
+            if(!currentChunk.isEmpty()){
+                submitChunk();
+            }
+            CompletableFuture.allOf(chunkFutures.toArray(new CompletableFuture<?>[chunkFutures.size()])).join();
+            elapsedNanos = System.nanoTime() - startTime;
+            throwIfFailed();
+            LOGGER.info("Added "+termsAdded+" terms to term list with ID: "+termListId+" in "
+                    +TimeUnit.NANOSECONDS.toMillis(elapsedNanos)+"ms, "+String.format("%.1f", getTermsPerSecond())
+                    +" terms per second.");
+        }
+
+        /**
+         * @return Number of terms added to the term list.
+         */
+        int getTermsAdded(){
+            return termsAdded;
+        }
+
+        /**
+         * @return Time taken from the start of the upload until all chunks were added, in nanoseconds.
+         */
+        long getElapsedNanos(){
+            return elapsedNanos;
+        }
+
+        /**
+         * @return Number of terms added per second, measured from the start of the upload until all chunks were added.
+         */
+        double getTermsPerSecond(){
+            return calculateTermsPerSecond(termsAdded, elapsedNanos);
+        }
+
+        private void submitChunk() throws ApiException {
+            throwIfFailed();
+            final List<TermJson> chunk = currentChunk;
+            currentChunk = new ArrayList<>();
+            try {
+                pendingChunks.acquire();
+            }
+            catch(InterruptedException e){
+                Thread.currentThread().interrupt();
+                throw new ApiException(e);
+            }
+            chunkFutures.removeIf(CompletableFuture::isDone);
+            chunkFutures.add(CompletableFuture.runAsync(() -> {
+                try {
+                    sendChunk(projectId, termListId, chunk);
+                }
+                catch(ApiException e){
+                    failure.compareAndSet(null, e);
+                }
+                catch(RuntimeException e){
+                    //recorded so that the upload fails rather than the chunk being silently dropped
+                    failure.compareAndSet(null, new ApiException(e));
+                }
+                finally {
+                    pendingChunks.release();
+                }
+            }, executor));
+            termsAdded += chunk.size();
+        }
+
+        private void throwIfFailed() throws ApiException {
+            ApiException chunkFailure = failure.get();
+            if(chunkFailure!=null){
+                throw chunkFailure;
+            }
+        }
+    }
+
+    /**
+     * Calculates the rate that terms were added at.
+     * @param terms Number of terms added.
+     * @param elapsedNanos Time taken to add the terms, in nanoseconds.
+     * @return Number of terms added per second, or 0 if no time has elapsed.
+     */
+    static double calculateTermsPerSecond(long terms, long elapsedNanos){
+        if(elapsedNanos <= 0){
+            return 0;
+        }
+        return terms / (elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1));
+    }
+
+    private void sendChunk(String projectId, long termListId, List<TermJson> chunk) throws ApiException {
+        NewTerms termsToCreate = new NewTerms();
+        termsToCreate.setTerms(chunk.stream().map(TermJson::toApiTerm).collect(Collectors.toList()));
+        long retryDelay = INITIAL_RETRY_DELAY_MILLIS;
+        for(int attempt = 0; ; attempt++){
+            try {
+                termsApi.updateTerms(projectId, termListId, termsToCreate);
+                return;
+            }
+            catch(ApiException e){
+                //client errors indicate a problem with the terms sent so are not retried
+                boolean retryable = e.getCode()==0 || e.getCode() >= 500;
+                if(!retryable || attempt >= maxRetries){
+                    throw e;
+                }
+                LOGGER.warn("Failed to add chunk of "+chunk.size()+" terms to term list with ID: "+termListId
+                        +". Retrying in "+retryDelay+"ms.", e);
+                try {
+                    Thread.sleep(retryDelay);
+                }
+                catch(InterruptedException interrupted){
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+                retryDelay *= 2;
+            }
+        }
+    }
+}
@@ -21,18 +21,26 @@ import com.github.cafdataprocessing.classification.service.client.api.*;
 import com.github.cafdataprocessing.classification.service.client.model.*;
 import com.github.cafdataprocessing.classification.service.creation.created.*;
 import com.github.cafdataprocessing.classification.service.creation.jsonobjects.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 /**
  * Creates a classification workflow based on provided input data.
  */
 public class WorkflowCreator {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WorkflowCreator.class);
     private final WorkflowsApi workflowsApi;
     private final ClassificationRulesApi classificationRulesApi;
     private final RuleConditionsApi ruleConditionsApi;
@@ -45,6 +53,12 @@ public class WorkflowCreator {
     private final TermListNameResolver termListNameResolver;
     private final ClassificationNameResolver classificationNameResolver;
 
+    /**
+     * Adds terms to term lists for creations that do not pass their own upload settings. Creations with their own settings use
+     * an uploader of their own, passed through the creation, so that creations running at the same time do not share settings.
+     */
+    private final TermUploader termUploader;
+
     /**
      * Creates an instance of WorkflowCreator class.
      * @param classificationApiUrl URL of the Classification API to use in creating workflow.
@@ -65,9 +79,21 @@ public class WorkflowCreator {
      */
     public WorkflowCreator(String classificationApiUrl, TermListNameResolver termListNameResolver,
                            ClassificationNameResolver classificationNameResolver){
-        final ApiClient apiClient = new ApiClient();
-        apiClient.setBasePath(classificationApiUrl);
-        this.apisProvider = new ClassificationApisProvider(apiClient);
+        this(new ClassificationApisProvider(buildApiClient(classificationApiUrl)), termListNameResolver,
+                classificationNameResolver);
+    }
+
+    /**
+     * Creates an instance of a WorkflowCreator class that calls the Classification API through the APIs provided.
+     * @param apisProvider Provides the Classification APIs to call in workflow creation.
+     * @param termListNameResolver Will be used to resolve the names of term lists specified in workflows being created to
+     *                             their IDs.
+     * @param classificationNameResolver Will be used to resolve the names of classifications specified in workflows
+     *                                   being created to their IDs.
+     */
+    WorkflowCreator(ClassificationApisProvider apisProvider, TermListNameResolver termListNameResolver,
+                    ClassificationNameResolver classificationNameResolver){
+        this.apisProvider = apisProvider;
         workflowsApi = apisProvider.getWorkflowsApi();
         classificationRulesApi = apisProvider.getClassificationRulesApi();
         ruleConditionsApi = apisProvider.getRuleConditionsApi();
@@ -76,6 +102,14 @@ public class WorkflowCreator {
         classificationsApi = apisProvider.getClassificationsApi();
         this.termListNameResolver = termListNameResolver;
         this.classificationNameResolver = classificationNameResolver;
+        this.termUploader = new TermUploader(termsApi, TermUploader.DEFAULT_CHUNK_SIZE, TermUploader.DEFAULT_CONCURRENCY,
+                TermUploader.DEFAULT_RETRIES);
+    }
+
+    private static ApiClient buildApiClient(String classificationApiUrl){
+        final ApiClient apiClient = new ApiClient();
+        apiClient.setBasePath(classificationApiUrl);
+        return apiClient;
     }
 
     /**
@@ -149,66 +183,374 @@ public class WorkflowCreator {
      */
     public CreationResult createWorkflowFromFile(ClassificationWorkflowCreateParams createParams)
             throws ApiException, IOException, NullPointerException{
+        try(TermUploader createTermUploader = new TermUploader(termsApi, createParams.getTermChunkSize(),
+                createParams.getTermUploadConcurrency(), createParams.getTermUploadRetries())){
+            return createWorkflowFromFile(createParams, resolveWorkflowFile(createParams), createTermUploader);
+        }
+    }
+
+    private static File resolveWorkflowFile(ClassificationWorkflowCreateParams createParams){
         File workflowFile = createParams.getWorkflowBaseDataFile();
-        if(workflowFile!=null){
-            CreationJson creationJson = CreationInputJsonConverter.readInputFile(workflowFile);
-            return createWorkflowFromCreationJson(creationJson,
+        if(workflowFile==null){
+            String workflowFileLocation = createParams.getWorkflowBaseDataFileName();
+            Objects.requireNonNull(workflowFileLocation);
+            workflowFile = new File(workflowFileLocation);
+        }
+        return workflowFile;
+    }
+
+    private CreationResult createWorkflowFromFile(ClassificationWorkflowCreateParams createParams, File workflowFile,
+                                                  TermUploader createTermUploader)
+            throws ApiException, IOException {
+        if(createParams.getStreamInput()){
+            return createWorkflowFromStream(workflowFile,
                     createParams.getProjectId(),
-                    createParams.getOverwriteExisting());
+                    createParams.getOverwriteExisting(),
+                    createParams.getTermChunkSize(),
+                    createTermUploader);
+        }
+        CreationJson creationJson = CreationInputJsonConverter.readInputFile(workflowFile);
+        if(createParams.getSyncExisting()){
+            return syncWorkflowFromCreationJson(creationJson, createParams.getProjectId(), createTermUploader);
         }
-        String workflowFileLocation = createParams.getWorkflowBaseDataFileName();
-        Objects.requireNonNull(workflowFileLocation);
-        CreationJson creationJson = CreationInputJsonConverter.readInputFile(workflowFileLocation);
         return createWorkflowFromCreationJson(creationJson,
                 createParams.getProjectId(),
-                createParams.getOverwriteExisting());
+                createParams.getOverwriteExisting(),
+                createParams.getParallelism(),
+                createTermUploader);
+    }
+
+    /**
+     * Synchronizes existing objects with the workflow definition read from the provided file. Existing term lists, classifications
+     * and the workflow with the same names as in the definition are updated to match it, sending only the changes needed,
+     * e.g. only the terms added to or removed from a term list. Objects that do not exist are created. Classification rules,
+     * conditions and rule classifications on the existing workflow that are not in the definition are removed.
+     * @param workflowFile File containing a definition of a classification workflow.
+     * @param projectId ProjectID that workflow objects should be synchronized under.
+     * @return Details of synchronized workflow, with the change made to each object.
+     * @throws IOException Thrown when an error is encountered reading workflow definition from file.
+     * @throws ApiException Thrown when an error is encountered calling the Classification API.
+     */
+    public CreationResult syncWorkflowFromFile(File workflowFile, String projectId) throws IOException, ApiException {
+        CreationJson creationJson = CreationInputJsonConverter.readInputFile(workflowFile);
+        return syncWorkflowFromCreationJson(creationJson, projectId, termUploader);
+    }
+
+    /**
+     * Synchronizes existing objects with the workflow definition read from the provided file location. Existing term lists,
+     * classifications and the workflow with the same names as in the definition are updated to match it, sending only the
+     * changes needed. Objects that do not exist are created. Classification rules, conditions and rule classifications on the
+     * existing workflow that are not in the definition are removed.
+     * @param workflowFileLocation Location of a file containing a definition of a classification workflow.
+     * @param projectId ProjectID that workflow objects should be synchronized under.
+     * @return Details of synchronized workflow, with the change made to each object.
+     * @throws IOException Thrown when an error is encountered reading workflow definition from file.
+     * @throws ApiException Thrown when an error is encountered calling the Classification API.
+     */
+    public CreationResult syncWorkflowFromFile(String workflowFileLocation, String projectId) throws IOException, ApiException {
+        CreationJson creationJson = CreationInputJsonConverter.readInputFile(workflowFileLocation);
+        return syncWorkflowFromCreationJson(creationJson, projectId, termUploader);
+    }
+
+    private CreationResult syncWorkflowFromCreationJson(CreationJson creationJson, String projectId,
+                                                        TermUploader syncTermUploader) throws ApiException {
+        return new WorkflowSynchronizer(this, apisProvider, termListNameResolver, classificationNameResolver, syncTermUploader)
+                .synchronize(creationJson, projectId);
     }
 
     private CreationResult createWorkflowFromCreationJson(CreationJson creationJson,
                                                           String projectId,
                                                           boolean overwriteExisting)
             throws ApiException {
+        return createWorkflowFromCreationJson(creationJson, projectId, overwriteExisting, 1, termUploader);
+    }
+
+    private CreationResult createWorkflowFromCreationJson(CreationJson creationJson,
+                                                          String projectId,
+                                                          boolean overwriteExisting,
+                                                          int parallelism,
+                                                          TermUploader createTermUploader)
+            throws ApiException {
         if(overwriteExisting){
-            ClassificationWorkflowRemover.removeMatching(apisProvider, projectId, creationJson);
+            ClassificationWorkflowRemover.removeMatching(apisProvider, projectId, creationJson, parallelism);
+        }
+        if(parallelism > 1){
+            return createInParallel(creationJson, projectId, parallelism, createTermUploader);
         }
 
-        List<CreatedApiObject> createdTermLists = createTermLists(creationJson.termLists, projectId);
+        final long termListsStart = System.nanoTime();
+        List<CreatedApiObject> createdTermLists = createTermLists(creationJson.termLists, projectId, createTermUploader);
+        final long termListsElapsed = System.nanoTime() - termListsStart;
         List<CreatedApiObject> createdClassifications = createClassifications(creationJson.classifications, projectId);
         CreatedWorkflow createdWorkflow = createWorkflow(creationJson.workflow, projectId);
-        return new CreationResult(createdWorkflow, createdTermLists, createdClassifications);
+        return recordTermThroughput(new CreationResult(createdWorkflow, createdTermLists, createdClassifications),
+                termListsElapsed);
+    }
+
+    /**
+     * Creates a workflow reading its definition from the provided file as a stream. Each term list is created as it is read
+     * and its terms are sent in chunks of {@code termChunkSize}, so only a chunk of terms is held in memory at a time.
+     * Classifications and classification rules may refer to term lists later in the file so are created once the whole file
+     * has been read. When removing existing objects the file is read an extra time beforehand to find the names to remove.
+     */
+    private CreationResult createWorkflowFromStream(File workflowFile, String projectId, boolean overwriteExisting,
+                                                    int termChunkSize, TermUploader createTermUploader)
+            throws ApiException, IOException {
+        if(overwriteExisting){
+            final List<TermListJson> termListNames = new ArrayList<>();
+            final List<ClassificationJson> classificationNames = new ArrayList<>();
+            final WorkflowJson[] workflowName = new WorkflowJson[1];
+            CreationInputJsonStreamReader.readInputFile(workflowFile, termChunkSize, new CreationInputJsonStreamReader.Handler() {
+                @Override
+                public void startTermList(TermListJson termList){
+                    termListNames.add(termList);
+                }
+
+                @Override
+                public void addClassification(ClassificationJson classification){
+                    classificationNames.add(new ClassificationJson(classification.name, null, null, null, null));
+                }
+
+                @Override
+                public void setWorkflow(WorkflowJson workflow){
+                    workflowName[0] = workflow;
+                }
+            });
+            ClassificationWorkflowRemover.removeMatching(apisProvider, projectId,
+                    new CreationJson(workflowName[0], termListNames, classificationNames));
+        }
+
+        final List<CreatedApiObject> createdTermLists = new ArrayList<>();
+        final long termListsStart = System.nanoTime();
+        final List<ClassificationJson> classificationsToCreate = new ArrayList<>();
+        final List<ClassificationRuleJson> classificationRulesToCreate = new ArrayList<>();
+        final WorkflowJson[] workflowToCreate = new WorkflowJson[1];
+        CreationInputJsonStreamReader.readInputFile(workflowFile, termChunkSize, new CreationInputJsonStreamReader.Handler() {
+            private ExistingTermList currentTermList;
+            private TermUploader.Upload currentUpload;
+
+            @Override
+            public void startTermList(TermListJson termList) throws ApiException {
+                currentTermList = termsApi.createTermList(projectId, termList.toApiTermList());
+                termListNameResolver.addNameAndId(currentTermList.getName(), currentTermList.getId());
+                currentUpload = createTermUploader.start(projectId, currentTermList.getId());
+            }
+
+            @Override
+            public void addTerms(List<TermJson> terms) throws ApiException {
+                currentUpload.addTerms(terms);
+            }
+
+            @Override
+            public void endTermList() throws ApiException {
+                currentUpload.finish();
+                createdTermLists.add(buildCreatedTermList(currentTermList, currentUpload));
+            }
+
+            @Override
+            public void addClassification(ClassificationJson classification){
+                classificationsToCreate.add(classification);
+            }
+
+            @Override
+            public void addClassificationRule(ClassificationRuleJson classificationRule){
+                classificationRulesToCreate.add(classificationRule);
+            }
+
+            @Override
+            public void setWorkflow(WorkflowJson workflow){
+                workflowToCreate[0] = workflow;
+            }
+        });
+        final long termListsElapsed = System.nanoTime() - termListsStart;
+        List<CreatedApiObject> createdClassifications = createClassifications(classificationsToCreate, projectId);
+        WorkflowJson workflowJson = workflowToCreate[0];
+        CreatedWorkflow createdWorkflow = createWorkflow(new WorkflowJson(workflowJson.name, workflowJson.description,
+                workflowJson.notes, classificationRulesToCreate), projectId);
+        return recordTermThroughput(new CreationResult(createdWorkflow, createdTermLists, createdClassifications),
+                termListsElapsed);
+    }
+
+    /**
+     * Creates the objects described by {@code creationJson} on a pool of {@code parallelism} threads, starting each creation
+     * as soon as the objects it depends on exist. Term lists do not depend on anything and neither does the workflow.
+     * Classifications may refer to term lists by name so are created once all term lists exist. Classification rules are
+     * created one at a time as creating a rule updates the list of rules on the workflow. The conditions of a rule are
+     * created once the rule and all term lists exist, and its rule classifications once the rule and all classifications exist.
+     */
+    CreationResult createInParallel(CreationJson creationJson, String projectId, int parallelism,
+                                            TermUploader createTermUploader)
+            throws ApiException {
+        final ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            final CompletableFuture<ExistingWorkflow> workflowFuture = CompletableFuture.supplyAsync(
+                    () -> callApi(() -> workflowsApi.createWorkflow(projectId, creationJson.workflow.toApiBaseWorkflow())),
+                    executor);
+
+            final long termListsStart = System.nanoTime();
+            final List<CompletableFuture<CreatedApiObject>> termListFutures = creationJson.termLists.stream()
+                    .map(termListJson -> CompletableFuture.<CreatedApiObject>supplyAsync(
+                            () -> callApi(() -> createTermList(termListJson, projectId, createTermUploader)), executor))
+                    .collect(Collectors.toList());
+            final CompletableFuture<Void> termListsCreated = allOf(termListFutures);
+            final AtomicLong termListsElapsed = new AtomicLong();
+            final CompletableFuture<Void> termListsTimed =
+                    termListsCreated.thenRun(() -> termListsElapsed.set(System.nanoTime() - termListsStart));
+
+            final List<CompletableFuture<CreatedApiObject>> classificationFutures = creationJson.classifications.stream()
+                    .map(classificationJson -> termListsCreated.thenApplyAsync(
+                            created -> callApi(() -> createClassification(classificationJson, projectId)), executor))
+                    .collect(Collectors.toList());
+            final CompletableFuture<Void> classificationsCreated = allOf(classificationFutures);
+
+            final List<CompletableFuture<CreatedClassificationRule>> ruleFutures = new ArrayList<>();
+            CompletableFuture<?> previousRuleFuture = workflowFuture;
+            for(ClassificationRuleJson ruleToCreate: creationJson.workflow.classificationRules){
+                final CompletableFuture<ExistingClassificationRule> ruleFuture = previousRuleFuture.thenApplyAsync(
+                        created -> callApi(() -> classificationRulesApi.createClassificationRule(projectId,
+                                workflowFuture.join().getId(), ruleToCreate.toApiBaseClassificationRule())), executor);
+
+                final List<CompletableFuture<CreatedApiObject>> ruleConditionFutures = ruleToCreate.ruleConditions.stream()
+                        .map(conditionToCreate -> ruleFuture.thenCombineAsync(termListsCreated,
+                                (apiRule, created) -> callApi(() -> createRuleCondition(conditionToCreate,
+                                        workflowFuture.join().getId(), apiRule.getId(), projectId)), executor))
+                        .collect(Collectors.toList());
+                final List<CompletableFuture<CreatedRuleClassification>> ruleClassificationFutures = ruleToCreate.ruleClassifications.stream()
+                        .map(ruleClassificationToCreate -> ruleFuture.thenCombineAsync(classificationsCreated,
+                                (apiRule, created) -> callApi(() -> createRuleClassification(ruleClassificationToCreate,
+                                        workflowFuture.join().getId(), apiRule.getId(), projectId)), executor))
+                        .collect(Collectors.toList());
+
+                ruleFutures.add(CompletableFuture.allOf(allOf(ruleConditionFutures), allOf(ruleClassificationFutures))
+                        .thenApply(created -> {
+                            ExistingClassificationRule apiRule = ruleFuture.join();
+                            CreatedClassificationRule createdClassificationRule = new CreatedClassificationRule(apiRule.getId(),
+                                    apiRule.getName());
+                            createdClassificationRule.getRuleConditions().addAll(joinAll(ruleConditionFutures));
+                            createdClassificationRule.getRuleClassifications().addAll(joinAll(ruleClassificationFutures));
+                            return createdClassificationRule;
+                        }));
+                previousRuleFuture = ruleFuture;
+            }
+
+            try {
+                CompletableFuture.allOf(allOf(ruleFutures), classificationsCreated, workflowFuture, termListsTimed).join();
+            }
+            catch(CompletionException e){
+                if(e.getCause() instanceof ApiException){
+                    throw (ApiException) e.getCause();
+                }
+                throw e;
+            }
+            ExistingWorkflow apiWorkflow = workflowFuture.join();
+            CreatedWorkflow createdWorkflow = new CreatedWorkflow(apiWorkflow.getId(), apiWorkflow.getName());
+            for(CreatedClassificationRule createdClassificationRule: joinAll(ruleFutures)){
+                createdWorkflow.addClassificationRule(createdClassificationRule);
+            }
+            return recordTermThroughput(new CreationResult(createdWorkflow, joinAll(termListFutures),
+                    joinAll(classificationFutures)), termListsElapsed.get());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * A call to the Classification API that may be run as part of a parallel creation.
+     */
+    @FunctionalInterface
+    private interface ApiCall<T> {
+        T call() throws ApiException;
+    }
+
+    private static <T> T callApi(ApiCall<T> apiCall){
+        try {
+            return apiCall.call();
+        }
+        catch(ApiException e){
+            throw new CompletionException(e);
+        }
+    }
+
+    private static CompletableFuture<Void> allOf(List<? extends CompletableFuture<?>> futures){
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()]));
+    }
+
+    private static <T> List<T> joinAll(List<CompletableFuture<T>> futures){
+        return futures.stream().map(CompletableFuture::join).collect(Collectors.toList());
     }
 
     private List<CreatedApiObject> createClassifications(List<ClassificationJson> classificationJsons, String projectId) throws ApiException {
         List<CreatedApiObject> createdClassifications = new ArrayList<>();
         for(ClassificationJson classificationJson: classificationJsons){
-            ExistingClassification createdClassification = classificationsApi.createClassification(projectId,
-                    classificationJson.toApiBaseClassification(termListNameResolver));
-            classificationNameResolver.addNameAndId(createdClassification.getName(), createdClassification.getId());
-            createdClassifications.add(new CreatedApiObject(createdClassification.getId(),
-                    createdClassification.getName()));
+            createdClassifications.add(createClassification(classificationJson, projectId));
         }
         return createdClassifications;
     }
 
-    private List<CreatedApiObject> createTermLists(List<TermListJson> termListJsons, String projectId) throws ApiException {
+    CreatedApiObject createClassification(ClassificationJson classificationJson, String projectId) throws ApiException {
+        ExistingClassification createdClassification = classificationsApi.createClassification(projectId,
+                classificationJson.toApiBaseClassification(termListNameResolver));
+        classificationNameResolver.addNameAndId(createdClassification.getName(), createdClassification.getId());
+        return new CreatedApiObject(createdClassification.getId(), createdClassification.getName());
+    }
+
+    private List<CreatedApiObject> createTermLists(List<TermListJson> termListJsons, String projectId,
+                                                   TermUploader createTermUploader) throws ApiException {
         List<CreatedApiObject> createdTermLists = new ArrayList<>();
         for(TermListJson termListJson: termListJsons) {
-            ExistingTermList createdTermList =
-                    termsApi.createTermList(projectId, termListJson.toApiTermList());
-            termListNameResolver.addNameAndId(createdTermList.getName(), createdTermList.getId());
-            addTerms(termListJson.terms, createdTermList.getId(), projectId);
-            createdTermLists.add(new CreatedApiObject(createdTermList.getId(), createdTermList.getName()));
+            createdTermLists.add(createTermList(termListJson, projectId, createTermUploader));
         }
         return createdTermLists;
     }
 
-    private void addTerms(List<TermJson> termJsons, long termListId, String projectId) throws ApiException {
-        NewTerms termsToCreate = new NewTerms();
-        termsToCreate.setTerms(termJsons.stream().map(termJson -> termJson.toApiTerm()).collect(Collectors.toList()));
-        termsApi.updateTerms(projectId, termListId, termsToCreate);
+    CreatedTermList createTermList(TermListJson termListJson, String projectId, TermUploader createTermUploader)
+            throws ApiException {
+        ExistingTermList createdTermList =
+                termsApi.createTermList(projectId, termListJson.toApiTermList());
+        termListNameResolver.addNameAndId(createdTermList.getName(), createdTermList.getId());
+        TermUploader.Upload upload = addTerms(termListJson.terms, createdTermList.getId(), projectId, createTermUploader);
+        return buildCreatedTermList(createdTermList, upload);
+    }
+
+    private static CreatedTermList buildCreatedTermList(ExistingTermList createdTermList, TermUploader.Upload upload){
+        CreatedTermList result = new CreatedTermList(createdTermList.getId(), createdTermList.getName(), ChangeType.CREATED,
+                upload.getTermsAdded(), 0);
+        result.setTermsPerSecond(upload.getTermsPerSecond());
+        return result;
     }
 
-    private CreatedWorkflow createWorkflow(WorkflowJson workflowJson, String projectId) throws ApiException {
+    /**
+     * Adds terms to a term list, sending them in chunks through the uploader of the creation in progress.
+     * @return The completed upload, with the number of terms added and the rate they were added at.
+     */
+    TermUploader.Upload addTerms(List<TermJson> termJsons, long termListId, String projectId, TermUploader createTermUploader)
+            throws ApiException {
+        TermUploader.Upload upload = createTermUploader.start(projectId, termListId);
+        upload.addTerms(termJsons);
+        upload.finish();
+        return upload;
+    }
+
+    /**
+     * Sets the total number of terms added on {@code creationResult} and the rate they were added at across all term lists.
+     * @param creationResult Result to update, with term lists holding the number of terms added to each.
+     * @param termListsElapsedNanos Time taken to create all term lists and add their terms, in nanoseconds.
+     * @return The updated result.
+     */
+    static CreationResult recordTermThroughput(CreationResult creationResult, long termListsElapsedNanos){
+        long termsAdded = creationResult.getTermLists().stream()
+                .filter(termList -> termList instanceof CreatedTermList)
+                .mapToLong(termList -> ((CreatedTermList) termList).getTermsAdded())
+                .sum();
+        creationResult.setTermsAdded(termsAdded);
+        creationResult.setTermsPerSecond(TermUploader.calculateTermsPerSecond(termsAdded, termListsElapsedNanos));
+        LOGGER.info("Added "+termsAdded+" terms across "+creationResult.getTermLists().size()+" term lists, "
+                +String.format("%.1f", creationResult.getTermsPerSecond())+" terms per second.");
+        return creationResult;
+    }
+
+    CreatedWorkflow createWorkflow(WorkflowJson workflowJson, String projectId) throws ApiException {
         ExistingWorkflow apiWorkflow = workflowsApi.createWorkflow(projectId, workflowJson.toApiBaseWorkflow());
         CreatedWorkflow createdWorkflow = new CreatedWorkflow(apiWorkflow.getId(), apiWorkflow.getName());
         for(ClassificationRuleJson ruleToCreate: workflowJson.classificationRules){
@@ -218,7 +560,7 @@ public class WorkflowCreator {
         return createdWorkflow;
     }
 
-    private CreatedClassificationRule createClassificationRule(ClassificationRuleJson classificationRuleJson, long workflowId, String projectId) throws ApiException {
+    CreatedClassificationRule createClassificationRule(ClassificationRuleJson classificationRuleJson, long workflowId, String projectId) throws ApiException {
         ExistingClassificationRule apiClassificationRule = classificationRulesApi.createClassificationRule(projectId, workflowId,
                 classificationRuleJson.toApiBaseClassificationRule());
         long createdClassificationRuleId = apiClassificationRule.getId();
@@ -240,21 +582,32 @@ public class WorkflowCreator {
                                       String projectId) throws ApiException {
         List<CreatedApiObject> createdRuleConditions = new ArrayList<>();
         for(ConditionJson conditionToCreate: ruleConditions){
-            ExistingCondition apiCondition = ruleConditionsApi.createClassificationRuleCondition(projectId, workflowId, classificationRuleId,
-                    conditionToCreate.toApiCondition(this.termListNameResolver));
-            createdRuleConditions.add(new CreatedApiObject(apiCondition.getId(), apiCondition.getName()));
+            createdRuleConditions.add(createRuleCondition(conditionToCreate, workflowId, classificationRuleId, projectId));
         }
         return createdRuleConditions;
     }
 
+    CreatedApiObject createRuleCondition(ConditionJson conditionToCreate, long workflowId, long classificationRuleId,
+                                                 String projectId) throws ApiException {
+        ExistingCondition apiCondition = ruleConditionsApi.createClassificationRuleCondition(projectId, workflowId, classificationRuleId,
+                conditionToCreate.toApiCondition(this.termListNameResolver));
+        return new CreatedApiObject(apiCondition.getId(), apiCondition.getName());
+    }
+
     private List<CreatedRuleClassification> createRuleClassifications(List<RuleClassificationJson> ruleClassificationJsons, long workflowId,
                                            long classificationRuleId, String projectId) throws ApiException {
         List<CreatedRuleClassification> createdRuleClassifications = new ArrayList<>();
         for(RuleClassificationJson ruleClassificationToCreate: ruleClassificationJsons){
-            ExistingRuleClassification apiRuleClassification = ruleClassificationsApi.createRuleClassification(projectId, workflowId, classificationRuleId,
-                    ruleClassificationToCreate.toApiRuleClassification(classificationNameResolver));
-            createdRuleClassifications.add(new CreatedRuleClassification(apiRuleClassification.getId(), apiRuleClassification.getClassificationId()));
+            createdRuleClassifications.add(createRuleClassification(ruleClassificationToCreate, workflowId, classificationRuleId,
+                    projectId));
         }
         return createdRuleClassifications;
     }
+
+    CreatedRuleClassification createRuleClassification(RuleClassificationJson ruleClassificationToCreate, long workflowId,
+                                                               long classificationRuleId, String projectId) throws ApiException {
+        ExistingRuleClassification apiRuleClassification = ruleClassificationsApi.createRuleClassification(projectId, workflowId, classificationRuleId,
+                ruleClassificationToCreate.toApiRuleClassification(classificationNameResolver));
+        return new CreatedRuleClassification(apiRuleClassification.getId(), apiRuleClassification.getClassificationId());
+    }
 }
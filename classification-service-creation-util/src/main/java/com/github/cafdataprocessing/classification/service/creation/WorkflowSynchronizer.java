@@ -0,0 +1,406 @@
+/*
+ * Copyright 2015-2017 EntIT Software LLC, a Micro Focus company.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cafdataprocessing.classification.service.creation;
+
+import com.github.cafdataprocessing.classification.service.client.ApiException;
+import com.github.cafdataprocessing.classification.service.client.api.*;
+import com.github.cafdataprocessing.classification.service.client.model.*;
+import com.github.cafdataprocessing.classification.service.creation.created.*;
+import com.github.cafdataprocessing.classification.service.creation.jsonobjects.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Synchronizes existing term lists, classifications and a workflow with a definition, matching existing objects to the
+ * definition by name. Only the changes needed for the existing objects to match the definition are sent to the Classification
+ * API, rather than removing the existing objects and creating them again. Term lists and classifications that are not in
+ * the definition are left as they are, while classification rules, conditions and rule classifications on the workflow that
+ * are not in the definition are removed.
+ */
+class WorkflowSynchronizer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WorkflowSynchronizer.class);
+    private static final int PAGE_SIZE = 100;
+    /**
+     * Term lists may hold many terms so these are retrieved in larger pages.
+     */
+    private static final int TERMS_PAGE_SIZE = 1000;
+
+    private final WorkflowCreator workflowCreator;
+    private final WorkflowsApi workflowsApi;
+    private final ClassificationRulesApi classificationRulesApi;
+    private final RuleConditionsApi ruleConditionsApi;
+    private final RuleClassificationsApi ruleClassificationsApi;
+    private final TermsApi termsApi;
+    private final ClassificationsApi classificationsApi;
+    private final TermListNameResolver termListNameResolver;
+    private final ClassificationNameResolver classificationNameResolver;
+    private final TermUploader termUploader;
+
+    /**
+     * Creates an instance of WorkflowSynchronizer.
+     * @param workflowCreator Used to create any objects in the definition that do not exist.
+     * @param apisProvider Provides access to classification service APIs.
+     * @param termListNameResolver Will be populated with the IDs of synchronized term lists and used to resolve term list
+     *                             names in classifications and conditions.
+     * @param classificationNameResolver Will be populated with the IDs of synchronized classifications and used to resolve
+     *                                   classification names in rule classifications.
+     * @param termUploader Used to add terms to term lists.
+     */
+    WorkflowSynchronizer(WorkflowCreator workflowCreator, ClassificationApisProvider apisProvider,
+                         TermListNameResolver termListNameResolver, ClassificationNameResolver classificationNameResolver,
+                         TermUploader termUploader){
+        this.workflowCreator = workflowCreator;
+        this.workflowsApi = apisProvider.getWorkflowsApi();
+        this.classificationRulesApi = apisProvider.getClassificationRulesApi();
+        this.ruleConditionsApi = apisProvider.getRuleConditionsApi();
+        this.ruleClassificationsApi = apisProvider.getRuleClassificationsApi();
+        this.termsApi = apisProvider.getTermsApi();
+        this.classificationsApi = apisProvider.getClassificationsApi();
+        this.termListNameResolver = termListNameResolver;
+        this.classificationNameResolver = classificationNameResolver;
+        this.termUploader = termUploader;
+    }
+
+    /**
+     * Synchronizes the term lists, classifications and workflow under the project with the provided definition.
+     * @param creationJson Definition that existing objects should match.
+     * @param projectId ProjectId that objects are under.
+     * @return Details of the synchronized objects, with the change made to each. Objects removed from the workflow are
+     * included with a change of {@link ChangeType#DELETED}.
+     * @throws ApiException If an error occurs contacting the classification API. Changes made before the error are not reverted.
+     */
+    CreationResult synchronize(CreationJson creationJson, String projectId) throws ApiException {
+        final long termListsStart = System.nanoTime();
+        List<CreatedApiObject> syncedTermLists = synchronizeTermLists(creationJson.termLists, projectId);
+        final long termListsElapsed = System.nanoTime() - termListsStart;
+        List<CreatedApiObject> syncedClassifications = synchronizeClassifications(creationJson.classifications, projectId);
+        CreatedWorkflow syncedWorkflow = synchronizeWorkflow(creationJson.workflow, projectId);
+        return WorkflowCreator.recordTermThroughput(new CreationResult(syncedWorkflow, syncedTermLists, syncedClassifications),
+                termListsElapsed);
+    }
+
+    private List<CreatedApiObject> synchronizeTermLists(List<TermListJson> termListJsons, String projectId) throws ApiException {
+        LOGGER.info("Synchronizing term lists.");
+        Map<String, ExistingTermList> existingTermLists = mapByName(
+                PagedResults.retrieveAll((pageNum, pageSize) -> termsApi.getTermLists(projectId, pageNum, pageSize),
+                        ExistingTermLists::getTermLists, ExistingTermLists::getTotalHits, PAGE_SIZE),
+                ExistingTermList::getName, "term list");
+        List<CreatedApiObject> syncedTermLists = new ArrayList<>();
+        for(TermListJson termListJson: termListJsons){
+            ExistingTermList existingTermList = existingTermLists.get(termListJson.name);
+            if(existingTermList==null){
+                CreatedTermList createdTermList = workflowCreator.createTermList(termListJson, projectId, termUploader);
+                LOGGER.debug("Created term list: "+termListJson.name+" with ID: "+createdTermList.getId());
+                syncedTermLists.add(createdTermList);
+                continue;
+            }
+            syncedTermLists.add(synchronizeTermList(termListJson, existingTermList, projectId));
+        }
+        LOGGER.info("Synchronized term lists.");
+        return syncedTermLists;
+    }
+
+    private CreatedTermList synchronizeTermList(TermListJson termListJson, ExistingTermList existingTermList, String projectId)
+            throws ApiException {
+        final Long termListId = existingTermList.getId();
+        termListNameResolver.addNameAndId(existingTermList.getName(), termListId);
+        ChangeType change = ChangeType.UNCHANGED;
+        if(!DefinitionComparer.textMatches(termListJson.description, existingTermList.getDescription())){
+            termsApi.updateTermList(projectId, termListId, termListJson.toApiTermList());
+            change = ChangeType.UPDATED;
+        }
+
+        //terms are identified by their type and expression, any existing term not in the definition is removed (including
+        //duplicates) and any term in the definition that does not exist is added
+        Map<String, TermJson> termsToAdd = new LinkedHashMap<>();
+        for(TermJson termJson: termListJson.terms){
+            termsToAdd.putIfAbsent(getTermKey(String.valueOf(termJson.type), termJson.expression), termJson);
+        }
+        List<ExistingTerm> existingTerms = PagedResults.retrieveAll(
+                (pageNum, pageSize) -> termsApi.getTerms(projectId, termListId, pageNum, pageSize),
+                ExistingTerms::getTerms, ExistingTerms::getTotalHits, TERMS_PAGE_SIZE);
+        Map<String, TermJson> unmatchedTerms = new LinkedHashMap<>(termsToAdd);
+        List<Long> termIdsToRemove = new ArrayList<>();
+        for(ExistingTerm existingTerm: existingTerms){
+            if(unmatchedTerms.remove(getTermKey(String.valueOf(existingTerm.getType()), existingTerm.getExpression()))==null){
+                termIdsToRemove.add(existingTerm.getId());
+            }
+        }
+        if(!termIdsToRemove.isEmpty()){
+            TermIds termIds = new TermIds();
+            termIds.setTermIds(termIdsToRemove);
+            termsApi.deleteTerms(projectId, termListId, termIds);
+            change = ChangeType.UPDATED;
+        }
+        double termsPerSecond = 0;
+        if(!unmatchedTerms.isEmpty()){
+            termsPerSecond = workflowCreator.addTerms(new ArrayList<>(unmatchedTerms.values()), termListId, projectId, termUploader)
+                    .getTermsPerSecond();
+            change = ChangeType.UPDATED;
+        }
+        LOGGER.debug("Term list: "+existingTermList.getName()+" with ID: "+termListId+" "+change+". Terms added: "+
+                unmatchedTerms.size()+", terms removed: "+termIdsToRemove.size());
+        CreatedTermList syncedTermList = new CreatedTermList(termListId, existingTermList.getName(), change,
+                unmatchedTerms.size(), termIdsToRemove.size());
+        syncedTermList.setTermsPerSecond(termsPerSecond);
+        return syncedTermList;
+    }
+
+    private static String getTermKey(String type, String expression){
+        return type + ":" + expression;
+    }
+
+    private List<CreatedApiObject> synchronizeClassifications(List<ClassificationJson> classificationJsons, String projectId)
+            throws ApiException {
+        LOGGER.info("Synchronizing classifications.");
+        Map<String, ExistingClassification> existingClassifications = mapByName(
+                PagedResults.retrieveAll((pageNum, pageSize) -> classificationsApi.getClassifications(projectId, pageNum, pageSize),
+                        ExistingClassifications::getClassifications, ExistingClassifications::getTotalHits, PAGE_SIZE),
+                ExistingClassification::getName, "classification");
+        List<CreatedApiObject> syncedClassifications = new ArrayList<>();
+        for(ClassificationJson classificationJson: classificationJsons){
+            ExistingClassification existingClassification = existingClassifications.get(classificationJson.name);
+            if(existingClassification==null){
+                CreatedApiObject createdClassification = workflowCreator.createClassification(classificationJson, projectId);
+                LOGGER.debug("Created classification: "+classificationJson.name+" with ID: "+createdClassification.getId());
+                syncedClassifications.add(createdClassification);
+                continue;
+            }
+            final Long classificationId = existingClassification.getId();
+            classificationNameResolver.addNameAndId(existingClassification.getName(), classificationId);
+            BaseClassification expectedClassification = classificationJson.toApiBaseClassification(termListNameResolver);
+            ChangeType change = ChangeType.UNCHANGED;
+            if(!classificationMatches(expectedClassification, existingClassification)){
+                classificationsApi.updateClassification(projectId, classificationId, expectedClassification);
+                change = ChangeType.UPDATED;
+            }
+            LOGGER.debug("Classification: "+existingClassification.getName()+" with ID: "+classificationId+" "+change);
+            syncedClassifications.add(new CreatedApiObject(classificationId, existingClassification.getName(), change));
+        }
+        LOGGER.info("Synchronized classifications.");
+        return syncedClassifications;
+    }
+
+    private static boolean classificationMatches(BaseClassification expected, ExistingClassification existing){
+        if(!DefinitionComparer.textMatches(expected.getDescription(), existing.getDescription())
+                || !DefinitionComparer.textMatches(expected.getType(), existing.getType())){
+            return false;
+        }
+        if(expected.getClassificationTarget()!=null &&
+                !String.valueOf(expected.getClassificationTarget()).equals(String.valueOf(existing.getClassificationTarget()))){
+            return false;
+        }
+        return DefinitionComparer.propertiesMatch(expected.getAdditional(), existing.getAdditional());
+    }
+
+    private CreatedWorkflow synchronizeWorkflow(WorkflowJson workflowJson, String projectId) throws ApiException {
+        LOGGER.info("Synchronizing classification workflow: "+workflowJson.name);
+        Map<String, ExistingWorkflow> existingWorkflows = mapByName(
+                PagedResults.retrieveAll((pageNum, pageSize) -> workflowsApi.getWorkflows(projectId, pageNum, pageSize),
+                        ExistingWorkflows::getWorkflows, ExistingWorkflows::getTotalHits, PAGE_SIZE),
+                ExistingWorkflow::getName, "classification workflow");
+        ExistingWorkflow existingWorkflow = existingWorkflows.get(workflowJson.name);
+        if(existingWorkflow==null){
+            CreatedWorkflow createdWorkflow = workflowCreator.createWorkflow(workflowJson, projectId);
+            LOGGER.info("Created classification workflow: "+workflowJson.name+" with ID: "+createdWorkflow.getId());
+            return createdWorkflow;
+        }
+        final Long workflowId = existingWorkflow.getId();
+        ChangeType change = ChangeType.UNCHANGED;
+        if(!DefinitionComparer.textMatches(workflowJson.description, existingWorkflow.getDescription())
+                || !DefinitionComparer.textMatches(workflowJson.notes, existingWorkflow.getNotes())){
+            workflowsApi.updateWorkflow(projectId, workflowId, workflowJson.toApiBaseWorkflow());
+            change = ChangeType.UPDATED;
+        }
+        CreatedWorkflow syncedWorkflow = new CreatedWorkflow(workflowId, existingWorkflow.getName(), change);
+
+        List<ExistingClassificationRule> existingRules = PagedResults.retrieveAll(
+                (pageNum, pageSize) -> classificationRulesApi.getClassificationRules(projectId, workflowId, pageNum, pageSize),
+                ClassificationRules::getClassificationRules, ClassificationRules::getTotalHits, PAGE_SIZE);
+        Map<String, ExistingClassificationRule> rulesToSync = new LinkedHashMap<>();
+        for(ExistingClassificationRule existingRule: existingRules){
+            boolean inDefinition = workflowJson.classificationRules.stream().anyMatch(rule -> rule.name.equals(existingRule.getName()));
+            if(inDefinition && !rulesToSync.containsKey(existingRule.getName())){
+                rulesToSync.put(existingRule.getName(), existingRule);
+                continue;
+            }
+            LOGGER.debug("Removing classification rule: "+existingRule.getName()+" with ID: "+existingRule.getId());
+            classificationRulesApi.deleteClassificationRule(projectId, workflowId, existingRule.getId());
+            syncedWorkflow.addClassificationRule(new CreatedClassificationRule(existingRule.getId(), existingRule.getName(),
+                    ChangeType.DELETED));
+        }
+        for(ClassificationRuleJson ruleJson: workflowJson.classificationRules){
+            ExistingClassificationRule existingRule = rulesToSync.get(ruleJson.name);
+            if(existingRule==null){
+                CreatedClassificationRule createdRule = workflowCreator.createClassificationRule(ruleJson, workflowId, projectId);
+                LOGGER.debug("Created classification rule: "+ruleJson.name+" with ID: "+createdRule.getId());
+                syncedWorkflow.addClassificationRule(createdRule);
+                continue;
+            }
+            syncedWorkflow.addClassificationRule(synchronizeClassificationRule(ruleJson, existingRule, workflowId, projectId));
+        }
+        if(syncedWorkflow.getChange()==ChangeType.UNCHANGED && syncedWorkflow.getClassificationRules().stream()
+                .anyMatch(rule -> rule.getChange()!=ChangeType.UNCHANGED)){
+            syncedWorkflow.setChange(ChangeType.UPDATED);
+        }
+        LOGGER.info("Synchronized classification workflow: "+workflowJson.name+" with ID: "+workflowId+". "+
+                syncedWorkflow.getChange());
+        return syncedWorkflow;
+    }
+
+    private CreatedClassificationRule synchronizeClassificationRule(ClassificationRuleJson ruleJson,
+                                                                    ExistingClassificationRule existingRule,
+                                                                    long workflowId, String projectId) throws ApiException {
+        final Long ruleId = existingRule.getId();
+        ChangeType change = ChangeType.UNCHANGED;
+        if(!DefinitionComparer.textMatches(ruleJson.description, existingRule.getDescription())
+                || (ruleJson.priority!=null && !ruleJson.priority.equals(existingRule.getPriority()))){
+            classificationRulesApi.updateClassificationRule(projectId, workflowId, ruleId, ruleJson.toApiBaseClassificationRule());
+            change = ChangeType.UPDATED;
+        }
+        CreatedClassificationRule syncedRule = new CreatedClassificationRule(ruleId, existingRule.getName(), change);
+        syncedRule.getRuleConditions().addAll(synchronizeRuleConditions(ruleJson.ruleConditions, workflowId, ruleId, projectId));
+        syncedRule.getRuleClassifications().addAll(
+                synchronizeRuleClassifications(ruleJson.ruleClassifications, workflowId, ruleId, projectId));
+        if(change==ChangeType.UNCHANGED &&
+                (syncedRule.getRuleConditions().stream().anyMatch(condition -> condition.getChange()!=ChangeType.UNCHANGED)
+                || syncedRule.getRuleClassifications().stream()
+                        .anyMatch(ruleClassification -> ruleClassification.getChange()!=ChangeType.UNCHANGED))){
+            syncedRule.setChange(ChangeType.UPDATED);
+        }
+        LOGGER.debug("Classification rule: "+existingRule.getName()+" with ID: "+ruleId+" "+syncedRule.getChange());
+        return syncedRule;
+    }
+
+    /**
+     * Conditions are first matched on both name and definition, any that remain are then updated in place of an existing
+     * condition with the same name, with the rest created. Existing conditions that are not matched are removed.
+     */
+    private List<CreatedApiObject> synchronizeRuleConditions(List<ConditionJson> conditionJsons, long workflowId, long ruleId,
+                                                             String projectId) throws ApiException {
+        List<ExistingCondition> unmatchedConditions = PagedResults.retrieveAll(
+                (pageNum, pageSize) -> ruleConditionsApi.getClassificationRuleConditions(projectId, workflowId, ruleId, pageNum, pageSize),
+                ExistingConditions::getConditions, ExistingConditions::getTotalHits, PAGE_SIZE);
+        CreatedApiObject[] syncedConditions = new CreatedApiObject[conditionJsons.size()];
+        Condition[] expectedConditions = new Condition[conditionJsons.size()];
+        for(int index = 0; index < conditionJsons.size(); index++){
+            expectedConditions[index] = conditionJsons.get(index).toApiCondition(termListNameResolver);
+            ExistingCondition matchingCondition = removeFirst(unmatchedConditions, expectedConditions[index], true);
+            if(matchingCondition!=null){
+                syncedConditions[index] = new CreatedApiObject(matchingCondition.getId(), matchingCondition.getName(),
+                        ChangeType.UNCHANGED);
+            }
+        }
+        for(int index = 0; index < conditionJsons.size(); index++){
+            if(syncedConditions[index]!=null){
+                continue;
+            }
+            ExistingCondition conditionToUpdate = removeFirst(unmatchedConditions, expectedConditions[index], false);
+            if(conditionToUpdate!=null){
+                ruleConditionsApi.updateClassificationRuleCondition(projectId, workflowId, ruleId, conditionToUpdate.getId(),
+                        expectedConditions[index]);
+                syncedConditions[index] = new CreatedApiObject(conditionToUpdate.getId(), conditionToUpdate.getName(),
+                        ChangeType.UPDATED);
+                continue;
+            }
+            syncedConditions[index] = workflowCreator.createRuleCondition(conditionJsons.get(index), workflowId, ruleId, projectId);
+        }
+        List<CreatedApiObject> result = new ArrayList<>();
+        for(ExistingCondition conditionToRemove: unmatchedConditions){
+            ruleConditionsApi.deleteClassificationRuleCondition(projectId, workflowId, ruleId, conditionToRemove.getId());
+            result.add(new CreatedApiObject(conditionToRemove.getId(), conditionToRemove.getName(), ChangeType.DELETED));
+        }
+        for(CreatedApiObject syncedCondition: syncedConditions){
+            result.add(syncedCondition);
+        }
+        return result;
+    }
+
+    private static ExistingCondition removeFirst(List<ExistingCondition> conditions, Condition expectedCondition,
+                                                 boolean matchDefinition){
+        Iterator<ExistingCondition> conditionsIterator = conditions.iterator();
+        while(conditionsIterator.hasNext()){
+            ExistingCondition condition = conditionsIterator.next();
+            if(DefinitionComparer.textMatches(expectedCondition.getName(), condition.getName())
+                    && (!matchDefinition ||
+                    DefinitionComparer.propertiesMatch(expectedCondition.getAdditional(), condition.getAdditional()))){
+                conditionsIterator.remove();
+                return condition;
+            }
+        }
+        return null;
+    }
+
+    private List<CreatedRuleClassification> synchronizeRuleClassifications(List<RuleClassificationJson> ruleClassificationJsons,
+                                                                           long workflowId, long ruleId, String projectId)
+            throws ApiException {
+        List<ExistingRuleClassification> unmatchedRuleClassifications = PagedResults.retrieveAll(
+                (pageNum, pageSize) -> ruleClassificationsApi.getRuleClassifications(projectId, workflowId, ruleId, pageNum, pageSize),
+                ExistingRuleClassifications::getRuleClassifications, ExistingRuleClassifications::getTotalHits, PAGE_SIZE);
+        List<CreatedRuleClassification> syncedRuleClassifications = new ArrayList<>();
+        List<RuleClassificationJson> ruleClassificationsToCreate = new ArrayList<>();
+        for(RuleClassificationJson ruleClassificationJson: ruleClassificationJsons){
+            Long classificationId = ruleClassificationJson.toApiRuleClassification(classificationNameResolver).getClassificationId();
+            ExistingRuleClassification matchingRuleClassification = null;
+            Iterator<ExistingRuleClassification> unmatchedIterator = unmatchedRuleClassifications.iterator();
+            while(unmatchedIterator.hasNext()){
+                ExistingRuleClassification existingRuleClassification = unmatchedIterator.next();
+                if(existingRuleClassification.getClassificationId().equals(classificationId)){
+                    unmatchedIterator.remove();
+                    matchingRuleClassification = existingRuleClassification;
+                    break;
+                }
+            }
+            if(matchingRuleClassification==null){
+                ruleClassificationsToCreate.add(ruleClassificationJson);
+                continue;
+            }
+            syncedRuleClassifications.add(new CreatedRuleClassification(matchingRuleClassification.getId(),
+                    matchingRuleClassification.getClassificationId(), ChangeType.UNCHANGED));
+        }
+        for(ExistingRuleClassification ruleClassificationToRemove: unmatchedRuleClassifications){
+            ruleClassificationsApi.deleteRuleClassification(projectId, workflowId, ruleId, ruleClassificationToRemove.getId());
+            syncedRuleClassifications.add(new CreatedRuleClassification(ruleClassificationToRemove.getId(),
+                    ruleClassificationToRemove.getClassificationId(), ChangeType.DELETED));
+        }
+        for(RuleClassificationJson ruleClassificationToCreate: ruleClassificationsToCreate){
+            syncedRuleClassifications.add(workflowCreator.createRuleClassification(ruleClassificationToCreate, workflowId,
+                    ruleId, projectId));
+        }
+        return syncedRuleClassifications;
+    }
+
+    /**
+     * Maps existing objects by name, using the first object where more than one has the same name.
+     */
+    private static <T> Map<String, T> mapByName(List<T> existingObjects, Function<T, String> getName, String objectType){
+        Map<String, T> objectsByName = new LinkedHashMap<>();
+        for(T existingObject: existingObjects){
+            if(objectsByName.putIfAbsent(getName.apply(existingObject), existingObject)!=null){
+                LOGGER.warn("More than one existing "+objectType+" has the name: "+getName.apply(existingObject)+
+                        ". Only the first will be synchronized.");
+            }
+        }
+        return objectsByName;
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2015-2017 EntIT Software LLC, a Micro Focus company.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cafdataprocessing.classification.service.creation.created;
+
+/**
+ * Describes what was done to an object when a workflow was synchronized with its definition.
+ */
+public enum ChangeType {
+    /**
+     * The object did not exist and was created.
+     */
+    CREATED,
+    /**
+     * The object existed and was updated to match its definition.
+     */
+    UPDATED,
+    /**
+     * The object existed and already matched its definition.
+     */
+    UNCHANGED,
+    /**
+     * The object existed but is not in the definition and was removed.
+     */
+    DELETED
+}
@@ -21,6 +21,7 @@ package com.github.cafdataprocessing.classification.service.creation.created;
 public class CreatedApiObject {
     private long id;
     private String name;
+    private ChangeType change = ChangeType.CREATED;
 
     /**
      * Parameterless constructor to support JSON deserialization.
@@ -32,6 +33,19 @@ public class CreatedApiObject {
         this.name = name;
     }
 
+    public CreatedApiObject(long id, String name, ChangeType change){
+        this(id, name);
+        this.change = change;
+    }
+
+    public ChangeType getChange(){
+        return change;
+    }
+
+    public void setChange(ChangeType change){
+        this.change = change;
+    }
+
     public long getId(){
         return id;
     }
@@ -36,6 +36,10 @@ public class CreatedClassificationRule extends CreatedApiObject {
         super(id, name);
     }
 
+    public CreatedClassificationRule(long id, String name, ChangeType change){
+        super(id, name, change);
+    }
+
     public void addRuleCondition(CreatedApiObject ruleCondition){
         this.ruleConditions.add(ruleCondition);
     }
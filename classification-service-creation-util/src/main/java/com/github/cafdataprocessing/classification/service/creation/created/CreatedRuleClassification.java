@@ -21,6 +21,7 @@ package com.github.cafdataprocessing.classification.service.creation.created;
 public class CreatedRuleClassification{
     private long id;
     private long classificationId;
+    private ChangeType change = ChangeType.CREATED;
 
     /**
      * Parameterless constructor to support JSON deserialization.
@@ -32,6 +33,19 @@ public class CreatedRuleClassification{
         this.classificationId = classificationId;
     }
 
+    public CreatedRuleClassification(long id, long classificationId, ChangeType change) {
+        this(id, classificationId);
+        this.change = change;
+    }
+
+    public ChangeType getChange(){
+        return change;
+    }
+
+    public void setChange(ChangeType change){
+        this.change = change;
+    }
+
     public long getClassificationId(){
         return classificationId;
     }
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2015-2017 EntIT Software LLC, a Micro Focus company.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cafdataprocessing.classification.service.creation.created;
+
+/**
+ * Information for a term list that was created or synchronized, including the number of terms added and removed and the
+ * rate that terms were added at
+ */
+public class CreatedTermList extends CreatedApiObject {
+    private int termsAdded;
+    private int termsRemoved;
+    private double termsPerSecond;
+
+    /**
+     * Parameterless constructor to support JSON deserialization.
+     */
+    public CreatedTermList(){
+        super();
+    }
+
+    public CreatedTermList(long id, String name, ChangeType change, int termsAdded, int termsRemoved){
+        super(id, name, change);
+        this.termsAdded = termsAdded;
+        this.termsRemoved = termsRemoved;
+    }
+
+    public int getTermsAdded(){
+        return termsAdded;
+    }
+
+    public void setTermsAdded(int termsAdded){
+        this.termsAdded = termsAdded;
+    }
+
+    public int getTermsRemoved(){
+        return termsRemoved;
+    }
+
+    public void setTermsRemoved(int termsRemoved){
+        this.termsRemoved = termsRemoved;
+    }
+
+    /**
+     * @return Number of terms added per second, measured from when the first terms were passed to be added until all terms
+     * were added.
+     */
+    public double getTermsPerSecond(){
+        return termsPerSecond;
+    }
+
+    public void setTermsPerSecond(double termsPerSecond){
+        this.termsPerSecond = termsPerSecond;
+    }
+}
@@ -35,6 +35,10 @@ public class CreatedWorkflow extends CreatedApiObject{
         super(id, name);
     }
 
+    public CreatedWorkflow(long id, String name, ChangeType change){
+        super(id, name, change);
+    }
+
     public void addClassificationRule(CreatedClassificationRule rule){
         classificationRules.add(rule);
     }
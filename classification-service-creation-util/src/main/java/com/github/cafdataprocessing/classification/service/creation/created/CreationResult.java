@@ -24,6 +24,8 @@ public class CreationResult {
     private CreatedWorkflow workflow;
     private List<CreatedApiObject> termLists;
     private List<CreatedApiObject> classifications;
+    private long termsAdded;
+    private double termsPerSecond;
 
     /**
      * Parameterless constructor to support JSON deserialization.
@@ -59,4 +61,27 @@ public class CreationResult {
     public void setClassifications(List<CreatedApiObject> classifications){
         this.classifications = classifications;
     }
+
+    /**
+     * @return Total number of terms added across all term lists.
+     */
+    public long getTermsAdded(){
+        return termsAdded;
+    }
+
+    public void setTermsAdded(long termsAdded){
+        this.termsAdded = termsAdded;
+    }
+
+    /**
+     * @return Number of terms added per second across all term lists, measured from the start of term list creation until
+     * all terms were added.
+     */
+    public double getTermsPerSecond(){
+        return termsPerSecond;
+    }
+
+    public void setTermsPerSecond(double termsPerSecond){
+        this.termsPerSecond = termsPerSecond;
+    }
 }
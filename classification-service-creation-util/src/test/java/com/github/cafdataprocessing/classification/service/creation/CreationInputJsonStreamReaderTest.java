@@ -0,0 +1,176 @@
+/*
+ * Copyright 2015-2017 EntIT Software LLC, a Micro Focus company.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cafdataprocessing.classification.service.creation;
+
+import com.github.cafdataprocessing.classification.service.creation.jsonobjects.*;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests to verify that a workflow input file read as a stream passes the expected objects to the handler, with terms split into
+ * chunks of the requested size.
+ */
+public class CreationInputJsonStreamReaderTest {
+
+    @Test
+    public void termsSplitIntoChunksOfExactMultiple() throws Exception {
+        RecordingHandler handler = readInput("{'termLists': [{'name': 'list', 'terms': "+buildTerms(4)+"}], "
+                +"'workflow': {'name': 'workflow'}}", 2);
+
+        Assert.assertEquals(handler.events, Arrays.asList("startTermList:list", "addTerms:2", "addTerms:2", "endTermList",
+                "setWorkflow:workflow"), "Events passed to handler are not as expected.");
+        Assert.assertEquals(handler.terms.size(), 4, "Expecting all terms to be passed to the handler.");
+        Assert.assertEquals(handler.terms.get(3).expression, "term 3", "Expecting terms to be passed in the order read.");
+    }
+
+    @Test
+    public void termsSplitIntoChunksWithRemainder() throws Exception {
+        RecordingHandler handler = readInput("{'termLists': [{'name': 'list', 'description': 'desc', 'terms': "
+                +buildTerms(5)+"}], 'workflow': {'name': 'workflow'}}", 2);
+
+        Assert.assertEquals(handler.events, Arrays.asList("startTermList:list", "addTerms:2", "addTerms:2", "addTerms:1",
+                "endTermList", "setWorkflow:workflow"), "Events passed to handler are not as expected.");
+        Assert.assertEquals(handler.termLists.get(0).description, "desc",
+                "Description on term list passed to handler should be the description read.");
+    }
+
+    @Test
+    public void termListWithoutTerms() throws Exception {
+        RecordingHandler handler = readInput("{'termLists': [{'name': 'no terms'}, {'name': 'null terms', 'terms': null}, "
+                +"{'name': 'empty terms', 'terms': []}], 'workflow': {'name': 'workflow'}}", 2);
+
+        Assert.assertEquals(handler.events, Arrays.asList("startTermList:no terms", "endTermList",
+                "startTermList:null terms", "endTermList", "startTermList:empty terms", "endTermList",
+                "setWorkflow:workflow"), "Term lists without terms should be started and ended with no terms added.");
+    }
+
+    @Test
+    public void classificationsAndRulesPassedInOrder() throws Exception {
+        RecordingHandler handler = readInput("{'workflow': {'name': 'workflow', 'classificationRules': ["
+                +"{'name': 'rule 1'}, {'name': 'rule 2'}]}, "
+                +"'classifications': [{'name': 'classification', 'additional': {'type': 'exists', 'field': 'f'}}], "
+                +"'termLists': [{'name': 'list', 'terms': "+buildTerms(1)+"}]}", 10);
+
+        Assert.assertEquals(handler.events, Arrays.asList("addClassificationRule:rule 1", "addClassificationRule:rule 2",
+                "setWorkflow:workflow", "addClassification:classification", "startTermList:list", "addTerms:1",
+                "endTermList"), "Objects should be passed to the handler in the order they appear in the file.");
+    }
+
+    @Test
+    public void termsBeforeNameRejected() throws Exception {
+        expectReadFailure("{'termLists': [{'terms': "+buildTerms(1)+", 'name': 'list'}], 'workflow': {'name': 'workflow'}}",
+                "Missing required property 'name' on term list");
+    }
+
+    @Test
+    public void unknownFieldsRejected() throws Exception {
+        expectReadFailure("{'workflow': {'name': 'workflow'}, 'unknown': 1}", "Unrecognized field \"unknown\"");
+        expectReadFailure("{'termLists': [{'name': 'list', 'unknown': 1}], 'workflow': {'name': 'workflow'}}",
+                "Unrecognized field \"unknown\" on term list");
+        expectReadFailure("{'workflow': {'name': 'workflow', 'unknown': 1}}", "Unrecognized field \"unknown\" on workflow");
+    }
+
+    @Test
+    public void missingWorkflowRejected() throws Exception {
+        expectReadFailure("{'termLists': [{'name': 'list', 'terms': "+buildTerms(1)+"}]}",
+                "Missing required property 'workflow'");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void invalidChunkSizeRejected() throws Exception {
+        readInput("{'workflow': {'name': 'workflow'}}", 0);
+    }
+
+    private static String buildTerms(int termCount){
+        List<String> terms = new ArrayList<>();
+        for(int termIndex = 0; termIndex < termCount; termIndex++){
+            terms.add("{'expression': 'term "+termIndex+"', 'type': 'text'}");
+        }
+        return "["+String.join(", ", terms)+"]";
+    }
+
+    private static void expectReadFailure(String inputJson, String expectedMessage) throws Exception {
+        try{
+            readInput(inputJson, 2);
+            Assert.fail("Expecting reading input to fail with message containing: "+expectedMessage);
+        }
+        catch(IOException e){
+            Assert.assertNotNull(e.getCause(), "Expecting failure to read input to have a cause.");
+            Assert.assertTrue(e.getCause().getMessage().contains(expectedMessage),
+                    "Failure message is not as expected. Was: "+e.getCause().getMessage());
+        }
+    }
+
+    private static RecordingHandler readInput(String inputJson, int termChunkSize) throws Exception {
+        File inputFile = File.createTempFile("workflow-input", ".json");
+        inputFile.deleteOnExit();
+        Files.write(inputFile.toPath(), inputJson.replace('\'', '"').getBytes(StandardCharsets.UTF_8));
+        RecordingHandler handler = new RecordingHandler();
+        try{
+            CreationInputJsonStreamReader.readInputFile(inputFile, termChunkSize, handler);
+        }
+        finally {
+            inputFile.delete();
+        }
+        return handler;
+    }
+
+    private static class RecordingHandler implements CreationInputJsonStreamReader.Handler {
+        final List<String> events = new ArrayList<>();
+        final List<TermListJson> termLists = new ArrayList<>();
+        final List<TermJson> terms = new ArrayList<>();
+
+        @Override
+        public void startTermList(TermListJson termList){
+            events.add("startTermList:"+termList.name);
+            termLists.add(termList);
+        }
+
+        @Override
+        public void addTerms(List<TermJson> termsChunk){
+            events.add("addTerms:"+termsChunk.size());
+            terms.addAll(termsChunk);
+        }
+
+        @Override
+        public void endTermList(){
+            events.add("endTermList");
+        }
+
+        @Override
+        public void addClassification(ClassificationJson classification){
+            events.add("addClassification:"+classification.name);
+        }
+
+        @Override
+        public void addClassificationRule(ClassificationRuleJson classificationRule){
+            events.add("addClassificationRule:"+classificationRule.name);
+        }
+
+        @Override
+        public void setWorkflow(WorkflowJson workflow){
+            events.add("setWorkflow:"+workflow.name);
+        }
+    }
+}
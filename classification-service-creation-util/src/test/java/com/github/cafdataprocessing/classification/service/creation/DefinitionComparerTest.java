@@ -0,0 +1,83 @@
+/*
+ * Copyright 2015-2017 EntIT Software LLC, a Micro Focus company.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cafdataprocessing.classification.service.creation;
+
+import com.github.cafdataprocessing.classification.service.client.model.ConditionCommon;
+import com.github.cafdataprocessing.classification.service.creation.jsonobjects.conditions.TermListConditionAdditionalJson;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Tests to verify that definitions read from JSON are compared correctly with objects retrieved from the classification service
+ * when synchronizing a workflow.
+ */
+public class DefinitionComparerTest {
+
+    @Test
+    public void matchingTermListAdditional(){
+        TermListConditionAdditionalJson expectedAdditional = buildTermListAdditional("12");
+        //retrieved additional properties are not typed, numbers may be returned as decimals and IDs are set by the service
+        Map<String, Object> existingAdditional = buildExistingTermListAdditional(12.0);
+        existingAdditional.put("id", 3.0);
+
+        Assert.assertTrue(DefinitionComparer.propertiesMatch(expectedAdditional, existingAdditional),
+                "Expecting additional with same values to match.");
+    }
+
+    @Test
+    public void differentTermListAdditional(){
+        TermListConditionAdditionalJson expectedAdditional = buildTermListAdditional("12");
+        Map<String, Object> existingAdditional = buildExistingTermListAdditional(13.0);
+
+        Assert.assertFalse(DefinitionComparer.propertiesMatch(expectedAdditional, existingAdditional),
+                "Expecting additional with a different term list ID not to match.");
+
+        existingAdditional = buildExistingTermListAdditional(12.0);
+        existingAdditional.put("notes", "some notes");
+        Assert.assertFalse(DefinitionComparer.propertiesMatch(expectedAdditional, existingAdditional),
+                "Expecting additional with notes not in definition not to match.");
+    }
+
+    @Test
+    public void textMatches(){
+        Assert.assertTrue(DefinitionComparer.textMatches(null, ""), "Expecting null and empty text to match.");
+        Assert.assertTrue(DefinitionComparer.textMatches("description", "description"), "Expecting same text to match.");
+        Assert.assertFalse(DefinitionComparer.textMatches("description", "Description"),
+                "Expecting text differing in case not to match.");
+        Assert.assertFalse(DefinitionComparer.textMatches("description", null), "Expecting text not to match null.");
+    }
+
+    private static TermListConditionAdditionalJson buildTermListAdditional(String termListId){
+        TermListConditionAdditionalJson additional = new TermListConditionAdditionalJson();
+        additional.type = ConditionCommon.TypeEnum.TERMLIST.toString();
+        additional.field = "CONTENT";
+        additional.value = termListId;
+        additional.order = 100;
+        return additional;
+    }
+
+    private static Map<String, Object> buildExistingTermListAdditional(double termListId){
+        Map<String, Object> additional = new LinkedHashMap<>();
+        additional.put("type", ConditionCommon.TypeEnum.TERMLIST.toString());
+        additional.put("field", "CONTENT");
+        additional.put("value", termListId);
+        additional.put("order", 100.0);
+        return additional;
+    }
+}
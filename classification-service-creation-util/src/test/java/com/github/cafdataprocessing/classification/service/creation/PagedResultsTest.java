@@ -0,0 +1,187 @@
+/*
+ * Copyright 2015-2017 EntIT Software LLC, a Micro Focus company.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cafdataprocessing.classification.service.creation;
+
+import com.github.cafdataprocessing.classification.service.client.ApiException;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests to verify that all pages of results are retrieved and returned in page order, and that failures of calls run on an
+ * executor are reported as the ApiException thrown by the call.
+ */
+public class PagedResultsTest {
+    private static final int PAGE_SIZE = 10;
+
+    private ExecutorService executor;
+
+    @BeforeMethod
+    public void createExecutor(){
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterMethod
+    public void shutdownExecutor(){
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void resultsInPageOrder() throws ApiException {
+        //later pages are returned sooner so that completing out of order would be detected
+        StubPages pages = new StubPages(35, 0, page -> (5 - page) * 20);
+        List<Integer> results = PagedResults.retrieveAll(pages::retrieve, Page::getResults, Page::getTotalHits, PAGE_SIZE,
+                executor);
+
+        Assert.assertEquals(results, pages.expectedResults(), "Expecting all results in page order.");
+    }
+
+    @Test
+    public void pageCountFromTotalHits() throws ApiException {
+        Assert.assertEquals(countPagesRetrieved(35, null), 4, "Expecting a request for a final partial page.");
+        Assert.assertEquals(countPagesRetrieved(30, null), 3, "Expecting no request past the final full page.");
+        Assert.assertEquals(countPagesRetrieved(0, null), 1, "Expecting only the first page when there are no results.");
+        Assert.assertEquals(countPagesRetrieved(35, executor), 4,
+                "Expecting a request for a final partial page when retrieving on an executor.");
+        Assert.assertEquals(countPagesRetrieved(30, executor), 3,
+                "Expecting no request past the final full page when retrieving on an executor.");
+    }
+
+    @Test
+    public void retrieveFailureUnwrapped() {
+        StubPages pages = new StubPages(35, 3, page -> 0);
+        try {
+            PagedResults.retrieveAll(pages::retrieve, Page::getResults, Page::getTotalHits, PAGE_SIZE, executor);
+            Assert.fail("Expecting retrieving all results to fail when a page could not be retrieved.");
+        }
+        catch(ApiException e){
+            Assert.assertEquals(e.getCode(), 500, "Expecting the failure of the page to be reported.");
+        }
+    }
+
+    @Test
+    public void runForAllOnExecutor() throws ApiException {
+        final Set<Integer> itemsRun = ConcurrentHashMap.newKeySet();
+        PagedResults.runForAll(Arrays.asList(1, 2, 3, 4, 5), itemsRun::add, executor);
+
+        Assert.assertEquals(itemsRun.size(), 5, "Expecting the action to be run for every item.");
+    }
+
+    @Test
+    public void runForAllFailureUnwrapped() {
+        final Set<Integer> itemsRun = ConcurrentHashMap.newKeySet();
+        try {
+            PagedResults.runForAll(Arrays.asList(1, 2, 3, 4, 5), item -> {
+                if(item==2){
+                    throw new ApiException(404, "Stub failure for item.");
+                }
+                itemsRun.add(item);
+            }, executor);
+            Assert.fail("Expecting running for all items to fail when the action failed for an item.");
+        }
+        catch(ApiException e){
+            Assert.assertEquals(e.getCode(), 404, "Expecting the failure of the action to be reported.");
+        }
+        Assert.assertEquals(itemsRun.size(), 4, "Expecting the action to still be run for the other items.");
+    }
+
+    private static int countPagesRetrieved(int totalHits, ExecutorService executor) throws ApiException {
+        StubPages pages = new StubPages(totalHits, 0, page -> 0);
+        List<Integer> results = PagedResults.retrieveAll(pages::retrieve, Page::getResults, Page::getTotalHits, PAGE_SIZE,
+                executor);
+        Assert.assertEquals(results, pages.expectedResults(), "Expecting all results to be retrieved.");
+        return pages.requests.get();
+    }
+
+    /**
+     * A page of results, with the total number of results across all pages.
+     */
+    private static class Page {
+        private final List<Integer> results;
+        private final int totalHits;
+
+        Page(List<Integer> results, int totalHits){
+            this.results = results;
+            this.totalHits = totalHits;
+        }
+
+        List<Integer> getResults(){
+            return results;
+        }
+
+        int getTotalHits(){
+            return totalHits;
+        }
+    }
+
+    @FunctionalInterface
+    private interface PageDelay {
+        long getMillis(int pageNum);
+    }
+
+    /**
+     * Returns pages of consecutive numbers, optionally failing one page with a server error.
+     */
+    private static class StubPages {
+        final AtomicInteger requests = new AtomicInteger();
+        private final int totalHits;
+        private final int failingPage;
+        private final PageDelay pageDelay;
+
+        StubPages(int totalHits, int failingPage, PageDelay pageDelay){
+            this.totalHits = totalHits;
+            this.failingPage = failingPage;
+            this.pageDelay = pageDelay;
+        }
+
+        Page retrieve(int pageNum, int pageSize) throws ApiException {
+            requests.incrementAndGet();
+            try {
+                Thread.sleep(pageDelay.getMillis(pageNum));
+            }
+            catch(InterruptedException e){
+                Thread.currentThread().interrupt();
+                throw new ApiException(e);
+            }
+            if(pageNum==failingPage){
+                throw new ApiException(500, "Stub failure retrieving page.");
+            }
+            List<Integer> results = new ArrayList<>();
+            for(int result = (pageNum - 1) * pageSize; result < Math.min(pageNum * pageSize, totalHits); result++){
+                results.add(result);
+            }
+            return new Page(results, totalHits);
+        }
+
+        List<Integer> expectedResults(){
+            List<Integer> results = new ArrayList<>();
+            for(int result = 0; result < totalHits; result++){
+                results.add(result);
+            }
+            return results;
+        }
+    }
+}
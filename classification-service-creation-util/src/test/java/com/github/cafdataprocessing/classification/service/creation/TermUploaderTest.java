@@ -0,0 +1,196 @@
+/*
+ * Copyright 2015-2017 EntIT Software LLC, a Micro Focus company.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cafdataprocessing.classification.service.creation;
+
+import com.github.cafdataprocessing.classification.service.client.ApiClient;
+import com.github.cafdataprocessing.classification.service.client.ApiException;
+import com.github.cafdataprocessing.classification.service.client.api.TermsApi;
+import com.github.cafdataprocessing.classification.service.client.model.BaseTerm;
+import com.github.cafdataprocessing.classification.service.client.model.NewTerms;
+import com.github.cafdataprocessing.classification.service.creation.jsonobjects.TermJson;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tests to verify that terms are sent in chunks, that failed chunks are retried only for server errors and that failures are
+ * reported when an upload is finished.
+ */
+public class TermUploaderTest {
+    private static final String PROJECT_ID = "term-uploader-test";
+    private static final long TERM_LIST_ID = 1;
+
+    @Test
+    public void serverErrorRetried() throws ApiException {
+        FailingTermsApi termsApi = new FailingTermsApi(503, 1);
+        TermUploader.Upload upload = new TermUploader(termsApi, 2, 1, 3).start(PROJECT_ID, TERM_LIST_ID);
+        upload.addTerms(buildTerms(3));
+        upload.finish();
+
+        //the first chunk fails once and is retried, the second chunk succeeds first time
+        Assert.assertEquals(termsApi.calls.get(), 3, "Expecting the failed chunk to be sent again.");
+        Assert.assertEquals(termsApi.termsAdded.get(), 3, "Expecting all terms to be added.");
+        Assert.assertEquals(upload.getTermsAdded(), 3, "Terms added reported by upload is not as expected.");
+    }
+
+    @Test
+    public void clientErrorNotRetried() throws ApiException {
+        FailingTermsApi termsApi = new FailingTermsApi(400, 1);
+        TermUploader.Upload upload = new TermUploader(termsApi, 10, 1, 3).start(PROJECT_ID, TERM_LIST_ID);
+        upload.addTerms(buildTerms(3));
+        try{
+            upload.finish();
+            Assert.fail("Expecting finishing upload to fail when a chunk was rejected.");
+        }
+        catch(ApiException e){
+            Assert.assertEquals(e.getCode(), 400, "Expecting the failure of the chunk to be reported.");
+        }
+        Assert.assertEquals(termsApi.calls.get(), 1, "Expecting a chunk rejected with a client error not to be sent again.");
+    }
+
+    @Test
+    public void serverErrorReportedOnceRetriesExhausted() throws ApiException {
+        FailingTermsApi termsApi = new FailingTermsApi(500, Integer.MAX_VALUE);
+        TermUploader.Upload upload = new TermUploader(termsApi, 10, 1, 1).start(PROJECT_ID, TERM_LIST_ID);
+        upload.addTerms(buildTerms(1));
+        try{
+            upload.finish();
+            Assert.fail("Expecting finishing upload to fail when a chunk failed on every attempt.");
+        }
+        catch(ApiException e){
+            Assert.assertEquals(e.getCode(), 500, "Expecting the failure of the last attempt to be reported.");
+        }
+        Assert.assertEquals(termsApi.calls.get(), 2, "Expecting the chunk to be sent once and retried once.");
+    }
+
+    @Test
+    public void runtimeExceptionReported() throws ApiException {
+        final AtomicInteger calls = new AtomicInteger();
+        final TermsApi termsApi = new TermsApi(new ApiClient()){
+            @Override
+            public void updateTerms(String projectId, Long termListId, NewTerms terms) throws ApiException {
+                //only the first chunk fails, so its completed future is dropped while later chunks are submitted
+                if(calls.incrementAndGet()==1){
+                    throw new IllegalStateException("Stub failure reading response.");
+                }
+            }
+        };
+        try(TermUploader termUploader = new TermUploader(termsApi, 1, 1, 3)){
+            TermUploader.Upload upload = termUploader.start(PROJECT_ID, TERM_LIST_ID);
+            try{
+                upload.addTerms(buildTerms(5));
+                upload.finish();
+                Assert.fail("Expecting the upload to fail when a chunk failed with an unexpected exception.");
+            }
+            catch(ApiException e){
+                Assert.assertTrue(e.getCause() instanceof IllegalStateException,
+                        "Expecting the unexpected exception to be reported as the cause of the failure.");
+            }
+        }
+    }
+
+    @Test
+    public void pendingChunksBounded() throws Exception {
+        final BlockingTermsApi termsApi = new BlockingTermsApi();
+        //with a concurrency of 1 at most 2 chunks may be waiting to be sent before adding further terms blocks
+        final TermUploader.Upload upload = new TermUploader(termsApi, 1, 1, 0).start(PROJECT_ID, TERM_LIST_ID);
+        final AtomicReference<Exception> addFailure = new AtomicReference<>();
+        Thread addingThread = new Thread(() -> {
+            try {
+                upload.addTerms(buildTerms(5));
+            }
+            catch(ApiException e){
+                addFailure.set(e);
+            }
+        });
+        addingThread.start();
+        Assert.assertTrue(termsApi.firstCallStarted.await(10, TimeUnit.SECONDS), "Expecting the first chunk to be sent.");
+        addingThread.join(500);
+        Assert.assertTrue(addingThread.isAlive(),
+                "Expecting adding terms to block while the maximum number of chunks are waiting to be sent.");
+
+        termsApi.release.countDown();
+        addingThread.join(10000);
+        Assert.assertFalse(addingThread.isAlive(), "Expecting adding terms to complete once chunks have been sent.");
+        Assert.assertNull(addFailure.get(), "Expecting adding terms not to fail.");
+        upload.finish();
+        Assert.assertEquals(termsApi.calls.get(), 5, "Expecting a request for each chunk.");
+    }
+
+    private static List<TermJson> buildTerms(int termCount){
+        List<TermJson> terms = new ArrayList<>();
+        for(int termIndex = 0; termIndex < termCount; termIndex++){
+            terms.add(new TermJson("term "+termIndex, BaseTerm.TypeEnum.TEXT));
+        }
+        return terms;
+    }
+
+    /**
+     * Fails the first requests sent with the status code provided, then adds the terms.
+     */
+    private static class FailingTermsApi extends TermsApi {
+        final AtomicInteger calls = new AtomicInteger();
+        final AtomicInteger termsAdded = new AtomicInteger();
+        private final int failureCode;
+        private final int failuresBeforeSuccess;
+
+        FailingTermsApi(int failureCode, int failuresBeforeSuccess){
+            super(new ApiClient());
+            this.failureCode = failureCode;
+            this.failuresBeforeSuccess = failuresBeforeSuccess;
+        }
+
+        @Override
+        public void updateTerms(String projectId, Long termListId, NewTerms terms) throws ApiException {
+            if(calls.incrementAndGet() <= failuresBeforeSuccess){
+                throw new ApiException(failureCode, "Stub failure adding terms.");
+            }
+            termsAdded.addAndGet(terms.getTerms().size());
+        }
+    }
+
+    /**
+     * Holds each request until released.
+     */
+    private static class BlockingTermsApi extends TermsApi {
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch firstCallStarted = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        BlockingTermsApi(){
+            super(new ApiClient());
+        }
+
+        @Override
+        public void updateTerms(String projectId, Long termListId, NewTerms terms) throws ApiException {
+            calls.incrementAndGet();
+            firstCallStarted.countDown();
+            try {
+                release.await();
+            }
+            catch(InterruptedException e){
+                Thread.currentThread().interrupt();
+                throw new ApiException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright 2015-2017 EntIT Software LLC, a Micro Focus company.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.cafdataprocessing.classification.service.creation;
+
+import com.github.cafdataprocessing.classification.service.client.ApiClient;
+import com.github.cafdataprocessing.classification.service.client.ApiException;
+import com.github.cafdataprocessing.classification.service.client.api.*;
+import com.github.cafdataprocessing.classification.service.client.model.*;
+import com.github.cafdataprocessing.classification.service.creation.created.CreatedClassificationRule;
+import com.github.cafdataprocessing.classification.service.creation.created.CreationResult;
+import com.github.cafdataprocessing.classification.service.creation.jsonobjects.*;
+import com.github.cafdataprocessing.classification.service.creation.jsonobjects.conditions.ExistsConditionAdditionalJson;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests to verify that a parallel creation only creates each object once the objects it depends on exist and that the
+ * failure of a creation is reported as the ApiException thrown by the Classification API.
+ */
+public class WorkflowCreatorTest {
+    private static final String PROJECT_ID = "workflow-creator-test";
+    private static final int TERM_LIST_COUNT = 3;
+    private static final int CLASSIFICATION_COUNT = 3;
+    private static final int RULE_COUNT = 3;
+    private static final int PARALLELISM = 4;
+
+    @Test
+    public void dependenciesCreatedFirst() throws ApiException {
+        RecordingApisProvider apisProvider = new RecordingApisProvider(0);
+        CreationResult result = createInParallel(apisProvider);
+
+        Assert.assertEquals(apisProvider.violations, Collections.emptyList(),
+                "Expecting no object to be created before the objects it depends on.");
+        Assert.assertEquals(result.getTermLists().size(), TERM_LIST_COUNT, "Expecting all term lists to be reported.");
+        Assert.assertEquals(result.getClassifications().size(), CLASSIFICATION_COUNT,
+                "Expecting all classifications to be reported.");
+        List<CreatedClassificationRule> createdRules = result.getWorkflow().getClassificationRules();
+        Assert.assertEquals(createdRules.size(), RULE_COUNT, "Expecting all classification rules to be reported.");
+        for(CreatedClassificationRule createdRule: createdRules){
+            Assert.assertEquals(createdRule.getRuleConditions().size(), 1,
+                    "Expecting the rule condition to be reported on its rule.");
+            Assert.assertEquals(createdRule.getRuleClassifications().size(), CLASSIFICATION_COUNT,
+                    "Expecting the rule classifications to be reported on their rule.");
+        }
+    }
+
+    @Test
+    public void apiFailureRethrown() {
+        RecordingApisProvider apisProvider = new RecordingApisProvider(2);
+        try {
+            createInParallel(apisProvider);
+            Assert.fail("Expecting the creation to fail when creating a classification failed.");
+        }
+        catch(ApiException e){
+            Assert.assertEquals(e.getCode(), 400, "Expecting the failure of the classification to be reported.");
+            Assert.assertEquals(e.getMessage(), RecordingApisProvider.FAILURE_MESSAGE,
+                    "Expecting the exception thrown by the API to be rethrown.");
+        }
+        Assert.assertEquals(apisProvider.ruleClassificationCalls.get(), 0,
+                "Expecting no rule classifications to be created once a classification failed.");
+    }
+
+    private static CreationResult createInParallel(RecordingApisProvider apisProvider) throws ApiException {
+        WorkflowCreator workflowCreator = new WorkflowCreator(apisProvider, new TermListNameResolver(),
+                new ClassificationNameResolver());
+        try(TermUploader termUploader = new TermUploader(apisProvider.getTermsApi(), 10, 1, 0)){
+            return workflowCreator.createInParallel(buildCreationJson(), PROJECT_ID, PARALLELISM, termUploader);
+        }
+    }
+
+    private static CreationJson buildCreationJson(){
+        List<TermListJson> termLists = new ArrayList<>();
+        for(int termListIndex = 0; termListIndex < TERM_LIST_COUNT; termListIndex++){
+            List<TermJson> terms = new ArrayList<>();
+            terms.add(new TermJson("term "+termListIndex, BaseTerm.TypeEnum.TEXT));
+            termLists.add(new TermListJson("term list "+termListIndex, null, terms));
+        }
+        List<ClassificationJson> classifications = new ArrayList<>();
+        List<RuleClassificationJson> ruleClassifications = new ArrayList<>();
+        for(int classificationIndex = 0; classificationIndex < CLASSIFICATION_COUNT; classificationIndex++){
+            String classificationName = "classification "+classificationIndex;
+            classifications.add(new ClassificationJson(classificationName, null, "test", buildExistsAdditional(), null));
+            ruleClassifications.add(new RuleClassificationJson(classificationName, null));
+        }
+        List<ClassificationRuleJson> rules = new ArrayList<>();
+        for(int ruleIndex = 0; ruleIndex < RULE_COUNT; ruleIndex++){
+            rules.add(new ClassificationRuleJson("rule "+ruleIndex, null, true, ruleIndex, ruleClassifications,
+                    Collections.singletonList(new ConditionJson("condition "+ruleIndex, buildExistsAdditional()))));
+        }
+        return new CreationJson(new WorkflowJson("workflow", null, null, rules), termLists, classifications);
+    }
+
+    private static ExistsConditionAdditionalJson buildExistsAdditional(){
+        ExistsConditionAdditionalJson additional = new ExistsConditionAdditionalJson();
+        additional.type = ConditionCommon.TypeEnum.EXISTS.toString().toLowerCase();
+        additional.field = "test_field";
+        return additional;
+    }
+
+    private static void pause() throws ApiException {
+        try {
+            Thread.sleep(20);
+        }
+        catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new ApiException(e);
+        }
+    }
+
+    /**
+     * Provides APIs that record each object created and whether the objects it depends on had been created before it.
+     * Term lists and classification rules take a short time to create so that objects created too early are detected.
+     */
+    private static class RecordingApisProvider extends ClassificationApisProvider {
+        static final String FAILURE_MESSAGE = "Stub failure creating classification.";
+        static final long WORKFLOW_ID = 1000;
+
+        final List<String> violations = Collections.synchronizedList(new ArrayList<>());
+        final AtomicInteger ruleClassificationCalls = new AtomicInteger();
+        private final AtomicLong nextId = new AtomicLong();
+        private final AtomicInteger termListsCreated = new AtomicInteger();
+        private final AtomicInteger classificationCalls = new AtomicInteger();
+        private final AtomicInteger classificationsCreated = new AtomicInteger();
+        private final AtomicInteger rulesInProgress = new AtomicInteger();
+        private final Set<Long> ruleIdsCreated = ConcurrentHashMap.newKeySet();
+        private final int failingClassification;
+
+        private final WorkflowsApi workflowsApi;
+        private final TermsApi termsApi;
+        private final ClassificationsApi classificationsApi;
+        private final ClassificationRulesApi classificationRulesApi;
+        private final RuleConditionsApi ruleConditionsApi;
+        private final RuleClassificationsApi ruleClassificationsApi;
+
+        /**
+         * @param failingClassification Number of the classification create call to fail with a client error, or 0 for
+         *                              all calls to succeed.
+         */
+        RecordingApisProvider(int failingClassification){
+            super(new ApiClient());
+            this.failingClassification = failingClassification;
+            final ApiClient apiClient = new ApiClient();
+            workflowsApi = new WorkflowsApi(apiClient){
+                @Override
+                public ExistingWorkflow createWorkflow(String projectId, BaseWorkflow workflow) {
+                    ExistingWorkflow createdWorkflow = new ExistingWorkflow();
+                    createdWorkflow.setId(WORKFLOW_ID);
+                    createdWorkflow.setName("workflow");
+                    return createdWorkflow;
+                }
+            };
+            termsApi = new TermsApi(apiClient){
+                @Override
+                public ExistingTermList createTermList(String projectId, BaseTermList termList) throws ApiException {
+                    pause();
+                    ExistingTermList createdTermList = new ExistingTermList();
+                    createdTermList.setId(nextId.incrementAndGet());
+                    createdTermList.setName("term list "+createdTermList.getId());
+                    termListsCreated.incrementAndGet();
+                    return createdTermList;
+                }
+            };
+            classificationsApi = new ClassificationsApi(apiClient){
+                @Override
+                public ExistingClassification createClassification(String projectId, BaseClassification classification)
+                        throws ApiException {
+                    if(termListsCreated.get() < TERM_LIST_COUNT){
+                        violations.add("Classification created before all term lists.");
+                    }
+                    if(classificationCalls.incrementAndGet()==RecordingApisProvider.this.failingClassification){
+                        throw new ApiException(400, FAILURE_MESSAGE);
+                    }
+                    ExistingClassification createdClassification = new ExistingClassification();
+                    createdClassification.setId(nextId.incrementAndGet());
+                    createdClassification.setName("classification "+classificationsCreated.getAndIncrement());
+                    return createdClassification;
+                }
+            };
+            classificationRulesApi = new ClassificationRulesApi(apiClient){
+                @Override
+                public ExistingClassificationRule createClassificationRule(String projectId, Long workflowId,
+                                                                           BaseClassificationRule rule) throws ApiException {
+                    if(workflowId!=WORKFLOW_ID){
+                        violations.add("Classification rule created on workflow "+workflowId+".");
+                    }
+                    if(rulesInProgress.incrementAndGet() > 1){
+                        violations.add("Classification rules created at the same time.");
+                    }
+                    pause();
+                    rulesInProgress.decrementAndGet();
+                    ExistingClassificationRule createdRule = new ExistingClassificationRule();
+                    createdRule.setId(nextId.incrementAndGet());
+                    ruleIdsCreated.add(createdRule.getId());
+                    return createdRule;
+                }
+            };
+            ruleConditionsApi = new RuleConditionsApi(apiClient){
+                @Override
+                public ExistingCondition createClassificationRuleCondition(String projectId, Long workflowId,
+                                                                           Long ruleId, Condition condition) {
+                    if(!ruleIdsCreated.contains(ruleId)){
+                        violations.add("Rule condition created before its classification rule.");
+                    }
+                    if(termListsCreated.get() < TERM_LIST_COUNT){
+                        violations.add("Rule condition created before all term lists.");
+                    }
+                    ExistingCondition createdCondition = new ExistingCondition();
+                    createdCondition.setId(nextId.incrementAndGet());
+                    return createdCondition;
+                }
+            };
+            ruleClassificationsApi = new RuleClassificationsApi(apiClient){
+                @Override
+                public ExistingRuleClassification createRuleClassification(String projectId, Long workflowId,
+                                                                           Long ruleId,
+                                                                           BaseRuleClassification ruleClassification) {
+                    ruleClassificationCalls.incrementAndGet();
+                    if(!ruleIdsCreated.contains(ruleId)){
+                        violations.add("Rule classification created before its classification rule.");
+                    }
+                    if(classificationsCreated.get() < CLASSIFICATION_COUNT){
+                        violations.add("Rule classification created before all classifications.");
+                    }
+                    ExistingRuleClassification createdRuleClassification = new ExistingRuleClassification();
+                    createdRuleClassification.setId(nextId.incrementAndGet());
+                    return createdRuleClassification;
+                }
+            };
+        }
+
+        @Override
+        public WorkflowsApi getWorkflowsApi(){
+            return workflowsApi;
+        }
+
+        @Override
+        public TermsApi getTermsApi(){
+            return termsApi;
+        }
+
+        @Override
+        public ClassificationsApi getClassificationsApi(){
+            return classificationsApi;
+        }
+
+        @Override
+        public ClassificationRulesApi getClassificationRulesApi(){
+            return classificationRulesApi;
+        }
+
+        @Override
+        public RuleConditionsApi getRuleConditionsApi(){
+            return ruleConditionsApi;
+        }
+
+        @Override
+        public RuleClassificationsApi getRuleClassificationsApi(){
+            return ruleClassificationsApi;
+        }
+    }
+}